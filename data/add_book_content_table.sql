@@ -0,0 +1,16 @@
+-- Migration: move book text out of the book table into compressed, separately loaded storage
+-- Served by GET /api/books/{id}/content
+
+USE librarydb;
+
+CREATE TABLE IF NOT EXISTS book_content (
+    book_id INT PRIMARY KEY,
+    data LONGBLOB NOT NULL,
+    byte_length INT NOT NULL,
+    sha256 VARCHAR(64) NOT NULL,
+    updated_at DATETIME(6) NULL
+);
+
+-- Start one node once with library.book-content.migrate-legacy=true: it compresses any text
+-- still in book.content into book_content and clears the old column. Once that has run, the column can be dropped:
+-- ALTER TABLE book DROP COLUMN content;
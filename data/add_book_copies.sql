@@ -0,0 +1,30 @@
+-- Migration: one book row per title with total and available copy counts
+-- Borrow/return change available_copies with conditional updates; `available` stays as the
+-- "at least one copy on the shelf" flag used by filters and facets
+-- Safe to run again: columns that exist are left alone and the backfill only touches rows that
+-- predate them. Run it after a deployment with ddl-auto=update added the columns, too: the
+-- application does not backfill them
+
+USE librarydb;
+
+-- MySQL has no ADD COLUMN IF NOT EXISTS, so each column is added only when information_schema lacks it
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'book' AND column_name = 'total_copies') = 0,
+        'ALTER TABLE book ADD COLUMN total_copies INT NOT NULL DEFAULT 1', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'book' AND column_name = 'available_copies') = 0,
+        'ALTER TABLE book ADD COLUMN available_copies INT NOT NULL DEFAULT 1', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- Existing rows got one copy; the ones on loan have none on the shelf
+UPDATE book SET available_copies = CASE WHEN available THEN 1 ELSE 0 END
+WHERE available <> (available_copies > 0);
+
+-- Rows that were separate copies of one title can then be folded into one: raise total_copies
+-- of the row to keep (PUT /api/books/{id}) and delete the others once their loans are returned.
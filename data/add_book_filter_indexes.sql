@@ -0,0 +1,21 @@
+-- Migration: indexes backing the book filters and sort keys of GET /api/books
+-- (available, publicationYear, authorId, isbnPrefix; sort by id, title, publicationYear, isbn, updatedAt)
+
+USE librarydb;
+
+ALTER TABLE book
+    ADD INDEX idx_book_available_year (available, publication_year),
+    ADD INDEX idx_book_publication_year (publication_year),
+    ADD INDEX idx_book_isbn (isbn),
+    ADD INDEX idx_book_title (title);
+
+-- authorId uses idx_book_author_author_id from add_author_table.sql: InnoDB secondary index entries
+-- end with the primary key (book_id, author_id), so it is already ordered by (author_id, book_id)
+
+-- Databases that ran an earlier version of this script have that index twice; drop the copy
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'book_author' AND index_name = 'idx_book_author_author') > 0,
+        'ALTER TABLE book_author DROP INDEX idx_book_author_author', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
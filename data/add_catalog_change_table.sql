@@ -0,0 +1,26 @@
+-- Change log for catalogue delta sync: one row per book/author holding its latest change
+CREATE TABLE IF NOT EXISTS catalog_change (
+    seq BIGINT AUTO_INCREMENT PRIMARY KEY,
+    entity_type VARCHAR(20) NOT NULL,
+    entity_id INT NOT NULL,
+    deleted BIT NOT NULL,
+    changed_at DATETIME(6) NOT NULL,
+    CONSTRAINT uk_catalog_change_entity UNIQUE (entity_type, entity_id)
+);
+
+-- Writers lock this row until they commit, so sequence numbers become visible in order
+CREATE TABLE IF NOT EXISTS catalog_change_lock (
+    id INT PRIMARY KEY
+);
+
+INSERT IGNORE INTO catalog_change_lock (id) VALUES (1);
+
+-- Seeds the log with the existing catalogue. Run it before the application starts; the
+-- application seeds an empty log on startup as well, under the lock above
+INSERT INTO catalog_change (entity_type, entity_id, deleted, changed_at)
+SELECT 'AUTHOR', id, 0, NOW(6) FROM author
+WHERE NOT EXISTS (SELECT 1 FROM catalog_change);
+
+INSERT INTO catalog_change (entity_type, entity_id, deleted, changed_at)
+SELECT 'BOOK', id, 0, NOW(6) FROM book
+WHERE NOT EXISTS (SELECT 1 FROM catalog_change WHERE entity_type = 'BOOK');
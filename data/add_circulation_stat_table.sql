@@ -0,0 +1,7 @@
+-- Flushed values of the in-memory circulation counters
+CREATE TABLE IF NOT EXISTS circulation_stat (
+    dimension VARCHAR(20) NOT NULL,
+    stat_key VARCHAR(100) NOT NULL,
+    loan_count BIGINT NOT NULL,
+    PRIMARY KEY (dimension, stat_key)
+);
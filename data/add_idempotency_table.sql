@@ -0,0 +1,15 @@
+-- Migration: stored results of write requests sent with an Idempotency-Key header
+-- Rows are purged by the application once expires_at has passed
+
+USE librarydb;
+
+CREATE TABLE IF NOT EXISTS idempotency_record (
+    record_key VARCHAR(64) PRIMARY KEY,
+    request_hash VARCHAR(64) NOT NULL,
+    status INT NULL,
+    content_type VARCHAR(100) NULL,
+    body LONGBLOB NULL,
+    created_at DATETIME(6) NOT NULL,
+    expires_at DATETIME(6) NOT NULL,
+    INDEX idx_idempotency_expires_at (expires_at)
+);
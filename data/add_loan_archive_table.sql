@@ -0,0 +1,16 @@
+-- Cold tier for closed loans moved out of the loan table by the archival job
+CREATE TABLE IF NOT EXISTS loan_archive (
+    id INT PRIMARY KEY,
+    user_id VARCHAR(36),
+    book_id INT,
+    loan_date DATE,
+    return_date DATE,
+    status VARCHAR(255),
+    archived_at DATETIME(6)
+);
+
+CREATE INDEX idx_loan_archive_user_id ON loan_archive(user_id);
+CREATE INDEX idx_loan_archive_book_id ON loan_archive(book_id);
+
+-- Lets the archival job find closed loans without scanning the whole loan table
+CREATE INDEX idx_loan_status_return_date ON loan(status, return_date);
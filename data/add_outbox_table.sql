@@ -0,0 +1,16 @@
+-- Transactional outbox: events written in the same transaction as book/loan changes
+CREATE TABLE IF NOT EXISTS outbox_event (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    aggregate_type VARCHAR(50) NOT NULL,
+    aggregate_id VARCHAR(64) NOT NULL,
+    event_type VARCHAR(50) NOT NULL,
+    payload TEXT NOT NULL,
+    created_at DATETIME(6) NOT NULL
+);
+
+-- Delivery offset per sink (id of the last acknowledged event)
+CREATE TABLE IF NOT EXISTS outbox_offset (
+    sink_name VARCHAR(100) PRIMARY KEY,
+    last_event_id BIGINT NOT NULL,
+    updated_at DATETIME(6)
+);
@@ -0,0 +1,24 @@
+-- Migration: add optimistic-locking versions and last-modified timestamps
+-- Used for ETag / Last-Modified / If-Match handling on books, authors, users and loans
+
+USE librarydb;
+
+ALTER TABLE book
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN updated_at DATETIME(6) NULL,
+    ADD INDEX idx_book_updated_at (updated_at);
+
+ALTER TABLE author
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN updated_at DATETIME(6) NULL,
+    ADD INDEX idx_author_updated_at (updated_at);
+
+ALTER TABLE library_user
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN updated_at DATETIME(6) NULL,
+    ADD INDEX idx_user_updated_at (updated_at);
+
+ALTER TABLE loan
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN updated_at DATETIME(6) NULL,
+    ADD INDEX idx_loan_updated_at (updated_at);
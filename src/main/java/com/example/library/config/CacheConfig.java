@@ -0,0 +1,37 @@
+package com.example.library.config;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.io.IOException;
+
+/**
+ * JCache (Ehcache) manager backing the Hibernate second-level and query cache.
+ * Regions and their sizes are defined in {@code ehcache.xml}.
+ */
+@Configuration
+public class CacheConfig {
+
+    private static final String EHCACHE_PROVIDER = "org.ehcache.jsr107.EhcacheCachingProvider";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager jcacheManager() throws IOException {
+        CachingProvider provider = Caching.getCachingProvider(EHCACHE_PROVIDER);
+        ClassPathResource config = new ClassPathResource("ehcache.xml");
+        return provider.getCacheManager(config.getURI(), getClass().getClassLoader());
+    }
+
+    /**
+     * Hands the Spring-managed cache manager to Hibernate instead of letting it resolve its own.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheCustomizer(CacheManager jcacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, jcacheManager);
+    }
+}
@@ -50,10 +50,15 @@ public class SecurityConfig {
                         .requestMatchers("/api/users/login", "/api/users/register").permitAll()
                         .requestMatchers("/h2-console/**").permitAll()
 
+                        // Health checks for load balancers and orchestrators
+                        .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/health/**").permitAll()
+
                         // Swagger/OpenAPI endpoints - must be publicly accessible for API documentation
                         // These endpoints allow developers and users to view and test the API without authentication
                         .requestMatchers("/swagger-ui/**", "/swagger-ui.html").permitAll()
                         .requestMatchers("/v3/api-docs/**", "/v3/api-docs.yaml").permitAll()
+                        // Spec generated at build time by the startup profile
+                        .requestMatchers(org.springframework.http.HttpMethod.GET, "/openapi.json").permitAll()
 
                         // Admin-only endpoints
                         .requestMatchers("/api/admin/**").hasAuthority("ROLE_ADMIN")
@@ -61,6 +66,7 @@ public class SecurityConfig {
 
                         // Books endpoints - GET is public, other operations require authentication
                         .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/books", "/api/books/**").permitAll()
+                        .requestMatchers(org.springframework.http.HttpMethod.POST, "/api/books/lookup").permitAll()
                         .requestMatchers("/api/books/**").authenticated()
 
                         // Loan endpoints - all require authentication
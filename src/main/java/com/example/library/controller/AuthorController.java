@@ -1,20 +1,34 @@
 package com.example.library.controller;
 
+import com.example.library.dto.KeysetPage;
+import com.example.library.dto.MultiGetResponse;
+import com.example.library.dto.ResourceVersion;
+import com.example.library.exception.AuthorNotFoundException;
 import com.example.library.model.Author;
+import com.example.library.model.Book;
 import com.example.library.service.AuthorService;
+import com.example.library.service.CatalogReadModel;
+import com.example.library.service.CatalogSnapshot;
+import com.example.library.service.MultiGetService;
+import com.example.library.service.ResourceVersionService;
+import com.example.library.util.ConditionalRequests;
 import jakarta.validation.Valid;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/authors")
@@ -22,12 +36,21 @@ import java.util.List;
 public class AuthorController {
     private static final Logger logger = LoggerFactory.getLogger(AuthorController.class);
     private final AuthorService authorService;
+    private final ResourceVersionService versionService;
+    private final MultiGetService multiGetService;
+    private final CatalogReadModel readModel;
 
-    public AuthorController(AuthorService authorService) {
+    public AuthorController(AuthorService authorService, ResourceVersionService versionService,
+            MultiGetService multiGetService, CatalogReadModel readModel) {
         this.authorService = authorService;
+        this.versionService = versionService;
+        this.multiGetService = multiGetService;
+        this.readModel = readModel;
     }
 
-    // Get all authors with pagination and optional filters
+    // Get all authors with pagination and optional filters. Served from the in-memory read model for
+    // the sort keys it keeps; pass the Catalog-Snapshot header of the first page as ?snapshot= to page
+    // through the same snapshot.
     @GetMapping
     public ResponseEntity<Page<Author>> getAll(
             @RequestParam(required = false) String name,
@@ -35,15 +58,35 @@ public class AuthorController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "ASC") String sortDirection) {
+            @RequestParam(defaultValue = "ASC") String sortDirection,
+            @RequestParam(required = false) String snapshot,
+            WebRequest request) {
         logger.info("GET request: Fetching authors - name: {}, nationality: {}, page: {}, size: {}", 
                     name, nationality, page, size);
+        Optional<CatalogSnapshot> view = Optional.empty();
+        if (CatalogSnapshot.canSortAuthorsBy(sortBy)) {
+            try {
+                view = readModel.forPaging(snapshot);
+            } catch (CatalogReadModel.SnapshotExpiredException e) {
+                logger.warn("Catalogue snapshot expired: {}", snapshot);
+                throw new ResponseStatusException(HttpStatus.GONE, e.getMessage());
+            }
+        }
+
         try {
+            ResourceVersion version = view.isPresent() ? view.get().getAuthorsVersion() : versionService.getAuthorsVersion();
+            if (ConditionalRequests.checkNotModified(request, version)) {
+                logger.info("Authors not modified since last request");
+                return null;
+            }
+
             Sort.Direction direction = sortDirection.equalsIgnoreCase("DESC") ? Sort.Direction.DESC : Sort.Direction.ASC;
             Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
             Page<Author> authors;
 
-            if (name != null && !name.isEmpty()) {
+            if (view.isPresent()) {
+                authors = view.get().findAuthors(name, nationality, pageable);
+            } else if (name != null && !name.isEmpty()) {
                 authors = authorService.searchAuthorsByName(name, pageable);
             } else if (nationality != null && !nationality.isEmpty()) {
                 authors = authorService.getAuthorsByNationality(nationality, pageable);
@@ -53,16 +96,48 @@ public class AuthorController {
 
             logger.info("Successfully retrieved page {} with {} authors (total: {})", 
                         page, authors.getNumberOfElements(), authors.getTotalElements());
-            return ResponseEntity.ok(authors);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(version.getEtag());
+            view.ifPresent(current -> response.header(CatalogReadModel.SNAPSHOT_HEADER, current.getToken()));
+            return response.body(authors);
         } catch (Exception e) {
             logger.error("Error retrieving authors", e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to retrieve authors");
         }
     }
 
+    // Get several authors by ID in one request, e.g. ?ids=3,1,2 (results keep the requested order)
+    @GetMapping(params = "ids")
+    public ResponseEntity<MultiGetResponse<Author, Integer>> getMany(@RequestParam List<Integer> ids) {
+        logger.info("GET request: Fetching {} authors by ID", ids.size());
+        return multiGet(ids, 100);
+    }
+
+    // Same as GET ?ids= for long ID lists
+    @PostMapping("/lookup")
+    public ResponseEntity<MultiGetResponse<Author, Integer>> lookup(@RequestBody List<Integer> ids) {
+        logger.info("POST request: Looking up {} authors by ID", ids != null ? ids.size() : 0);
+        return multiGet(ids, 1000);
+    }
+
+    private ResponseEntity<MultiGetResponse<Author, Integer>> multiGet(List<Integer> ids, int max) {
+        if (ids == null || ids.isEmpty()) {
+            logger.warn("Author ID list is null or empty");
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Author ID list cannot be empty");
+        }
+        if (ids.size() > max) {
+            logger.warn("Multi-get request exceeded limit: {} authors", ids.size());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Maximum " + max + " authors can be fetched at once");
+        }
+        if (ids.stream().anyMatch(id -> id == null || id <= 0)) {
+            logger.warn("Invalid author ID in multi-get request: {}", ids);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid author ID");
+        }
+        return ResponseEntity.ok(multiGetService.load(Author.class, ids));
+    }
+
     // Get author by ID
     @GetMapping("/{id}")
-    public ResponseEntity<Author> getOne(@PathVariable Integer id) {
+    public ResponseEntity<Author> getOne(@PathVariable Integer id, WebRequest request) {
         logger.info("GET request: Fetching author with id: {}", id);
         try {
             if (id == null || id <= 0) {
@@ -70,13 +145,21 @@ public class AuthorController {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid author ID");
             }
 
-            Author author = authorService.getAuthorById(id)
+            // An author the read model does not have yet is read from the database
+            Optional<CatalogSnapshot> view = readModel.current().filter(current -> current.findAuthor(id).isPresent());
+            Optional<ResourceVersion> version = view.isPresent() ? view.get().getAuthorVersion(id) : versionService.getAuthorVersion(id);
+            if (version.isPresent() && ConditionalRequests.checkNotModified(request, version.get())) {
+                logger.info("Author with id {} not modified", id);
+                return null;
+            }
+
+            Author author = (view.isPresent() ? view.get().findAuthor(id) : authorService.getAuthorById(id))
                     .orElseThrow(() -> {
                         logger.warn("Author not found with id: {}", id);
                         return new ResponseStatusException(HttpStatus.NOT_FOUND, "Author not found");
                     });
             logger.info("Successfully retrieved author: {}", author.getFullName());
-            return ResponseEntity.ok(author);
+            return ConditionalRequests.ok(version).body(author);
         } catch (ResponseStatusException e) {
             throw e;
         } catch (Exception e) {
@@ -85,6 +168,44 @@ public class AuthorController {
         }
     }
 
+    // Books of an author, keyset paged by book id: pass the returned nextAfter as ?after= for the next page
+    @GetMapping("/{id}/books")
+    public ResponseEntity<KeysetPage<Book>> getBooks(@PathVariable Integer id,
+            @RequestParam(defaultValue = "0") int after,
+            @RequestParam(defaultValue = "20") int limit,
+            WebRequest request) {
+        logger.info("GET request: Fetching books of author {} - after: {}, limit: {}", id, after, limit);
+        try {
+            if (id == null || id <= 0) {
+                logger.warn("Invalid author ID: {}", id);
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid author ID");
+            }
+            if (after < 0 || limit < 1 || limit > 100) {
+                logger.warn("Invalid author books page - after: {}, limit: {}", after, limit);
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "after must be >= 0 and limit between 1 and 100");
+            }
+
+            ResourceVersion version = versionService.getBooksVersion();
+            if (ConditionalRequests.checkNotModified(request, version)) {
+                logger.info("Books of author {} not modified since last request", id);
+                return null;
+            }
+
+            KeysetPage<Book> books = authorService.getBooksByAuthor(id, after, limit);
+            logger.info("Successfully retrieved {} books of author {} (hasMore: {})",
+                    books.getItems().size(), id, books.isHasMore());
+            return ResponseEntity.ok().eTag(version.getEtag()).body(books);
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (AuthorNotFoundException e) {
+            logger.warn("Author not found with id: {}", id);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error retrieving books of author {}", id, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to retrieve books of author");
+        }
+    }
+
     // Create a new author
     @PostMapping
     public ResponseEntity<Author> create(@Valid @RequestBody Author author) {
@@ -134,7 +255,8 @@ public class AuthorController {
 
     // Update an author
     @PutMapping("/{id}")
-    public ResponseEntity<Author> update(@PathVariable Integer id, @Valid @RequestBody Author author) {
+    public ResponseEntity<Author> update(@PathVariable Integer id, @Valid @RequestBody Author author,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         logger.info("PUT request: Updating author with id: {}", id);
         try {
             if (id == null || id <= 0) {
@@ -147,11 +269,16 @@ public class AuthorController {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Author data is required");
             }
 
-            Author updatedAuthor = authorService.updateAuthor(id, author);
+            Long expectedVersion = ConditionalRequests.expectedVersion(ifMatch, versionService.getAuthorVersion(id));
+            Author updatedAuthor = authorService.updateAuthor(id, author, expectedVersion);
             logger.info("Successfully updated author with ID: {}", id);
-            return ResponseEntity.ok(updatedAuthor);
+            return ConditionalRequests.ok(versionService.getAuthorVersion(id)).body(updatedAuthor);
         } catch (ResponseStatusException e) {
             throw e;
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("Author with id {} was modified concurrently", id);
+            throw new ResponseStatusException(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT,
+                    "Author has been modified");
         } catch (RuntimeException e) {
             if (e.getMessage() != null && e.getMessage().contains("not found")) {
                 logger.warn("Author not found with id: {}", id);
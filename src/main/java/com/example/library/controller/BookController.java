@@ -1,20 +1,53 @@
 package com.example.library.controller;
 
+import com.example.library.dto.AuthorLinkRequest;
+import com.example.library.dto.AuthorLinkResult;
+import com.example.library.dto.BookBrowsePage;
+import com.example.library.dto.BookFacets;
+import com.example.library.dto.BookFilter;
+import com.example.library.dto.MultiGetResponse;
+import com.example.library.dto.RelatedBook;
+import com.example.library.dto.ResourceVersion;
+import com.example.library.dto.Suggestion;
 import com.example.library.model.Book;
+import com.example.library.model.BookContent;
+import com.example.library.repository.BookSpecifications;
+import com.example.library.service.BookAuthorLinkService;
+import com.example.library.service.BookAvailabilityFeed;
+import com.example.library.service.BookContentService;
+import com.example.library.service.BookFacetService;
 import com.example.library.service.BookService;
+import com.example.library.service.BookSuggestService;
+import com.example.library.service.CatalogReadModel;
+import com.example.library.service.CatalogSnapshot;
+import com.example.library.service.MultiGetService;
+import com.example.library.service.RelatedBooksService;
+import com.example.library.service.ResourceVersionService;
+import com.example.library.util.ConditionalRequests;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 
 
 @RestController
@@ -23,36 +56,244 @@ import java.util.List;
 public class BookController {
     private static final Logger logger = LoggerFactory.getLogger(BookController.class);
     private final BookService bookService;
+    private final BookAvailabilityFeed availabilityFeed;
+    private final RelatedBooksService relatedBooksService;
+    private final ResourceVersionService versionService;
+    private final MultiGetService multiGetService;
+    private final BookFacetService facetService;
+    private final BookSuggestService suggestService;
+    private final BookContentService contentService;
+    private final BookAuthorLinkService authorLinkService;
+    private final CatalogReadModel readModel;
 
-    public BookController(BookService bookService) {
+    public BookController(BookService bookService, BookAvailabilityFeed availabilityFeed,
+            RelatedBooksService relatedBooksService, ResourceVersionService versionService,
+            MultiGetService multiGetService, BookFacetService facetService, BookSuggestService suggestService,
+            BookContentService contentService, BookAuthorLinkService authorLinkService, CatalogReadModel readModel) {
         this.bookService = bookService;
+        this.availabilityFeed = availabilityFeed;
+        this.relatedBooksService = relatedBooksService;
+        this.versionService = versionService;
+        this.multiGetService = multiGetService;
+        this.facetService = facetService;
+        this.suggestService = suggestService;
+        this.contentService = contentService;
+        this.authorLinkService = authorLinkService;
+        this.readModel = readModel;
     }
 
-    // Get all books with pagination
+    // Get all books with pagination, optionally filtered by availability, year range, author or ISBN prefix.
+    // Served from the in-memory read model; pass the Catalog-Snapshot header of the first page as
+    // ?snapshot= to page through the same snapshot.
     @GetMapping
     public ResponseEntity<Page<Book>> getAll(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "ASC") String sortDirection) {
-        logger.info("GET request: Fetching books - page: {}, size: {}, sortBy: {}, direction: {}", 
-                    page, size, sortBy, sortDirection);
+            @RequestParam(defaultValue = "ASC") String sortDirection,
+            @RequestParam(required = false) Boolean available,
+            @RequestParam(required = false) Integer yearFrom,
+            @RequestParam(required = false) Integer yearTo,
+            @RequestParam(required = false) Integer authorId,
+            @RequestParam(required = false) String isbnPrefix,
+            @RequestParam(required = false) String snapshot,
+            WebRequest request) {
+        BookFilter filter = new BookFilter(available, yearFrom, yearTo, authorId, isbnPrefix);
+        logger.info("GET request: Fetching books - page: {}, size: {}, sortBy: {}, direction: {}, filter: {}", 
+                    page, size, sortBy, sortDirection, filter);
+        Sort sort = bookSort(sortBy, sortDirection, filter);
+        Optional<CatalogSnapshot> view = snapshotForPaging(snapshot);
+
         try {
-            Sort.Direction direction = sortDirection.equalsIgnoreCase("DESC") ? Sort.Direction.DESC : Sort.Direction.ASC;
-            Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
-            Page<Book> books = bookService.getAllBooks(pageable);
+            ResourceVersion version = view.isPresent() ? view.get().getBooksVersion() : versionService.getBooksVersion();
+            if (ConditionalRequests.checkNotModified(request, version)) {
+                logger.info("Books not modified since last request");
+                return null;
+            }
+
+            Pageable pageable = PageRequest.of(page, size, sort);
+            Page<Book> books = view.isPresent() ? view.get().findBooks(filter, pageable) : findBooks(filter, pageable);
             logger.info("Successfully retrieved page {} with {} books (total: {})", 
                         page, books.getNumberOfElements(), books.getTotalElements());
-            return ResponseEntity.ok(books);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(version.getEtag());
+            view.ifPresent(current -> response.header(CatalogReadModel.SNAPSHOT_HEADER, current.getToken()));
+            return response.body(books);
         } catch (Exception e) {
             logger.error("Error retrieving books", e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to retrieve books");
         }
     }
 
+    private Optional<CatalogSnapshot> snapshotForPaging(String token) {
+        try {
+            return readModel.forPaging(token);
+        } catch (CatalogReadModel.SnapshotExpiredException e) {
+            logger.warn("Catalogue snapshot expired: {}", token);
+            throw new ResponseStatusException(HttpStatus.GONE, e.getMessage());
+        }
+    }
+
+    // Same as GET /api/books plus catalogue facet counts, for browse pages
+    @GetMapping("/browse")
+    public ResponseEntity<BookBrowsePage> browse(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "ASC") String sortDirection,
+            @RequestParam(required = false) Boolean available,
+            @RequestParam(required = false) Integer yearFrom,
+            @RequestParam(required = false) Integer yearTo,
+            @RequestParam(required = false) Integer authorId,
+            @RequestParam(required = false) String isbnPrefix,
+            @RequestParam(defaultValue = "10") int facetLimit) {
+        BookFilter filter = new BookFilter(available, yearFrom, yearTo, authorId, isbnPrefix);
+        logger.info("GET request: Browsing books - page: {}, size: {}, sortBy: {}, direction: {}, filter: {}", 
+                    page, size, sortBy, sortDirection, filter);
+        Sort sort = bookSort(sortBy, sortDirection, filter);
+        if (facetLimit < 1 || facetLimit > 100) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "facetLimit must be between 1 and 100");
+        }
+
+        try {
+            Page<Book> books = findBooks(filter, PageRequest.of(page, size, sort));
+            return ResponseEntity.ok(new BookBrowsePage(books, facetService.getFacets(facetLimit)));
+        } catch (Exception e) {
+            logger.error("Error browsing books", e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to retrieve books");
+        }
+    }
+
+    /**
+     * Book counts by availability, publication decade, author and nationality across the catalogue.
+     * Served from in-memory counters, no database query per request.
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<BookFacets> getFacets(@RequestParam(defaultValue = "10") int limit) {
+        logger.info("GET request: Fetching book facets - limit: {}", limit);
+        if (limit < 1 || limit > 100) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and 100");
+        }
+        return ResponseEntity.ok(facetService.getFacets(limit));
+    }
+
+    /**
+     * Typeahead: book titles and author names with a word starting with the prefix, served from memory
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<Suggestion>> suggest(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        logger.debug("GET request: Suggestions for prefix: {}", prefix);
+        if (prefix.isBlank() || prefix.length() > 100) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Prefix must be between 1 and 100 characters");
+        }
+        if (limit < 1 || limit > 20) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and 20");
+        }
+        return ResponseEntity.ok(suggestService.suggest(prefix, limit));
+    }
+
+    private Sort bookSort(String sortBy, String sortDirection, BookFilter filter) {
+        if (filter.getYearFrom() != null && filter.getYearTo() != null && filter.getYearFrom() > filter.getYearTo()) {
+            logger.warn("Invalid publication year range: {} - {}", filter.getYearFrom(), filter.getYearTo());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "yearFrom must not be after yearTo");
+        }
+        try {
+            Sort.Direction direction = sortDirection.equalsIgnoreCase("DESC") ? Sort.Direction.DESC : Sort.Direction.ASC;
+            return BookSpecifications.sort(sortBy, direction);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected book sort key: {}", sortBy);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Invalid sortBy (allowed: " + String.join(", ", BookSpecifications.SORTABLE) + ")");
+        }
+    }
+
+    private Page<Book> findBooks(BookFilter filter, Pageable pageable) {
+        return filter.isEmpty() ? bookService.getAllBooks(pageable) : bookService.searchBooks(filter, pageable);
+    }
+
+    // Get several books by ID in one request, e.g. ?ids=3,1,2 (results keep the requested order)
+    @GetMapping(params = "ids")
+    public ResponseEntity<MultiGetResponse<Book, Integer>> getMany(@RequestParam List<Integer> ids) {
+        logger.info("GET request: Fetching {} books by ID", ids.size());
+        return multiGet(ids, 100);
+    }
+
+    // Same as GET ?ids= for long ID lists
+    @PostMapping("/lookup")
+    public ResponseEntity<MultiGetResponse<Book, Integer>> lookup(@RequestBody List<Integer> ids) {
+        logger.info("POST request: Looking up {} books by ID", ids != null ? ids.size() : 0);
+        return multiGet(ids, 1000);
+    }
+
+    private ResponseEntity<MultiGetResponse<Book, Integer>> multiGet(List<Integer> ids, int max) {
+        if (ids == null || ids.isEmpty()) {
+            logger.warn("Book ID list is null or empty");
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Book ID list cannot be empty");
+        }
+        if (ids.size() > max) {
+            logger.warn("Multi-get request exceeded limit: {} books", ids.size());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Maximum " + max + " books can be fetched at once");
+        }
+        if (ids.stream().anyMatch(id -> id == null || id <= 0)) {
+            logger.warn("Invalid book ID in multi-get request: {}", ids);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid book ID");
+        }
+        return ResponseEntity.ok(multiGetService.load(Book.class, ids));
+    }
+
+    /**
+     * Server-Sent Events stream of availability changes for the given books, or all books when no ids are given
+     */
+    @GetMapping(path = "/availability/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseBodyEmitter streamAvailability(@RequestParam(required = false) List<Integer> ids, HttpServletResponse response) {
+        logger.info("GET request: Subscribing to availability changes - books: {}", ids != null ? ids : "all");
+        if (ids != null && ids.size() > 500) {
+            logger.warn("Availability subscription exceeded limit: {} books", ids.size());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Maximum 500 book IDs can be subscribed at once");
+        }
+        return availabilityFeed.subscribe(ids != null ? new HashSet<>(ids) : new HashSet<>(), response);
+    }
+
+    /**
+     * Book text as UTF-8 plain text. Supports Range requests (e.g. {@code Range: bytes=0-4095})
+     * so readers can page through it; the ETag is the SHA-256 of the text.
+     */
+    @GetMapping("/{id}/content")
+    public ResponseEntity<Resource> getContent(@PathVariable Integer id, WebRequest request) {
+        logger.info("GET request: Fetching content of book with id: {}", id);
+        try {
+            if (id == null || id <= 0) {
+                logger.warn("Invalid book ID: {}", id);
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid book ID");
+            }
+
+            BookContent content = contentService.getContent(id)
+                    .orElseThrow(() -> {
+                        logger.warn("No content stored for book with id: {}", id);
+                        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Book content not found");
+                    });
+            String etag = "\"" + content.getSha256() + "\"";
+            if (request.checkNotModified(etag)) {
+                logger.info("Content of book {} not modified", id);
+                return null;
+            }
+            return ResponseEntity.ok()
+                    .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                    .eTag(etag)
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .body(new ByteArrayResource(contentService.decompress(content)));
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error retrieving content of book with id: {}", id, e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to retrieve book content");
+        }
+    }
+
     // get book by ID
     @GetMapping("/{id}")
-    public ResponseEntity<Book> getOne(@PathVariable Integer id) {
+    public ResponseEntity<Book> getOne(@PathVariable Integer id, WebRequest request) {
         logger.info("GET request: Fetching book with id: {}", id);
         try {
             if (id == null || id <= 0) {
@@ -60,13 +301,22 @@ public class BookController {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid book ID");
             }
 
-            Book book = bookService.getBookById(id)
+            // Revalidation is answered from the read model or the version columns, without loading the book.
+            // A book the read model does not have yet (e.g. just created on another node) is read from the database.
+            Optional<CatalogSnapshot> view = readModel.current().filter(current -> current.findBook(id).isPresent());
+            Optional<ResourceVersion> version = view.isPresent() ? view.get().getBookVersion(id) : versionService.getBookVersion(id);
+            if (version.isPresent() && ConditionalRequests.checkNotModified(request, version.get())) {
+                logger.info("Book with id {} not modified", id);
+                return null;
+            }
+
+            Book book = (view.isPresent() ? view.get().findBook(id) : bookService.getBookById(id))
                     .orElseThrow(() -> {
                         logger.warn("Book not found with id: {}", id);
                         return new ResponseStatusException(HttpStatus.NOT_FOUND, "Book not found");
                     });
             logger.info("Successfully retrieved book: {}", book.getTitle());
-            return ResponseEntity.ok(book);
+            return ConditionalRequests.ok(version).body(book);
         } catch (ResponseStatusException e) {
             throw e;
         } catch (Exception e) {
@@ -75,6 +325,23 @@ public class BookController {
         }
     }
 
+    // "Also borrowed" - books most often borrowed by readers of this book
+    @GetMapping("/{id}/related")
+    public ResponseEntity<List<RelatedBook>> getRelated(@PathVariable Integer id,
+            @RequestParam(defaultValue = "10") int limit) {
+        logger.info("GET request: Fetching books related to book with id: {}, limit: {}", id, limit);
+        if (id == null || id <= 0) {
+            logger.warn("Invalid book ID: {}", id);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid book ID");
+        }
+        try {
+            return ResponseEntity.ok(relatedBooksService.findRelated(id, limit));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid related books query: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
     // Create a new book
     @PostMapping
     public ResponseEntity<Book> create(@Valid @RequestBody Book book) {
@@ -128,9 +395,36 @@ public class BookController {
         }
     }
 
+    // Add and remove book/author links in bulk, e.g. {"add":[{"bookId":1,"authorId":2}],"remove":[...]}
+    @PostMapping("/author-links")
+    public ResponseEntity<AuthorLinkResult> linkAuthors(@RequestBody AuthorLinkRequest request) {
+        logger.info("POST request: Changing author links - add: {}, remove: {}",
+                request != null && request.getAdd() != null ? request.getAdd().size() : 0,
+                request != null && request.getRemove() != null ? request.getRemove().size() : 0);
+        try {
+            if (request == null) {
+                logger.warn("Author link request is null");
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Author link request is required");
+            }
+
+            AuthorLinkResult result = authorLinkService.apply(request);
+            logger.info("Successfully changed author links of {} books", result.getBooksUpdated());
+            return ResponseEntity.ok(result);
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid author link request: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error changing author links", e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to change author links");
+        }
+    }
+
     // Update an existing book
     @PutMapping("/{id}")
-    public ResponseEntity<Book> update(@PathVariable Integer id, @Valid @RequestBody Book updated) {
+    public ResponseEntity<Book> update(@PathVariable Integer id, @Valid @RequestBody Book updated,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         logger.info("PUT request: Updating book with id: {}", id);
         try {
             if (id == null || id <= 0) {
@@ -143,14 +437,22 @@ public class BookController {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Book data is required");
             }
 
-            Book savedBook = bookService.updateBook(id, updated);
+            Long expectedVersion = ConditionalRequests.expectedVersion(ifMatch, versionService.getBookVersion(id));
+            Book savedBook = bookService.updateBook(id, updated, expectedVersion);
             logger.info("Successfully updated book with id: {}", id);
-            return ResponseEntity.ok(savedBook);
+            return ConditionalRequests.ok(versionService.getBookVersion(id)).body(savedBook);
         } catch (ResponseStatusException e) {
             throw e;
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("Book with id {} was modified concurrently", id);
+            throw new ResponseStatusException(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT,
+                    "Book has been modified");
         } catch (IllegalArgumentException e) {
             logger.error("Book not found for update with id: {}", id, e);
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (IllegalStateException e) {
+            logger.warn("Rejected copy count for book with id {}: {}", id, e.getMessage());
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
         } catch (Exception e) {
             logger.error("Error updating book with id: {}", id, e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to update book");
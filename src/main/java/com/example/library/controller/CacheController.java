@@ -0,0 +1,49 @@
+package com.example.library.controller;
+
+import com.example.library.dto.CacheRegionStats;
+import com.example.library.service.CacheStatisticsService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/cache")
+@CrossOrigin(origins = "*")
+public class CacheController {
+    private static final Logger logger = LoggerFactory.getLogger(CacheController.class);
+    private final CacheStatisticsService cacheStatisticsService;
+
+    public CacheController(CacheStatisticsService cacheStatisticsService) {
+        this.cacheStatisticsService = cacheStatisticsService;
+    }
+
+    // Hit ratio per second-level cache region, plus query cache totals
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> stats() {
+        logger.info("GET request: Fetching cache statistics");
+        Map<String, Object> stats = new LinkedHashMap<>();
+        List<CacheRegionStats> regions = cacheStatisticsService.getRegionStats();
+        stats.put("regions", regions);
+        stats.put("queryCache", cacheStatisticsService.getQueryCacheStats());
+        return ResponseEntity.ok(stats);
+    }
+
+    @DeleteMapping("/{region}")
+    public ResponseEntity<Void> evict(@PathVariable String region) {
+        logger.info("DELETE request: Evicting cache region {}", region);
+        try {
+            cacheStatisticsService.evictRegion(region);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            logger.warn("Cache region not found: {}", region);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.library.controller;
+
+import com.example.library.service.WarmUpService;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.LivenessState;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/health")
+@CrossOrigin(origins = "*")
+public class HealthController {
+    private static final Logger logger = LoggerFactory.getLogger(HealthController.class);
+    private final ApplicationAvailability availability;
+    private final WarmUpService warmUpService;
+
+    public HealthController(ApplicationAvailability availability, WarmUpService warmUpService) {
+        this.availability = availability;
+        this.warmUpService = warmUpService;
+    }
+
+    /**
+     * 200 once the node has started and finished warming up, 503 before; for load balancer health checks
+     */
+    @GetMapping("/readiness")
+    public ResponseEntity<Map<String, Object>> readiness() {
+        ReadinessState state = availability.getReadinessState();
+        logger.debug("GET request: Readiness check - {}", state);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", state);
+        body.put("warmUp", warmUpService.getReport());
+        HttpStatus status = state == ReadinessState.ACCEPTING_TRAFFIC ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE;
+        return ResponseEntity.status(status).body(body);
+    }
+
+    // 200 while the application is running correctly; a failing liveness check means restart the node
+    @GetMapping("/liveness")
+    public ResponseEntity<Map<String, Object>> liveness() {
+        LivenessState state = availability.getLivenessState();
+        logger.debug("GET request: Liveness check - {}", state);
+        HttpStatus status = state == LivenessState.CORRECT ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE;
+        return ResponseEntity.status(status).body(Map.of("status", state));
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.library.controller;
+
+import com.example.library.service.LoanArchiveService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/loans")
+@CrossOrigin(origins = "*")
+public class LoanArchiveController {
+    private static final Logger logger = LoggerFactory.getLogger(LoanArchiveController.class);
+    private final LoanArchiveService loanArchiveService;
+
+    public LoanArchiveController(LoanArchiveService loanArchiveService) {
+        this.loanArchiveService = loanArchiveService;
+    }
+
+    /**
+     * Runs the loan archival job immediately instead of waiting for the schedule
+     */
+    @PostMapping("/archive")
+    public ResponseEntity<Map<String, Integer>> archive() {
+        logger.info("POST request: Admin triggered loan archival");
+        try {
+            int archived = loanArchiveService.archiveClosedLoans();
+            logger.info("Loan archival finished - archived: {}", archived);
+            return ResponseEntity.ok(Map.of("archived", archived));
+        } catch (Exception e) {
+            logger.error("Error archiving loans", e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to archive loans");
+        }
+    }
+}
@@ -4,53 +4,100 @@ import com.example.library.model.Loan;
 import com.example.library.model.Book;
 import com.example.library.model.User;
 import com.example.library.dto.BorrowLoanRequest;
+import com.example.library.dto.LoanView;
+import com.example.library.dto.ResourceVersion;
+import com.example.library.event.BookEvent;
+import com.example.library.event.LibraryEventType;
+import com.example.library.event.LoanEvent;
+import com.example.library.event.OutboxService;
 import com.example.library.repository.LoanRepository;
 import com.example.library.repository.BookRepository;
+import com.example.library.repository.UserRepository;
+import com.example.library.service.BookInventoryService;
+import com.example.library.service.LoanArchiveService;
+import com.example.library.service.ResourceVersionService;
+import com.example.library.util.ConditionalRequests;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/loans")
 @CrossOrigin(origins = "*")
 public class LoanController {
     private static final Logger logger = LoggerFactory.getLogger(LoanController.class);
+    private static final Set<String> EXPANDABLE = Set.of("user", "book");
     private final LoanRepository loanRepo;
     private final BookRepository bookRepo;
-
-    public LoanController(LoanRepository loanRepo, BookRepository bookRepo) {
+    private final UserRepository userRepo;
+    private final OutboxService outboxService;
+    private final LoanArchiveService loanArchiveService;
+    private final ResourceVersionService versionService;
+    private final BookInventoryService inventoryService;
+
+    public LoanController(LoanRepository loanRepo, BookRepository bookRepo, UserRepository userRepo,
+            OutboxService outboxService, LoanArchiveService loanArchiveService, ResourceVersionService versionService,
+            BookInventoryService inventoryService) {
         this.loanRepo = loanRepo;
         this.bookRepo = bookRepo;
+        this.userRepo = userRepo;
+        this.outboxService = outboxService;
+        this.loanArchiveService = loanArchiveService;
+        this.versionService = versionService;
+        this.inventoryService = inventoryService;
     }
 
-    // Get all loans with pagination (admin only)
+    // Get all loans with pagination (admin only), optionally including archived loans
     @GetMapping
     @PreAuthorize("hasRole('ROLE_ADMIN')")
-    public ResponseEntity<Page<Loan>> all(
+    public ResponseEntity<Page<LoanView>> all(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "DESC") String sortDirection) {
-        logger.info("GET request: Admin fetching loans - page: {}, size: {}, sortBy: {}, direction: {}", 
-                    page, size, sortBy, sortDirection);
+            @RequestParam(defaultValue = "DESC") String sortDirection,
+            @RequestParam(defaultValue = "false") boolean includeArchived,
+            @RequestParam(required = false) List<String> expand,
+            WebRequest request) {
+        logger.info("GET request: Admin fetching loans - page: {}, size: {}, sortBy: {}, direction: {}, includeArchived: {}", 
+                    page, size, sortBy, sortDirection, includeArchived);
         try {
+            Set<String> expanded = expansions(expand);
+            ResourceVersion version = versionService.getLoansVersion();
+            if (ConditionalRequests.checkNotModified(request, version)) {
+                logger.info("Loans not modified since last request");
+                return null;
+            }
+
             Sort.Direction direction = sortDirection.equalsIgnoreCase("DESC") ? Sort.Direction.DESC : Sort.Direction.ASC;
             Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
-            Page<Loan> loans = loanRepo.findAll(pageable);
+            Page<LoanView> loans = loanArchiveService.findLoans(pageable, includeArchived);
+            loanArchiveService.expand(loans.getContent(), expanded.contains("user"), expanded.contains("book"));
             logger.info("Successfully retrieved page {} with {} loans (total: {})", 
                         page, loans.getNumberOfElements(), loans.getTotalElements());
-            return ResponseEntity.ok(loans);
+            return ResponseEntity.ok().eTag(version.getEtag()).body(loans);
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid loan query: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         } catch (Exception e) {
             logger.error("Error retrieving loans", e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to retrieve loans");
@@ -58,14 +105,17 @@ public class LoanController {
     }
 
     /**
-     * Borrow a book - creates a new loan and marks book as unavailable
+     * Borrow a book - creates a new loan and takes one copy of the book off the shelf
      */
     @PostMapping("/borrow")
-    public ResponseEntity<Loan> borrow(@Valid @RequestBody BorrowLoanRequest borrowRequest) {
+    @Transactional
+    public ResponseEntity<LoanView> borrow(@Valid @RequestBody BorrowLoanRequest borrowRequest,
+            @RequestParam(required = false) List<String> expand) {
         logger.info("POST request: Borrowing book - User: {}, Book: {}",
                 borrowRequest != null ? borrowRequest.getUserId() : null,
                 borrowRequest != null ? borrowRequest.getBookId() : null);
         try {
+            Set<String> expanded = expansions(expand);
             if (borrowRequest == null) {
                 logger.warn("Borrow request is null");
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Borrow request is required");
@@ -87,17 +137,18 @@ public class LoanController {
                         return new ResponseStatusException(HttpStatus.NOT_FOUND, "Book not found");
                     });
 
-            if (!book.isAvailable()) {
+            if (!inventoryService.takeCopy(book)) {
                 logger.warn("Book not available for borrowing: {} (ID: {})", book.getTitle(), book.getId());
                 throw new ResponseStatusException(HttpStatus.CONFLICT, "Book is not available");
             }
 
-            book.setAvailable(false);
-            bookRepo.save(book);
+            User user = userRepo.findById(borrowRequest.getUserId())
+                    .orElseThrow(() -> {
+                        logger.warn("User not found for borrowing: {}", borrowRequest.getUserId());
+                        return new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
+                    });
 
             Loan loan = new Loan();
-            User user = new User();
-            user.setUid(borrowRequest.getUserId());
 
             loan.setUser(user);
             loan.setBook(book);
@@ -106,9 +157,11 @@ public class LoanController {
             loan.setReturnDate(null);
 
             Loan savedLoan = loanRepo.save(loan);
+            outboxService.record(LoanEvent.of(LibraryEventType.LOAN_BORROWED, savedLoan, null));
+            outboxService.record(BookEvent.of(LibraryEventType.BOOK_AVAILABILITY_CHANGED, book));
             logger.info("Book borrowed successfully - Loan ID: {}, User: {}, Book: {}",
                     savedLoan.getId(), borrowRequest.getUserId(), book.getTitle());
-            return new ResponseEntity<>(savedLoan, HttpStatus.CREATED);
+            return new ResponseEntity<>(view(savedLoan, expanded), HttpStatus.CREATED);
         } catch (ResponseStatusException e) {
             throw e;
         } catch (Exception e) {
@@ -118,12 +171,15 @@ public class LoanController {
     }
 
     /**
-     * Return a loan - marks loan as returned and makes book available
+     * Return a loan - marks loan as returned and puts the copy back on the shelf
      */
     @PostMapping("/return/{id}")
-    public ResponseEntity<Loan> returnLoan(@PathVariable Integer id) {
+    @Transactional
+    public ResponseEntity<LoanView> returnLoan(@PathVariable Integer id,
+            @RequestParam(required = false) List<String> expand) {
         logger.info("POST request: Returning loan with id: {}", id);
         try {
+            Set<String> expanded = expansions(expand);
             if (id == null || id <= 0) {
                 logger.warn("Invalid loan ID for return: {}", id);
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid loan ID");
@@ -139,19 +195,22 @@ public class LoanController {
                 throw new ResponseStatusException(HttpStatus.CONFLICT, "Loan is already returned");
             }
 
+            String previousStatus = loan.getStatus();
             loan.setReturnDate(LocalDate.now());
             loan.setStatus("RETURNED");
 
             Book book = loan.getBook();
-            if (book != null) {
-                book.setAvailable(true);
-                bookRepo.save(book);
-            }
+            boolean copyReturned = book != null && inventoryService.returnCopy(book);
 
-            Loan savedLoan = loanRepo.save(loan);
+            // Flushed so the returned view carries the new version
+            Loan savedLoan = loanRepo.saveAndFlush(loan);
+            outboxService.record(LoanEvent.of(LibraryEventType.LOAN_RETURNED, savedLoan, previousStatus));
+            if (copyReturned) {
+                outboxService.record(BookEvent.of(LibraryEventType.BOOK_AVAILABILITY_CHANGED, book));
+            }
             logger.info("Loan returned successfully - Loan ID: {}, Book: {}", id,
                     book != null ? book.getTitle() : "unknown");
-            return ResponseEntity.ok(savedLoan);
+            return ResponseEntity.ok(view(savedLoan, expanded));
         } catch (ResponseStatusException e) {
             throw e;
         } catch (Exception e) {
@@ -160,23 +219,35 @@ public class LoanController {
         }
     }
 
-    // GET loan by ID
+    // GET loan by ID, optionally looking into archived loans
     @GetMapping("/{id}")
-    public ResponseEntity<Loan> getOne(@PathVariable Integer id) {
+    public ResponseEntity<LoanView> getOne(@PathVariable Integer id,
+            @RequestParam(defaultValue = "false") boolean includeArchived,
+            @RequestParam(required = false) List<String> expand,
+            WebRequest request) {
         logger.info("GET request: Fetching loan with id: {}", id);
         try {
+            Set<String> expanded = expansions(expand);
             if (id == null || id <= 0) {
                 logger.warn("Invalid loan ID: {}", id);
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid loan ID");
             }
 
-            Loan loan = loanRepo.findById(id)
+            // Archived loans carry no version and are always sent in full
+            Optional<ResourceVersion> version = versionService.getLoanVersion(id);
+            if (version.isPresent() && ConditionalRequests.checkNotModified(request, version.get())) {
+                logger.info("Loan with id {} not modified", id);
+                return null;
+            }
+
+            LoanView loan = loanArchiveService.findLoan(id, includeArchived)
                     .orElseThrow(() -> {
                         logger.warn("Loan not found with id: {}", id);
                         return new ResponseStatusException(HttpStatus.NOT_FOUND, "Loan not found");
                     });
+            loanArchiveService.expand(List.of(loan), expanded.contains("user"), expanded.contains("book"));
             logger.info("Successfully retrieved loan with id: {}", id);
-            return ResponseEntity.ok(loan);
+            return ConditionalRequests.ok(version).body(loan);
         } catch (ResponseStatusException e) {
             throw e;
         } catch (Exception e) {
@@ -185,11 +256,15 @@ public class LoanController {
         }
     }
 
-    // PUT update loan (updates dates/status). Adjusts book availability when status
-    // changes.
+    // PUT update loan (updates dates/status). Takes or returns a copy of the book when the
+    // loan starts or stops holding one.
     @PutMapping("/{id}")
-    public ResponseEntity<Loan> update(@PathVariable Integer id, @Valid @RequestBody Loan updated) {
+    @Transactional
+    public ResponseEntity<LoanView> update(@PathVariable Integer id, @Valid @RequestBody Loan updated,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestParam(required = false) List<String> expand) {
         try {
+            Set<String> expanded = expansions(expand);
             if (id == null || id <= 0) {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid loan ID");
             }
@@ -197,8 +272,12 @@ public class LoanController {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Loan data is required");
             }
 
+            Long expectedVersion = ConditionalRequests.expectedVersion(ifMatch, versionService.getLoanVersion(id));
             Loan loan = loanRepo.findById(id)
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Loan not found"));
+            if (expectedVersion != null && loan.getVersion() != expectedVersion) {
+                throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Loan has been modified");
+            }
 
             String previousStatus = loan.getStatus();
 
@@ -214,24 +293,28 @@ public class LoanController {
                 loan.setStatus(updated.getStatus());
             }
 
-            if (previousStatus != null && !previousStatus.equals(updated.getStatus())) {
+            boolean copyChanged = false;
+            if (holdsCopy(previousStatus) != holdsCopy(loan.getStatus())) {
                 Book book = loan.getBook();
                 if (book == null) {
                     throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Associated book not found");
                 }
-                if ("RETURNED".equalsIgnoreCase(updated.getStatus())) {
-                    book.setAvailable(true);
-                    bookRepo.save(book);
-                } else if ("ACTIVE".equalsIgnoreCase(updated.getStatus())) {
-                    if (book.isAvailable()) {
-                        book.setAvailable(false);
-                        bookRepo.save(book);
+                if (holdsCopy(loan.getStatus())) {
+                    if (!inventoryService.takeCopy(book)) {
+                        throw new ResponseStatusException(HttpStatus.CONFLICT, "Book is not available");
                     }
+                    copyChanged = true;
+                } else {
+                    copyChanged = inventoryService.returnCopy(book);
                 }
             }
 
             Loan saved = loanRepo.save(loan);
-            return ResponseEntity.ok(saved);
+            outboxService.record(LoanEvent.of(LibraryEventType.LOAN_UPDATED, saved, previousStatus));
+            if (copyChanged) {
+                outboxService.record(BookEvent.of(LibraryEventType.BOOK_AVAILABILITY_CHANGED, saved.getBook()));
+            }
+            return ConditionalRequests.ok(versionService.getLoanVersion(id)).body(view(saved, expanded));
         } catch (ResponseStatusException e) {
             throw e;
         } catch (Exception e) {
@@ -240,6 +323,7 @@ public class LoanController {
     }
 
     @DeleteMapping("/{id}")
+    @Transactional
     public ResponseEntity<Void> delete(@PathVariable Integer id) {
         try {
             if (id == null || id <= 0) {
@@ -249,15 +333,13 @@ public class LoanController {
             Loan loan = loanRepo.findById(id)
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Loan not found"));
 
-            if (loan.getStatus() != null && loan.getStatus().equalsIgnoreCase("ACTIVE")) {
-                Book book = loan.getBook();
-                if (book != null) {
-                    book.setAvailable(true);
-                    bookRepo.save(book);
-                }
+            Book book = loan.getBook();
+            if (holdsCopy(loan.getStatus()) && book != null && inventoryService.returnCopy(book)) {
+                outboxService.record(BookEvent.of(LibraryEventType.BOOK_AVAILABILITY_CHANGED, book));
             }
 
             loanRepo.deleteById(id);
+            outboxService.record(LoanEvent.of(LibraryEventType.LOAN_DELETED, loan, loan.getStatus()));
             return ResponseEntity.noContent().build();
         } catch (ResponseStatusException e) {
             throw e;
@@ -265,4 +347,41 @@ public class LoanController {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to delete loan");
         }
     }
+
+    // Validated ?expand= values; accepts both expand=user,book and repeated parameters
+    private static Set<String> expansions(List<String> expand) {
+        if (expand == null) {
+            return Set.of();
+        }
+        Set<String> expanded = new HashSet<>();
+        for (String value : expand) {
+            String name = value.trim().toLowerCase();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!EXPANDABLE.contains(name)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Unknown expand value '" + value + "', use user and/or book");
+            }
+            expanded.add(name);
+        }
+        return expanded;
+    }
+
+    // A loan holds a copy of its book from borrowing until it is returned
+    private static boolean holdsCopy(String status) {
+        return status != null && !"RETURNED".equalsIgnoreCase(status);
+    }
+
+    // Loan just written in this request; user and book are already loaded
+    private static LoanView view(Loan loan, Set<String> expanded) {
+        LoanView view = LoanView.of(loan);
+        if (expanded.contains("user")) {
+            view.setUser(loan.getUser());
+        }
+        if (expanded.contains("book")) {
+            view.setBook(loan.getBook());
+        }
+        return view;
+    }
 }
@@ -0,0 +1,47 @@
+package com.example.library.controller;
+
+import com.example.library.service.CatalogReadModel;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/read-model")
+@CrossOrigin(origins = "*")
+public class ReadModelController {
+    private static final Logger logger = LoggerFactory.getLogger(ReadModelController.class);
+    private final CatalogReadModel readModel;
+
+    public ReadModelController(CatalogReadModel readModel) {
+        this.readModel = readModel;
+    }
+
+    // State of the in-memory catalogue read model: current snapshot, size and pending changes
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> describe() {
+        logger.info("GET request: Fetching catalogue read model state");
+        return ResponseEntity.ok(readModel.describe());
+    }
+
+    /**
+     * Reloads the read model from the database, e.g. after changing rows with SQL
+     */
+    @PostMapping("/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuild() {
+        logger.info("POST request: Admin triggered rebuild of catalogue read model");
+        try {
+            return ResponseEntity.ok(readModel.rebuild());
+        } catch (IllegalStateException e) {
+            logger.warn("Catalogue read model rebuild rejected: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error rebuilding catalogue read model", e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to rebuild catalogue read model");
+        }
+    }
+}
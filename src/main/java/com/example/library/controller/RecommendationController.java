@@ -0,0 +1,37 @@
+package com.example.library.controller;
+
+import com.example.library.service.RelatedBooksService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/recommendations")
+@CrossOrigin(origins = "*")
+public class RecommendationController {
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationController.class);
+    private final RelatedBooksService relatedBooksService;
+
+    public RecommendationController(RelatedBooksService relatedBooksService) {
+        this.relatedBooksService = relatedBooksService;
+    }
+
+    /**
+     * Rebuilds the "also borrowed" matrix from the full loan history
+     */
+    @PostMapping("/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuild() {
+        logger.info("POST request: Admin triggered rebuild of related books");
+        try {
+            return ResponseEntity.ok(relatedBooksService.rebuild());
+        } catch (Exception e) {
+            logger.error("Error rebuilding related books", e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to rebuild related books");
+        }
+    }
+}
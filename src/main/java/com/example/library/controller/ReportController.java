@@ -0,0 +1,74 @@
+package com.example.library.controller;
+
+import com.example.library.dto.StatEntry;
+import com.example.library.service.LoanAnalyticsService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/reports")
+@CrossOrigin(origins = "*")
+public class ReportController {
+    private static final Logger logger = LoggerFactory.getLogger(ReportController.class);
+    private final LoanAnalyticsService analyticsService;
+
+    public ReportController(LoanAnalyticsService analyticsService) {
+        this.analyticsService = analyticsService;
+    }
+
+    /**
+     * Loan counts grouped by month, city, decade or status, e.g.
+     * {@code /api/admin/reports/loans?groupBy=city&decade=1990&from=2024-01&to=2024-12}
+     */
+    @GetMapping("/loans")
+    public ResponseEntity<List<StatEntry>> loans(
+            @RequestParam(defaultValue = "month") String groupBy,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) Integer decade,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        logger.info("GET request: Loan report - groupBy: {}, status: {}, city: {}, decade: {}, from: {}, to: {}",
+                groupBy, status, city, decade, from, to);
+        try {
+            LoanAnalyticsService.Dimension dimension = LoanAnalyticsService.Dimension.valueOf(groupBy.toUpperCase(Locale.ROOT));
+            return ResponseEntity.ok(analyticsService.report(dimension, status, city, decade,
+                    from != null ? YearMonth.parse(from) : null, to != null ? YearMonth.parse(to) : null));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            logger.warn("Invalid report query: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Invalid report query (groupBy: month, city, decade or status; months as yyyy-MM)");
+        }
+    }
+
+    // Size and age of the analytics snapshot
+    @GetMapping("/snapshot")
+    public ResponseEntity<Map<String, Object>> snapshot() {
+        logger.info("GET request: Fetching analytics snapshot info");
+        return ResponseEntity.ok(analyticsService.describe());
+    }
+
+    /**
+     * Rebuilds the analytics snapshot from the database
+     */
+    @PostMapping("/snapshot/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuild() {
+        logger.info("POST request: Admin triggered rebuild of analytics snapshot");
+        try {
+            return ResponseEntity.ok(analyticsService.rebuild());
+        } catch (Exception e) {
+            logger.error("Error rebuilding analytics snapshot", e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to rebuild analytics snapshot");
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.library.controller;
+
+import com.example.library.dto.CirculationSummary;
+import com.example.library.dto.StatEntry;
+import com.example.library.model.StatDimension;
+import com.example.library.service.CirculationStatisticsService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/stats")
+@CrossOrigin(origins = "*")
+public class StatisticsController {
+    private static final Logger logger = LoggerFactory.getLogger(StatisticsController.class);
+    private final CirculationStatisticsService statisticsService;
+
+    public StatisticsController(CirculationStatisticsService statisticsService) {
+        this.statisticsService = statisticsService;
+    }
+
+    // Active and total loan counts
+    @GetMapping("/summary")
+    public ResponseEntity<CirculationSummary> summary() {
+        logger.info("GET request: Fetching circulation summary");
+        return ResponseEntity.ok(statisticsService.getSummary());
+    }
+
+    // Most borrowed books
+    @GetMapping("/books/top")
+    public ResponseEntity<List<StatEntry>> topBooks(@RequestParam(defaultValue = "10") int limit) {
+        return top(StatDimension.BOOK, limit);
+    }
+
+    // Most borrowed authors
+    @GetMapping("/authors/top")
+    public ResponseEntity<List<StatEntry>> topAuthors(@RequestParam(defaultValue = "10") int limit) {
+        return top(StatDimension.AUTHOR, limit);
+    }
+
+    // Cities with the most loans (by borrower's city)
+    @GetMapping("/cities/top")
+    public ResponseEntity<List<StatEntry>> topCities(@RequestParam(defaultValue = "10") int limit) {
+        return top(StatDimension.CITY, limit);
+    }
+
+    // Loans per month
+    @GetMapping("/months")
+    public ResponseEntity<List<StatEntry>> months() {
+        logger.info("GET request: Fetching loans per month");
+        return ResponseEntity.ok(statisticsService.getMonthly());
+    }
+
+    // Loan count of a single book
+    @GetMapping("/books/{id}")
+    public ResponseEntity<StatEntry> book(@PathVariable Integer id) {
+        logger.info("GET request: Fetching loan count for book with id: {}", id);
+        if (id == null || id <= 0) {
+            logger.warn("Invalid book ID: {}", id);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid book ID");
+        }
+        String key = id.toString();
+        return ResponseEntity.ok(new StatEntry(key, key, statisticsService.getCount(StatDimension.BOOK, key)));
+    }
+
+    private ResponseEntity<List<StatEntry>> top(StatDimension dimension, int limit) {
+        logger.info("GET request: Fetching top {} by loans - limit: {}", dimension, limit);
+        try {
+            return ResponseEntity.ok(statisticsService.getTop(dimension, limit));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid statistics query: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
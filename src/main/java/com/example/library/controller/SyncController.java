@@ -0,0 +1,51 @@
+package com.example.library.controller;
+
+import com.example.library.dto.SyncBatch;
+import com.example.library.service.CatalogSyncService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@RestController
+@RequestMapping("/api/sync")
+@CrossOrigin(origins = "*")
+public class SyncController {
+    private static final Logger logger = LoggerFactory.getLogger(SyncController.class);
+    private final CatalogSyncService catalogSyncService;
+
+    public SyncController(CatalogSyncService catalogSyncService) {
+        this.catalogSyncService = catalogSyncService;
+    }
+
+    /**
+     * Book and author changes since the given sync token (omit for a full initial sync).
+     * Call repeatedly with the returned nextToken while hasMore is true.
+     */
+    @GetMapping("/books")
+    public ResponseEntity<SyncBatch> books(
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "500") int limit) {
+        logger.info("GET request: Catalogue sync - since: {}, limit: {}", since, limit);
+        long sinceSeq;
+        try {
+            sinceSeq = since == null || since.isBlank() ? 0 : Long.parseLong(since);
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid sync token: {}", since);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid sync token");
+        }
+        if (sinceSeq < 0) {
+            logger.warn("Invalid sync token: {}", since);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid sync token");
+        }
+
+        try {
+            return ResponseEntity.ok(catalogSyncService.getChanges(sinceSeq, limit));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid sync query: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
@@ -4,13 +4,21 @@ import com.example.library.model.User;
 import com.example.library.repository.UserRepository;
 import com.example.library.dto.LoginRequest;
 import com.example.library.dto.LoginResponse;
+import com.example.library.dto.MultiGetResponse;
+import com.example.library.dto.ResourceVersion;
+import com.example.library.service.MultiGetService;
+import com.example.library.service.ResourceVersionService;
+import com.example.library.util.ConditionalRequests;
 import com.example.library.util.JwtUtil;
 import jakarta.validation.Valid;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -18,6 +26,7 @@ import org.springframework.web.server.ResponseStatusException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
 import java.util.Optional;
 
 @RestController
@@ -28,11 +37,16 @@ public class UserController {
     private final UserRepository repo;
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
+    private final ResourceVersionService versionService;
+    private final MultiGetService multiGetService;
 
-    public UserController(UserRepository repo, PasswordEncoder passwordEncoder, JwtUtil jwtUtil) {
+    public UserController(UserRepository repo, PasswordEncoder passwordEncoder, JwtUtil jwtUtil,
+            ResourceVersionService versionService, MultiGetService multiGetService) {
         this.repo = repo;
         this.passwordEncoder = passwordEncoder;
         this.jwtUtil = jwtUtil;
+        this.versionService = versionService;
+        this.multiGetService = multiGetService;
     }
 
     // Get all users with pagination
@@ -41,22 +55,59 @@ public class UserController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "ASC") String sortDirection) {
+            @RequestParam(defaultValue = "ASC") String sortDirection,
+            WebRequest request) {
         logger.info("GET request: Fetching users - page: {}, size: {}, sortBy: {}, direction: {}", 
                     page, size, sortBy, sortDirection);
         try {
+            ResourceVersion version = versionService.getUsersVersion();
+            if (ConditionalRequests.checkNotModified(request, version)) {
+                logger.info("Users not modified since last request");
+                return null;
+            }
+
             Sort.Direction direction = sortDirection.equalsIgnoreCase("DESC") ? Sort.Direction.DESC : Sort.Direction.ASC;
             Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
             Page<User> users = repo.findAll(pageable);
             logger.info("Successfully retrieved page {} with {} users (total: {})", 
                         page, users.getNumberOfElements(), users.getTotalElements());
-            return ResponseEntity.ok(users);
+            return ResponseEntity.ok().eTag(version.getEtag()).body(users);
         } catch (Exception e) {
             logger.error("Error retrieving users", e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to retrieve users");
         }
     }
 
+    // Get several users by ID in one request, e.g. ?ids=3,1,2 (results keep the requested order)
+    @GetMapping(params = "ids")
+    public ResponseEntity<MultiGetResponse<User, String>> getMany(@RequestParam List<String> ids) {
+        logger.info("GET request: Fetching {} users by ID", ids.size());
+        return multiGet(ids, 100);
+    }
+
+    // Same as GET ?ids= for long ID lists
+    @PostMapping("/lookup")
+    public ResponseEntity<MultiGetResponse<User, String>> lookup(@RequestBody List<String> ids) {
+        logger.info("POST request: Looking up {} users by ID", ids != null ? ids.size() : 0);
+        return multiGet(ids, 1000);
+    }
+
+    private ResponseEntity<MultiGetResponse<User, String>> multiGet(List<String> ids, int max) {
+        if (ids == null || ids.isEmpty()) {
+            logger.warn("User ID list is null or empty");
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "User ID list cannot be empty");
+        }
+        if (ids.size() > max) {
+            logger.warn("Multi-get request exceeded limit: {} users", ids.size());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Maximum " + max + " users can be fetched at once");
+        }
+        if (ids.stream().anyMatch(id -> id == null || id.isBlank())) {
+            logger.warn("Invalid user ID in multi-get request: {}", ids);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid user ID");
+        }
+        return ResponseEntity.ok(multiGetService.load(User.class, ids));
+    }
+
     // Create user
     @PostMapping
     public ResponseEntity<User> create(@Valid @RequestBody User user) {
@@ -181,7 +232,7 @@ public class UserController {
 
     // GET user by ID
     @GetMapping("/{uid}")
-    public ResponseEntity<User> getOne(@PathVariable String uid) {
+    public ResponseEntity<User> getOne(@PathVariable String uid, WebRequest request) {
         logger.info("GET request: Fetching user with uid: {}", uid);
         try {
             if (uid == null || uid.isBlank()) {
@@ -189,13 +240,19 @@ public class UserController {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid user UID");
             }
 
+            Optional<ResourceVersion> version = versionService.getUserVersion(uid);
+            if (version.isPresent() && ConditionalRequests.checkNotModified(request, version.get())) {
+                logger.info("User with uid {} not modified", uid);
+                return null;
+            }
+
             User user = repo.findById(uid)
                     .orElseThrow(() -> {
                         logger.warn("User not found with uid: {}", uid);
                         return new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
                     });
             logger.info("Successfully retrieved user: {} (UID: {})", user.getEmail(), user.getUid());
-            return ResponseEntity.ok(user);
+            return ConditionalRequests.ok(version).body(user);
         } catch (ResponseStatusException e) {
             throw e;
         } catch (Exception e) {
@@ -206,7 +263,8 @@ public class UserController {
 
     // update user
     @PutMapping("/{uid}")
-    public ResponseEntity<User> update(@PathVariable String uid, @Valid @RequestBody User updated) {
+    public ResponseEntity<User> update(@PathVariable String uid, @Valid @RequestBody User updated,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         logger.info("PUT request: Updating user with uid: {}", uid);
         try {
             if (uid == null || uid.isBlank()) {
@@ -214,11 +272,16 @@ public class UserController {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid user UID");
             }
 
+            Long expectedVersion = ConditionalRequests.expectedVersion(ifMatch, versionService.getUserVersion(uid));
             User user = repo.findById(uid)
                     .orElseThrow(() -> {
                         logger.warn("User not found for update with uid: {}", uid);
                         return new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
                     });
+            if (expectedVersion != null && user.getVersion() != expectedVersion) {
+                logger.warn("User {} is at version {}, expected {}", uid, user.getVersion(), expectedVersion);
+                throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "User has been modified");
+            }
 
             if (updated.getEmail() != null && !updated.getEmail().equals(user.getEmail())) {
                 if (repo.findByEmail(updated.getEmail()).isPresent()) {
@@ -251,9 +314,13 @@ public class UserController {
 
             User saved = repo.save(user);
             logger.info("User updated successfully: {} (ID: {})", saved.getEmail(), saved.getUid());
-            return ResponseEntity.ok(saved);
+            return ConditionalRequests.ok(versionService.getUserVersion(uid)).body(saved);
         } catch (ResponseStatusException e) {
             throw e;
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("User with uid {} was modified concurrently", uid);
+            throw new ResponseStatusException(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT,
+                    "User has been modified");
         } catch (IllegalArgumentException e) {
             logger.error("Invalid user data for update", e);
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid user data: " + e.getMessage());
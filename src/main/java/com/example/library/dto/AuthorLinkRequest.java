@@ -0,0 +1,16 @@
+package com.example.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuthorLinkRequest {
+    private List<AuthorLink> add = new ArrayList<>();
+    private List<AuthorLink> remove = new ArrayList<>();
+}
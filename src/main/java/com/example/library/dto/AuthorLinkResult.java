@@ -0,0 +1,16 @@
+package com.example.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuthorLinkResult {
+    private int added;
+    private int removed;
+    // Pairs to add that were already linked, or pairs to remove that were not
+    private int unchanged;
+    private int booksUpdated;
+}
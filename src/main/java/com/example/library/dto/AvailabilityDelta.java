@@ -0,0 +1,15 @@
+package com.example.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityDelta {
+    private Integer bookId;
+    private boolean available;
+    private Integer availableCopies;
+    private Long version;
+}
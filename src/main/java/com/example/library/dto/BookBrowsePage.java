@@ -0,0 +1,15 @@
+package com.example.library.dto;
+
+import com.example.library.model.Book;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Page;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookBrowsePage {
+    private Page<Book> books;
+    private BookFacets facets;
+}
@@ -0,0 +1,20 @@
+package com.example.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Catalogue-wide book counts per facet value, for browse pages
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookFacets {
+    private long totalBooks;
+    private List<StatEntry> availability;
+    private List<StatEntry> decades;
+    // Most frequent values first, limited to the requested size
+    private List<StatEntry> authors;
+    private List<StatEntry> nationalities;
+}
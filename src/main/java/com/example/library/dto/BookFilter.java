@@ -0,0 +1,22 @@
+package com.example.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Optional filters for GET /api/books; null fields are not applied
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookFilter {
+    private Boolean available;
+    private Integer yearFrom;
+    private Integer yearTo;
+    private Integer authorId;
+    private String isbnPrefix;
+
+    public boolean isEmpty() {
+        return available == null && yearFrom == null && yearTo == null && authorId == null
+                && (isbnPrefix == null || isbnPrefix.isEmpty());
+    }
+}
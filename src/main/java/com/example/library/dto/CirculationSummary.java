@@ -0,0 +1,19 @@
+package com.example.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CirculationSummary {
+    private long activeLoans;
+    private long totalLoans;
+    private int booksBorrowed;
+    private int authorsBorrowed;
+    private int cities;
+    private LocalDateTime snapshotAt;
+}
@@ -0,0 +1,17 @@
+package com.example.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeysetPage<T> {
+    private List<T> items;
+    // Pass as ?after= on the next call; null on the last page
+    private Integer nextAfter;
+    private boolean hasMore;
+}
@@ -0,0 +1,62 @@
+package com.example.library.dto;
+
+import com.example.library.model.Book;
+import com.example.library.model.Loan;
+import com.example.library.model.User;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Compact loan representation returned by the loan endpoints. The full user and book are only
+ * included when requested with {@code ?expand=user,book}.
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LoanView {
+    private Integer id;
+    private String userId;
+    private String userName;
+    private Integer bookId;
+    private String bookTitle;
+    private LocalDate loanDate;
+    private LocalDate returnDate;
+    private String status;
+    // Null for archived loans
+    private Long version;
+    // Only set for loans read from the archive tier
+    private Boolean archived;
+
+    @JsonIgnoreProperties("password")
+    private User user;
+    private Book book;
+
+    public static LoanView of(Loan loan) {
+        LoanView view = new LoanView();
+        view.setId(loan.getId());
+        if (loan.getUser() != null) {
+            view.setUserId(loan.getUser().getUid());
+            view.setUserName(fullName(loan.getUser().getName(), loan.getUser().getSurname()));
+        }
+        if (loan.getBook() != null) {
+            view.setBookId(loan.getBook().getId());
+            view.setBookTitle(loan.getBook().getTitle());
+        }
+        view.setLoanDate(loan.getLoanDate());
+        view.setReturnDate(loan.getReturnDate());
+        view.setStatus(loan.getStatus());
+        view.setVersion(loan.getVersion());
+        return view;
+    }
+
+    public static String fullName(String name, String surname) {
+        if (name == null && surname == null) {
+            return null;
+        }
+        return ((name != null ? name : "") + " " + (surname != null ? surname : "")).trim();
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MultiGetResponse<T, K> {
+    // Found entities, in the order their ids were requested
+    private List<T> items;
+    // Requested ids that do not exist
+    private List<K> missing;
+}
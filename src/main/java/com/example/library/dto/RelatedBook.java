@@ -0,0 +1,14 @@
+package com.example.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RelatedBook {
+    private Integer bookId;
+    // Number of borrowers who borrowed both books
+    private int score;
+}
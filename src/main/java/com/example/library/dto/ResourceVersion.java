@@ -0,0 +1,18 @@
+package com.example.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResourceVersion {
+    // @Version of the entity itself (null for collections)
+    private Long version;
+    private String etag;
+    // Null when not known, e.g. for collections
+    private Instant lastModified;
+}
@@ -0,0 +1,15 @@
+package com.example.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Suggestion {
+    // BOOK (text is the title) or AUTHOR (text is the full name)
+    private String type;
+    private Integer id;
+    private String text;
+}
@@ -0,0 +1,18 @@
+package com.example.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncBatch {
+    private List<SyncChange> changes;
+    // Pass as ?since= on the next call
+    private String nextToken;
+    // More changes are available right away; keep calling until false
+    private boolean hasMore;
+}
@@ -0,0 +1,24 @@
+package com.example.library.dto;
+
+import com.example.library.model.Author;
+import com.example.library.model.Book;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One entry of a delta-sync batch: the current state of a book or author, or a tombstone.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SyncChange {
+    private long seq;
+    private String type;
+    private Integer id;
+    private boolean deleted;
+    private Book book;
+    private Author author;
+}
@@ -0,0 +1,43 @@
+package com.example.library.event;
+
+import com.example.library.model.Author;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class AuthorEvent extends LibraryEvent {
+    private Integer authorId;
+    private String firstName;
+    private String lastName;
+    private String nationality;
+
+    public static AuthorEvent of(LibraryEventType type, Author author) {
+        AuthorEvent event = new AuthorEvent();
+        event.setType(type);
+        event.setAuthorId(author.getId());
+        event.setFirstName(author.getFirstName());
+        event.setLastName(author.getLastName());
+        event.setNationality(author.getNationality());
+        return event;
+    }
+
+    public static AuthorEvent deleted(Integer authorId) {
+        AuthorEvent event = new AuthorEvent();
+        event.setType(LibraryEventType.AUTHOR_DELETED);
+        event.setAuthorId(authorId);
+        return event;
+    }
+
+    @Override
+    public String getAggregateType() {
+        return "Author";
+    }
+
+    @Override
+    public String getAggregateId() {
+        return String.valueOf(authorId);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.library.event;
+
+import com.example.library.model.Book;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class BookEvent extends LibraryEvent {
+    private Integer bookId;
+    private String title;
+    private Integer publicationYear;
+    private boolean available;
+    private Integer availableCopies;
+
+    public static BookEvent of(LibraryEventType type, Book book) {
+        BookEvent event = new BookEvent();
+        event.setType(type);
+        event.setBookId(book.getId());
+        event.setTitle(book.getTitle());
+        event.setPublicationYear(book.getPublicationYear());
+        event.setAvailable(book.isAvailable());
+        event.setAvailableCopies(book.getAvailableCopies());
+        return event;
+    }
+
+    public static BookEvent deleted(Integer bookId) {
+        BookEvent event = new BookEvent();
+        event.setType(LibraryEventType.BOOK_DELETED);
+        event.setBookId(bookId);
+        return event;
+    }
+
+    @Override
+    public String getAggregateType() {
+        return "Book";
+    }
+
+    @Override
+    public String getAggregateId() {
+        return String.valueOf(bookId);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.library.event;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Base class for domain events recorded through the outbox.
+ * The same instance is published in-process after the surrounding transaction commits,
+ * so listeners get typed data without parsing the stored JSON payload.
+ */
+@Data
+public abstract class LibraryEvent {
+    /**
+     * Id of the outbox row; assigned when the event is recorded and monotonic per node.
+     */
+    @JsonIgnore
+    private Long eventId;
+
+    private LibraryEventType type;
+    private LocalDateTime occurredAt = LocalDateTime.now();
+
+    @JsonIgnore
+    public abstract String getAggregateType();
+
+    @JsonIgnore
+    public abstract String getAggregateId();
+}
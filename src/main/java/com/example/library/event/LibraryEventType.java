@@ -0,0 +1,15 @@
+package com.example.library.event;
+
+public enum LibraryEventType {
+    BOOK_CREATED,
+    BOOK_UPDATED,
+    BOOK_DELETED,
+    BOOK_AVAILABILITY_CHANGED,
+    LOAN_BORROWED,
+    LOAN_RETURNED,
+    LOAN_UPDATED,
+    LOAN_DELETED,
+    AUTHOR_CREATED,
+    AUTHOR_UPDATED,
+    AUTHOR_DELETED
+}
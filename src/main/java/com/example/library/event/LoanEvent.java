@@ -0,0 +1,52 @@
+package com.example.library.event;
+
+import com.example.library.model.Author;
+import com.example.library.model.Loan;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class LoanEvent extends LibraryEvent {
+    private Integer loanId;
+    private Integer bookId;
+    private String userId;
+    private String status;
+    private String previousStatus;
+    private LocalDate loanDate;
+    private LocalDate returnDate;
+    private String userCity;
+    private List<Integer> authorIds;
+
+    public static LoanEvent of(LibraryEventType type, Loan loan, String previousStatus) {
+        LoanEvent event = new LoanEvent();
+        event.setType(type);
+        event.setLoanId(loan.getId());
+        event.setBookId(loan.getBook() != null ? loan.getBook().getId() : null);
+        event.setUserId(loan.getUser() != null ? loan.getUser().getUid() : null);
+        event.setStatus(loan.getStatus());
+        event.setPreviousStatus(previousStatus);
+        event.setLoanDate(loan.getLoanDate());
+        event.setReturnDate(loan.getReturnDate());
+        event.setUserCity(loan.getUser() != null ? loan.getUser().getCity() : null);
+        event.setAuthorIds(loan.getBook() != null && loan.getBook().getAuthors() != null
+                ? loan.getBook().getAuthors().stream().map(Author::getId).toList()
+                : List.of());
+        return event;
+    }
+
+    @Override
+    public String getAggregateType() {
+        return "Loan";
+    }
+
+    @Override
+    public String getAggregateId() {
+        return String.valueOf(loanId);
+    }
+}
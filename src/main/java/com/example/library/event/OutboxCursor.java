@@ -0,0 +1,103 @@
+package com.example.library.event;
+
+import com.example.library.model.OutboxEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Position of one reader in the outbox that never moves past a transaction that has not committed
+ * yet. Ids are assigned at insert time but become visible at commit time, so an id missing from
+ * what was read may still show up: the cursor stops in front of it until it does or
+ * {@code gapTimeoutMs} passes, and only then moves past it. A rolled back transaction leaves an id
+ * that never shows up; all ids missing at the same time expire together, so many of them cost one
+ * timeout, not one each.
+ * <p>
+ * Not thread-safe; readers hold their own lock while they use it.
+ */
+public class OutboxCursor {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxCursor.class);
+
+    private final String name;
+    private final long gapTimeoutMs;
+    private long position;
+    // Highest id read and when it was first read, ascending; every id below one was assigned then
+    private final Deque<long[]> seen = new ArrayDeque<>();
+
+    public OutboxCursor(String name, long position, long gapTimeoutMs) {
+        this.name = name;
+        this.position = position;
+        this.gapTimeoutMs = gapTimeoutMs;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Moves the cursor, e.g. to a position another node stored.
+     */
+    public void moveTo(long position) {
+        this.position = position;
+    }
+
+    /**
+     * The leading events of {@code batch} (read in id order after the position) that can be read
+     * without skipping an open gap. Does not move the cursor; call {@link #advance} once they are
+     * handled.
+     */
+    public List<OutboxEvent> readable(List<OutboxEvent> batch) {
+        if (!batch.isEmpty()) {
+            long highest = batch.get(batch.size() - 1).getId();
+            if (seen.isEmpty() || seen.peekLast()[0] < highest) {
+                seen.addLast(new long[] {highest, System.currentTimeMillis()});
+            }
+        }
+        long expected = position + 1;
+        long skipped = 0;
+        int readable = batch.size();
+        for (int i = 0; i < batch.size(); i++) {
+            long id = batch.get(i).getId();
+            if (id > expected) {
+                if (!gapExpired(id)) {
+                    readable = i;
+                    break;
+                }
+                skipped += id - expected;
+            }
+            expected = id + 1;
+        }
+        if (skipped > 0) {
+            logger.warn("Outbox: {} events after {} did not appear within {} ms, {} skips them",
+                    skipped, position, gapTimeoutMs, name);
+        }
+        return batch.subList(0, readable);
+    }
+
+    /**
+     * Moves the cursor past the given events, which came from {@link #readable}.
+     */
+    public void advance(List<OutboxEvent> events) {
+        if (!events.isEmpty()) {
+            position = Math.max(position, events.get(events.size() - 1).getId());
+        }
+        while (seen.size() > 1 && seen.peekFirst()[0] <= position) {
+            seen.removeFirst();
+        }
+    }
+
+    // The ids before nextId have been missing since the first read that saw nextId or a higher id
+    private boolean gapExpired(long nextId) {
+        long missingSince = System.currentTimeMillis();
+        for (long[] read : seen) {
+            if (read[0] >= nextId) {
+                missingSince = read[1];
+                break;
+            }
+        }
+        return System.currentTimeMillis() - missingSince >= gapTimeoutMs;
+    }
+}
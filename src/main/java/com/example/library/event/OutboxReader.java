@@ -0,0 +1,13 @@
+package com.example.library.event;
+
+/**
+ * Anything that reads the outbox and keeps its position in {@code outbox_offset}: every sink, and
+ * services that derive state from the events. Events are only purged once every reader is past them.
+ */
+public interface OutboxReader {
+
+    /**
+     * Stable name used as the key of the reader's position.
+     */
+    String getName();
+}
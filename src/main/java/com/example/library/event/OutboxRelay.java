@@ -0,0 +1,143 @@
+package com.example.library.event;
+
+import com.example.library.model.OutboxEvent;
+import com.example.library.model.OutboxOffset;
+import com.example.library.repository.OutboxEventRepository;
+import com.example.library.repository.OutboxOffsetRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Background relay that moves outbox events to every registered {@link OutboxSink}.
+ * Each sink keeps its own offset, so a slow or failing sink never holds back the others.
+ * A sink's offset row is locked while a batch is delivered, so nodes take turns instead of
+ * delivering the same batch twice.
+ */
+@Component
+public class OutboxRelay {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxOffsetRepository outboxOffsetRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final List<OutboxSink> sinks;
+    private final List<OutboxReader> readers;
+    private final Map<String, OutboxCursor> cursors = new ConcurrentHashMap<>();
+
+    @Value("${library.outbox.batch-size:200}")
+    private int batchSize;
+
+    // How long a missing id may belong to a transaction that has not committed yet
+    @Value("${library.outbox.gap-timeout-ms:10000}")
+    private long gapTimeoutMs;
+
+    @Value("${library.outbox.retention-hours:168}")
+    private long retentionHours;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository, OutboxOffsetRepository outboxOffsetRepository,
+            TransactionTemplate transactionTemplate, List<OutboxSink> sinks, List<OutboxReader> readers) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxOffsetRepository = outboxOffsetRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.sinks = sinks;
+        this.readers = readers;
+    }
+
+    @Scheduled(fixedDelayString = "${library.outbox.relay-interval-ms:1000}")
+    public void relay() {
+        for (OutboxSink sink : sinks) {
+            try {
+                relayTo(sink);
+            } catch (Exception e) {
+                logger.error("Outbox: Failed to relay events to sink {}", sink.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Delivers pending events to one sink in batches, in id order and without skipping an id that
+     * may still commit, advancing its offset only after the sink accepted a batch.
+     *
+     * @return number of events delivered
+     */
+    public int relayTo(OutboxSink sink) {
+        OutboxCursor cursor = cursors.computeIfAbsent(sink.getName(), name -> new OutboxCursor(name, 0, gapTimeoutMs));
+        Integer delivered = transactionTemplate.execute(status -> {
+            OutboxOffset offset = outboxOffsetRepository.findForUpdate(sink.getName())
+                    .orElseGet(() -> new OutboxOffset(sink.getName(), 0L, null));
+            synchronized (cursor) {
+                cursor.moveTo(offset.getLastEventId());
+                int count = 0;
+                while (true) {
+                    List<OutboxEvent> read = outboxEventRepository.findByIdGreaterThanOrderByIdAsc(
+                            cursor.getPosition(), PageRequest.of(0, batchSize));
+                    List<OutboxEvent> batch = cursor.readable(read);
+                    if (batch.isEmpty()) {
+                        break;
+                    }
+
+                    try {
+                        sink.publish(batch);
+                    } catch (Exception e) {
+                        logger.warn("Outbox: Sink {} failed to publish {} events after ID {}, will retry",
+                                sink.getName(), batch.size(), cursor.getPosition(), e);
+                        break;
+                    }
+
+                    cursor.advance(batch);
+                    offset.setLastEventId(cursor.getPosition());
+                    offset.setUpdatedAt(LocalDateTime.now());
+                    outboxOffsetRepository.save(offset);
+                    count += batch.size();
+
+                    if (batch.size() < batchSize) {
+                        break;
+                    }
+                }
+                return count;
+            }
+        });
+
+        if (delivered != null && delivered > 0) {
+            logger.debug("Outbox: Delivered {} events to sink {} (offset: {})",
+                    delivered, sink.getName(), cursor.getPosition());
+        }
+        return delivered != null ? delivered : 0;
+    }
+
+    /**
+     * Removes events that every reader (the sinks and e.g. the circulation statistics) has read and
+     * that are older than the retention period. Without readers nothing is purged.
+     */
+    @Scheduled(fixedDelayString = "${library.outbox.purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeDelivered() {
+        if (readers.isEmpty()) {
+            logger.debug("Outbox: No readers configured, skipping purge");
+            return;
+        }
+        long maxDeliveredId = Long.MAX_VALUE;
+        for (OutboxReader reader : readers) {
+            long lastEventId = outboxOffsetRepository.findById(reader.getName())
+                    .map(OutboxOffset::getLastEventId)
+                    .orElse(0L);
+            maxDeliveredId = Math.min(maxDeliveredId, lastEventId);
+        }
+
+        int purged = outboxEventRepository.deleteDelivered(maxDeliveredId,
+                LocalDateTime.now().minusHours(retentionHours));
+        if (purged > 0) {
+            logger.info("Outbox: Purged {} delivered events", purged);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.library.event;
+
+import com.example.library.model.OutboxEvent;
+import com.example.library.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class OutboxService {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxService.class);
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public OutboxService(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper,
+            ApplicationEventPublisher eventPublisher) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Stores the event in the outbox table as part of the caller's transaction and
+     * publishes it in-process. Listeners should use {@code @TransactionalEventListener}
+     * so they only observe events of committed transactions.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public OutboxEvent record(LibraryEvent event) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialise outbox event " + event.getType(), e);
+        }
+
+        OutboxEvent row = new OutboxEvent(null, event.getAggregateType(), event.getAggregateId(),
+                event.getType().name(), payload, event.getOccurredAt());
+        OutboxEvent saved = outboxEventRepository.save(row);
+        event.setEventId(saved.getId());
+        eventPublisher.publishEvent(event);
+
+        logger.debug("Outbox: Recorded event {} - {} {} (event ID: {})",
+                event.getType(), event.getAggregateType(), event.getAggregateId(), saved.getId());
+        return saved;
+    }
+}
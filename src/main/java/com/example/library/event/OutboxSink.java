@@ -0,0 +1,19 @@
+package com.example.library.event;
+
+import com.example.library.model.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * Destination for relayed outbox events.
+ * Delivery is at-least-once: a batch may be handed over again after a crash or a failed
+ * offset write, so implementations must tolerate duplicates (events carry a unique id).
+ */
+public interface OutboxSink extends OutboxReader {
+
+    /**
+     * Publishes a batch of events ordered by id. Throwing leaves the offset untouched,
+     * so the same batch is retried on the next relay run.
+     */
+    void publish(List<OutboxEvent> batch) throws Exception;
+}
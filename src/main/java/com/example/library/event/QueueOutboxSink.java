@@ -0,0 +1,49 @@
+package com.example.library.event;
+
+import com.example.library.model.OutboxEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local in-memory sink, mainly for tests and development.
+ * A full queue rejects the whole batch so the relay retries it later instead of dropping events.
+ */
+@Component
+@ConditionalOnProperty(name = "library.outbox.sinks.queue.enabled", havingValue = "true")
+public class QueueOutboxSink implements OutboxSink {
+    private final BlockingQueue<OutboxEvent> queue;
+
+    public QueueOutboxSink(@Value("${library.outbox.sinks.queue.capacity:10000}") int capacity) {
+        this.queue = new LinkedBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public String getName() {
+        return "queue";
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> batch) {
+        if (queue.remainingCapacity() < batch.size()) {
+            throw new IllegalStateException("Outbox queue is full");
+        }
+        queue.addAll(batch);
+    }
+
+    public OutboxEvent poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return queue.poll(timeout, unit);
+    }
+
+    public List<OutboxEvent> drain() {
+        List<OutboxEvent> events = new ArrayList<>();
+        queue.drainTo(events);
+        return events;
+    }
+}
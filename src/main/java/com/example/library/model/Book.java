@@ -1,6 +1,7 @@
 package com.example.library.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
@@ -11,16 +12,32 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.UpdateTimestamp;
 
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@EqualsAndHashCode(exclude = "authors")
+@EqualsAndHashCode(exclude = { "authors", "content", "version", "updatedAt" })
 @ToString(exclude = "authors")
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_book_updated_at", columnList = "updated_at"),
+        @Index(name = "idx_book_available_year", columnList = "available, publication_year"),
+        @Index(name = "idx_book_publication_year", columnList = "publication_year"),
+        @Index(name = "idx_book_isbn", columnList = "isbn"),
+        @Index(name = "idx_book_title", columnList = "title")
+})
+@Cacheable
+// READ_WRITE: updates through the entity soft-lock the cached entry until commit. Borrow/return
+// change the copy counters with conditional JDBC updates and evict the entry (BookInventoryService)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "library.book")
 public class Book {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -34,8 +51,10 @@ public class Book {
     @Size(min = 2, max = 100, message = "Author must be between 2 and 100 characters")
     private String author;
 
+    // Accepted on create/update only; stored compressed in book_content and read via GET /api/books/{id}/content
     @Size(max = 10000, message = "Content must not exceed 10000 characters")
-    @Column(columnDefinition = "TEXT")
+    @Transient
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String content;
 
     @NotNull(message = "Publication year is required")
@@ -47,10 +66,47 @@ public class Book {
     @Size(min = 10, max = 17, message = "ISBN must be between 10 and 17 characters")
     private String isbn;
 
+    // At least one copy is on the shelf; kept in step with availableCopies, used by filters and facets
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private boolean available = true;
 
+    // Null on update keeps the current count
+    @Min(value = 0, message = "Total copies must not be negative")
+    // The default gives rows that predate the column one copy; BookInventoryService backfills
+    // available_copies of those on loan
+    @Column(name = "total_copies", nullable = false, columnDefinition = "INT NOT NULL DEFAULT 1")
+    private Integer totalCopies;
+
+    @Column(name = "available_copies", nullable = false, columnDefinition = "INT NOT NULL DEFAULT 1")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Integer availableCopies;
+
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Instant updatedAt;
+
     @ManyToMany(fetch = FetchType.LAZY, cascade = { CascadeType.PERSIST, CascadeType.MERGE })
-    @JoinTable(name = "book_author", joinColumns = @JoinColumn(name = "book_id"), inverseJoinColumns = @JoinColumn(name = "author_id"))
+    @JoinTable(name = "book_author", joinColumns = @JoinColumn(name = "book_id"), inverseJoinColumns = @JoinColumn(name = "author_id"),
+            indexes = @Index(name = "idx_book_author_author_id", columnList = "author_id"))
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "library.book.authors")
+    @BatchSize(size = 50)
     @JsonIgnoreProperties("books")
     private Set<Author> authors = new HashSet<>();
+
+    // A new book is a single copy unless a count is given; all of its copies are on the shelf
+    @PrePersist
+    void defaultCopies() {
+        if (totalCopies == null) {
+            totalCopies = 1;
+        }
+        if (availableCopies == null) {
+            availableCopies = available ? totalCopies : 0;
+        }
+        available = availableCopies > 0;
+    }
 }
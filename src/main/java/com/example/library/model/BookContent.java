@@ -0,0 +1,43 @@
+package com.example.library.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
+
+/**
+ * Text of a book, kept apart from {@link Book} so book reads, loans and the entity cache never load it.
+ * Stored deflate-compressed; see BookContentService.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString(exclude = "data")
+@Entity
+@Table(name = "book_content")
+public class BookContent {
+    @Id
+    @Column(name = "book_id")
+    private Integer bookId;
+
+    // Deflate-compressed UTF-8 text
+    @Lob
+    @Column(nullable = false)
+    private byte[] data;
+
+    // Size of the uncompressed UTF-8 text
+    @Column(name = "byte_length", nullable = false)
+    private int byteLength;
+
+    // SHA-256 of the uncompressed text, used as ETag
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+}
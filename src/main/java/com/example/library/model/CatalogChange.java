@@ -0,0 +1,40 @@
+package com.example.library.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Latest change of a catalogue entity (book or author), used for delta sync.
+ * Each entity has at most one row; a newer change replaces it with a higher sequence number.
+ * Deleted entities keep a tombstone row.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "catalog_change",
+        uniqueConstraints = @UniqueConstraint(name = "uk_catalog_change_entity", columnNames = { "entity_type", "entity_id" }))
+public class CatalogChange {
+    public static final String BOOK = "BOOK";
+    public static final String AUTHOR = "AUTHOR";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long seq;
+
+    @Column(name = "entity_type", nullable = false, length = 20)
+    private String entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private Integer entityId;
+
+    @Column(nullable = false)
+    private boolean deleted;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+}
@@ -0,0 +1,22 @@
+package com.example.library.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Single row that writers of {@link CatalogChange} lock until they commit, so sequence numbers
+ * become visible in the order they were assigned. See CatalogSyncService.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "catalog_change_lock")
+public class CatalogChangeLock {
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+}
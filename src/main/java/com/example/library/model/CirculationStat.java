@@ -0,0 +1,30 @@
+package com.example.library.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Persisted value of one circulation counter, e.g. (BOOK, "42") -> 17 loans.
+ * Written periodically from the in-memory counters of the statistics service.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "circulation_stat")
+@IdClass(CirculationStatId.class)
+public class CirculationStat {
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private StatDimension dimension;
+
+    @Id
+    @Column(name = "stat_key", length = 100)
+    private String statKey;
+
+    @Column(name = "loan_count", nullable = false)
+    private long loanCount;
+}
@@ -0,0 +1,15 @@
+package com.example.library.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CirculationStatId implements Serializable {
+    private StatDimension dimension;
+    private String statKey;
+}
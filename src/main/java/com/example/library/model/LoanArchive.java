@@ -0,0 +1,39 @@
+package com.example.library.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Cold tier of the loan history. Closed loans are moved here by the archival job and keep
+ * their original id; user and book are stored as plain ids so archived rows stay compact.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "loan_archive", indexes = {
+        @Index(name = "idx_loan_archive_user_id", columnList = "user_id"),
+        @Index(name = "idx_loan_archive_book_id", columnList = "book_id")
+})
+public class LoanArchive {
+    @Id
+    private Integer id;
+
+    @Column(name = "user_id", length = 36)
+    private String userId;
+
+    @Column(name = "book_id")
+    private Integer bookId;
+
+    private LocalDate loanDate;
+    private LocalDate returnDate;
+    private String status;
+
+    @Column(name = "archived_at")
+    private LocalDateTime archivedAt;
+}
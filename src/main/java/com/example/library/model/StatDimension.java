@@ -0,0 +1,9 @@
+package com.example.library.model;
+
+public enum StatDimension {
+    BOOK,
+    AUTHOR,
+    CITY,
+    MONTH,
+    SUMMARY
+}
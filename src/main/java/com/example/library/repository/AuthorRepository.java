@@ -1,16 +1,56 @@
 package com.example.library.repository;
 
 import com.example.library.model.Author;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
 public interface AuthorRepository extends JpaRepository<Author, Integer> {
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "library.author-queries") })
     @Query("SELECT a FROM Author a WHERE LOWER(a.firstName) LIKE LOWER(CONCAT('%', :name, '%')) OR LOWER(a.lastName) LIKE LOWER(CONCAT('%', :name, '%'))")
     Page<Author> findByName(@Param("name") String name, Pageable pageable);
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "library.author-queries") })
     Page<Author> findByNationality(String nationality, Pageable pageable);
+
+    // Facet labels (BookFacetService)
+
+    @Query("SELECT a.id, a.firstName, a.lastName, a.nationality FROM Author a")
+    Stream<Object[]> streamFacetInfo();
+
+    @Query("SELECT a.firstName, a.lastName, a.nationality FROM Author a WHERE a.id = :id")
+    List<Object[]> findFacetInfo(@Param("id") Integer id);
+
+    @Query("SELECT a.id FROM Author a WHERE a.id IN :ids")
+    List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
+
+    // Catalogue read model (CatalogReadModel)
+
+    @Query("SELECT a.id, a.firstName, a.lastName, a.biography, a.nationality, a.version, a.updatedAt FROM Author a")
+    Stream<Object[]> streamReadModelRows();
+
+    @Query("SELECT a.id, a.firstName, a.lastName, a.biography, a.nationality, a.version, a.updatedAt FROM Author a WHERE a.id IN :ids")
+    List<Object[]> findReadModelRows(@Param("ids") Collection<Integer> ids);
+
+    // Version stamps for conditional requests
+
+    @Query("SELECT a.version, a.updatedAt FROM Author a WHERE a.id = :id")
+    List<Object[]> findVersionStamp(@Param("id") Integer id);
+
+    @Query("SELECT COUNT(a), COALESCE(MAX(a.id), 0), MAX(a.updatedAt) FROM Author a")
+    List<Object[]> findTableStamp();
 }
@@ -0,0 +1,7 @@
+package com.example.library.repository;
+
+import com.example.library.model.BookContent;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface BookContentRepository extends JpaRepository<BookContent, Integer> {
+}
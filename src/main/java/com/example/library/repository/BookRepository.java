@@ -1,7 +1,73 @@
 package com.example.library.repository;
 
 import com.example.library.model.Book;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface BookRepository extends JpaRepository<Book, Integer> {
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface BookRepository extends JpaRepository<Book, Integer>, JpaSpecificationExecutor<Book> {
+
+    @Query("SELECT b.id, b.title FROM Book b WHERE b.id IN :ids")
+    List<Object[]> findTitlesByIds(@Param("ids") Collection<Integer> ids);
+
+    @Query("SELECT DISTINCT b FROM Book b LEFT JOIN FETCH b.authors WHERE b.id IN :ids")
+    List<Book> findWithAuthorsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query("SELECT b.id, b.publicationYear FROM Book b")
+    Stream<Object[]> streamPublicationYears();
+
+    @Query("SELECT b.id, b.title FROM Book b")
+    Stream<Object[]> streamTitles();
+
+    // Facet counters (BookFacetService)
+
+    @Query("SELECT b.id, b.available, b.publicationYear FROM Book b")
+    Stream<Object[]> streamFacetRows();
+
+    @Query("SELECT b.id, a.id FROM Book b JOIN b.authors a")
+    Stream<Object[]> streamAuthorLinks();
+
+    @Query("SELECT b.available, b.publicationYear FROM Book b WHERE b.id = :id")
+    List<Object[]> findFacetRow(@Param("id") Integer id);
+
+    @Query("SELECT a.id FROM Book b JOIN b.authors a WHERE b.id = :id")
+    List<Integer> findAuthorIds(@Param("id") Integer id);
+
+    // Keyset page of an author's books, walking idx_book_author_author_id in order (InnoDB appends the
+    // primary key's book_id to its entries)
+    @Query("SELECT b FROM Book b JOIN b.authors a WHERE a.id = :authorId AND b.id > :afterId ORDER BY b.id")
+    List<Book> findByAuthorAfter(@Param("authorId") Integer authorId, @Param("afterId") Integer afterId, Limit limit);
+
+    // Bulk author linking (BookAuthorLinkService)
+
+    @Query("SELECT b.id, b.title, b.publicationYear, b.available, b.availableCopies FROM Book b WHERE b.id IN :ids")
+    List<Object[]> findEventInfo(@Param("ids") Collection<Integer> ids);
+
+    @Query("SELECT b.id, a.id FROM Book b JOIN b.authors a WHERE b.id IN :ids")
+    List<Object[]> findAuthorLinks(@Param("ids") Collection<Integer> ids);
+
+    // Catalogue read model (CatalogReadModel)
+
+    @Query("SELECT b.id, b.title, b.author, b.publicationYear, b.isbn, b.available, b.totalCopies, b.availableCopies, "
+            + "b.version, b.updatedAt FROM Book b")
+    Stream<Object[]> streamReadModelRows();
+
+    @Query("SELECT b.id, b.title, b.author, b.publicationYear, b.isbn, b.available, b.totalCopies, b.availableCopies, "
+            + "b.version, b.updatedAt FROM Book b WHERE b.id IN :ids")
+    List<Object[]> findReadModelRows(@Param("ids") Collection<Integer> ids);
+
+    // Version stamps for conditional requests; a book's representation includes its authors
+
+    @Query("SELECT b.version, b.updatedAt, COALESCE(SUM(a.version), 0), MAX(a.updatedAt) FROM Book b LEFT JOIN b.authors a "
+            + "WHERE b.id = :id GROUP BY b.id, b.version, b.updatedAt")
+    List<Object[]> findVersionStamp(@Param("id") Integer id);
+
+    @Query("SELECT COUNT(b), COALESCE(MAX(b.id), 0), MAX(b.updatedAt) FROM Book b")
+    List<Object[]> findTableStamp();
 }
@@ -0,0 +1,33 @@
+package com.example.library.repository;
+
+import com.example.library.model.CatalogChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface CatalogChangeRepository extends JpaRepository<CatalogChange, Long> {
+
+    List<CatalogChange> findBySeqGreaterThanOrderBySeqAsc(Long seq, Pageable pageable);
+
+    @Query("SELECT COALESCE(MAX(c.seq), 0) FROM CatalogChange c")
+    long findMaxSeq();
+
+    @Modifying
+    @Query("DELETE FROM CatalogChange c WHERE c.entityType = :entityType AND c.entityId = :entityId")
+    int deleteByEntity(@Param("entityType") String entityType, @Param("entityId") Integer entityId);
+
+    // Seeds the change log with the existing catalogue
+
+    @Modifying
+    @Query("INSERT INTO CatalogChange (entityType, entityId, deleted, changedAt) SELECT 'AUTHOR', a.id, false, :now FROM Author a")
+    int seedAuthors(@Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("INSERT INTO CatalogChange (entityType, entityId, deleted, changedAt) SELECT 'BOOK', b.id, false, :now FROM Book b")
+    int seedBooks(@Param("now") LocalDateTime now);
+}
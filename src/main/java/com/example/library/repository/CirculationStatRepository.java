@@ -0,0 +1,8 @@
+package com.example.library.repository;
+
+import com.example.library.model.CirculationStat;
+import com.example.library.model.CirculationStatId;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface CirculationStatRepository extends JpaRepository<CirculationStat, CirculationStatId> {
+}
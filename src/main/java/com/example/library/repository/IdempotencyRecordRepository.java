@@ -0,0 +1,27 @@
+package com.example.library.repository;
+
+import com.example.library.model.IdempotencyRecord;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    @Query("SELECT r.key FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    List<String> findExpiredKeys(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.key IN :keys")
+    int deleteByKeys(@Param("keys") Collection<String> keys);
+
+    // Removes a claim or result only if it is still the one the caller saw
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.key = :key AND r.createdAt = :createdAt")
+    int deleteIfUnchanged(@Param("key") String key, @Param("createdAt") LocalDateTime createdAt);
+}
@@ -0,0 +1,63 @@
+package com.example.library.repository;
+
+import com.example.library.model.LoanArchive;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface LoanArchiveRepository extends JpaRepository<LoanArchive, Integer> {
+
+    // Repeats the archivable condition of LoanRepository.findArchivableIds: a loan reopened since
+    // its id was read is not copied
+    @Modifying
+    @Query("INSERT INTO LoanArchive (id, userId, bookId, loanDate, returnDate, status, archivedAt) " +
+           "SELECT l.id, l.user.uid, l.book.id, l.loanDate, l.returnDate, l.status, :archivedAt " +
+           "FROM Loan l WHERE l.id IN :ids AND l.status = 'RETURNED' AND l.returnDate < :cutoff")
+    int copyFromLoans(@Param("ids") List<Integer> ids, @Param("cutoff") LocalDate cutoff,
+            @Param("archivedAt") LocalDateTime archivedAt);
+
+    // Compact loan views (LoanView), same columns as LoanRepository.findViews without the version
+
+    @Query(value = "SELECT a.id, a.userId, u.name, u.surname, a.bookId, b.title, a.loanDate, a.returnDate, a.status "
+            + "FROM LoanArchive a LEFT JOIN library_user u ON u.uid = a.userId LEFT JOIN Book b ON b.id = a.bookId",
+            countQuery = "SELECT COUNT(a) FROM LoanArchive a")
+    Page<Object[]> findViews(Pageable pageable);
+
+    @Query("SELECT a.id, a.userId, u.name, u.surname, a.bookId, b.title, a.loanDate, a.returnDate, a.status "
+            + "FROM LoanArchive a LEFT JOIN library_user u ON u.uid = a.userId LEFT JOIN Book b ON b.id = a.bookId "
+            + "WHERE a.id = :id")
+    List<Object[]> findView(@Param("id") Integer id);
+
+    @Query("SELECT a.userId, a.bookId FROM LoanArchive a WHERE a.userId IS NOT NULL AND a.bookId IS NOT NULL")
+    Stream<Object[]> streamBorrowPairs();
+
+    @Query("SELECT a.id, a.userId, a.bookId, a.loanDate, a.status FROM LoanArchive a")
+    Stream<Object[]> streamLoanFacts();
+
+    // Aggregates used to seed the circulation statistics when no summary exists yet
+
+    @Query("SELECT a.bookId, COUNT(a) FROM LoanArchive a GROUP BY a.bookId")
+    List<Object[]> countLoansByBook();
+
+    @Query("SELECT au.id, COUNT(a) FROM LoanArchive a, Book b JOIN b.authors au WHERE b.id = a.bookId GROUP BY au.id")
+    List<Object[]> countLoansByAuthor();
+
+    @Query("SELECT u.city, COUNT(a) FROM LoanArchive a, library_user u WHERE u.uid = a.userId GROUP BY u.city")
+    List<Object[]> countLoansByCity();
+
+    @Query("SELECT YEAR(a.loanDate), MONTH(a.loanDate), COUNT(a) FROM LoanArchive a WHERE a.loanDate IS NOT NULL " +
+           "GROUP BY YEAR(a.loanDate), MONTH(a.loanDate)")
+    List<Object[]> countLoansByMonth();
+
+    // Archived loans are immutable; count and highest id identify the archive's content
+    @Query("SELECT COUNT(a), COALESCE(MAX(a.id), 0) FROM LoanArchive a")
+    List<Object[]> findTableStamp();
+}
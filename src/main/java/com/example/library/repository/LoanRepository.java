@@ -1,7 +1,68 @@
 package com.example.library.repository;
 
 import com.example.library.model.Loan;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface LoanRepository extends JpaRepository<Loan, Integer> {
+
+    @Query("SELECT l.id FROM Loan l WHERE l.status = 'RETURNED' AND l.returnDate < :cutoff ORDER BY l.id")
+    List<Integer> findArchivableIds(@Param("cutoff") LocalDate cutoff, Pageable pageable);
+
+    // Same condition as findArchivableIds, so only loans that are still archivable are deleted
+    @Modifying
+    @Query("DELETE FROM Loan l WHERE l.id IN :ids AND l.status = 'RETURNED' AND l.returnDate < :cutoff")
+    int deleteArchivable(@Param("ids") List<Integer> ids, @Param("cutoff") LocalDate cutoff);
+
+    long countByStatus(String status);
+
+    // Compact loan views (LoanView): the user's name and the book's title come from one join
+
+    @Query(value = "SELECT l.id, u.uid, u.name, u.surname, b.id, b.title, l.loanDate, l.returnDate, l.status, l.version "
+            + "FROM Loan l LEFT JOIN l.user u LEFT JOIN l.book b",
+            countQuery = "SELECT COUNT(l) FROM Loan l")
+    Page<Object[]> findViews(Pageable pageable);
+
+    @Query("SELECT l.id, u.uid, u.name, u.surname, b.id, b.title, l.loanDate, l.returnDate, l.status, l.version "
+            + "FROM Loan l LEFT JOIN l.user u LEFT JOIN l.book b WHERE l.id = :id")
+    List<Object[]> findView(@Param("id") Integer id);
+
+    @Query("SELECT l.user.uid, l.book.id FROM Loan l")
+    Stream<Object[]> streamBorrowPairs();
+
+    @Query("SELECT l.id, l.user.uid, l.book.id, l.loanDate, l.status FROM Loan l")
+    Stream<Object[]> streamLoanFacts();
+
+    // Aggregates used to seed the circulation statistics when no summary exists yet
+
+    @Query("SELECT l.book.id, COUNT(l) FROM Loan l GROUP BY l.book.id")
+    List<Object[]> countLoansByBook();
+
+    @Query("SELECT a.id, COUNT(l) FROM Loan l JOIN l.book b JOIN b.authors a GROUP BY a.id")
+    List<Object[]> countLoansByAuthor();
+
+    @Query("SELECT u.city, COUNT(l) FROM Loan l JOIN l.user u GROUP BY u.city")
+    List<Object[]> countLoansByCity();
+
+    @Query("SELECT YEAR(l.loanDate), MONTH(l.loanDate), COUNT(l) FROM Loan l WHERE l.loanDate IS NOT NULL " +
+           "GROUP BY YEAR(l.loanDate), MONTH(l.loanDate)")
+    List<Object[]> countLoansByMonth();
+
+    // Version stamps for conditional requests; a loan's representation includes its user, book and authors
+
+    @Query("SELECT l.version, l.updatedAt, u.version, u.updatedAt, b.version, b.updatedAt, COALESCE(SUM(a.version), 0), MAX(a.updatedAt) "
+            + "FROM Loan l LEFT JOIN l.user u LEFT JOIN l.book b LEFT JOIN b.authors a WHERE l.id = :id "
+            + "GROUP BY l.id, l.version, l.updatedAt, u.version, u.updatedAt, b.version, b.updatedAt")
+    List<Object[]> findVersionStamp(@Param("id") Integer id);
+
+    @Query("SELECT COUNT(l), COALESCE(MAX(l.id), 0), MAX(l.updatedAt) FROM Loan l")
+    List<Object[]> findTableStamp();
 }
@@ -0,0 +1,18 @@
+package com.example.library.repository;
+
+import com.example.library.model.OutboxOffset;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface OutboxOffsetRepository extends JpaRepository<OutboxOffset, String> {
+
+    // SELECT ... FOR UPDATE: serialises nodes writing state that belongs to one position
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM OutboxOffset o WHERE o.sinkName = :name")
+    Optional<OutboxOffset> findForUpdate(@Param("name") String name);
+}
@@ -2,9 +2,24 @@ package com.example.library.repository;
 
 import com.example.library.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository extends JpaRepository<User, String> {
     Optional<User> findByEmail(String email);
+
+    @Query("SELECT u.uid, u.city FROM library_user u")
+    Stream<Object[]> streamCities();
+
+    // Version stamps for conditional requests
+
+    @Query("SELECT u.version, u.updatedAt FROM library_user u WHERE u.uid = :uid")
+    List<Object[]> findVersionStamp(@Param("uid") String uid);
+
+    @Query("SELECT COUNT(u), MAX(u.updatedAt) FROM library_user u")
+    List<Object[]> findTableStamp();
 }
@@ -65,7 +65,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                path.startsWith("/v3/api-docs") ||
                path.startsWith("/api/users/login") ||
                path.startsWith("/api/users/register") ||
-               path.startsWith("/h2-console");
+               path.startsWith("/h2-console") ||
+               path.startsWith("/api/health/");
     }
 
     private String extractTokenFromRequest(HttpServletRequest request) {
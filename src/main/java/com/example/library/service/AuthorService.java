@@ -1,8 +1,18 @@
 package com.example.library.service;
 
+import com.example.library.event.AuthorEvent;
+import com.example.library.event.LibraryEventType;
+import com.example.library.event.OutboxService;
 import com.example.library.exception.AuthorNotFoundException;
+import com.example.library.dto.KeysetPage;
 import com.example.library.model.Author;
+import com.example.library.model.Book;
 import com.example.library.repository.AuthorRepository;
+import com.example.library.repository.BookRepository;
+import com.example.library.util.SingleFlight;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -14,17 +24,39 @@ import java.util.Optional;
 @Service
 public class AuthorService {
     private final AuthorRepository authorRepository;
+    private final BookRepository bookRepository;
+    private final OutboxService outboxService;
+    private final SingleFlight<Integer, Optional<Author>> authorLoads;
 
-    public AuthorService(AuthorRepository authorRepository) {
+    public AuthorService(AuthorRepository authorRepository, BookRepository bookRepository, OutboxService outboxService,
+            @Value("${library.single-flight.max-in-flight:10000}") int maxInFlight,
+            @Value("${library.single-flight.timeout-ms:2000}") long timeoutMs) {
         this.authorRepository = authorRepository;
+        this.bookRepository = bookRepository;
+        this.outboxService = outboxService;
+        this.authorLoads = new SingleFlight<>(maxInFlight, timeoutMs);
     }
 
     public Page<Author> getAllAuthors(Pageable pageable) {
         return authorRepository.findAll(pageable);
     }
 
+    // Concurrent lookups of the same author share one load of a detached, read-only copy
     public Optional<Author> getAuthorById(Integer id) {
-        return authorRepository.findById(id);
+        return authorLoads.load(id, () -> authorRepository.findById(id).map(AuthorService::detachedCopy));
+    }
+
+    // Without the lazy book collection, which the JSON representation does not include
+    static Author detachedCopy(Author author) {
+        Author copy = new Author();
+        copy.setId(author.getId());
+        copy.setFirstName(author.getFirstName());
+        copy.setLastName(author.getLastName());
+        copy.setBiography(author.getBiography());
+        copy.setNationality(author.getNationality());
+        copy.setVersion(author.getVersion());
+        copy.setUpdatedAt(author.getUpdatedAt());
+        return copy;
     }
 
     public Page<Author> searchAuthorsByName(String name, Pageable pageable) {
@@ -35,29 +67,58 @@ public class AuthorService {
         return authorRepository.findByNationality(nationality, pageable);
     }
 
+    /**
+     * Books of an author with ids greater than {@code afterId}, in id order. Reads the join table
+     * directly, so the author's (possibly huge) book collection is never loaded.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Book> getBooksByAuthor(Integer authorId, int afterId, int limit) {
+        if (!authorRepository.existsById(authorId)) {
+            throw new AuthorNotFoundException(authorId);
+        }
+        // One extra row tells whether another page follows
+        List<Book> books = bookRepository.findByAuthorAfter(authorId, afterId, Limit.of(limit + 1));
+        boolean hasMore = books.size() > limit;
+        List<Book> page = hasMore ? books.subList(0, limit) : books;
+        Integer nextAfter = hasMore ? page.get(page.size() - 1).getId() : null;
+        return new KeysetPage<>(page, nextAfter, hasMore);
+    }
+
     @Transactional
     public Author createAuthor(Author author) {
         author.setId(null); // Ensure we're creating a new author
-        return authorRepository.save(author);
+        Author saved = authorRepository.save(author);
+        outboxService.record(AuthorEvent.of(LibraryEventType.AUTHOR_CREATED, saved));
+        return saved;
     }
 
     @Transactional
     public List<Author> createAuthors(List<Author> authors) {
         authors.forEach(author -> author.setId(null));
-        return authorRepository.saveAll(authors);
+        List<Author> saved = authorRepository.saveAll(authors);
+        saved.forEach(author -> outboxService.record(AuthorEvent.of(LibraryEventType.AUTHOR_CREATED, author)));
+        return saved;
     }
 
+    /**
+     * @param expectedVersion version the client last read (from If-Match), or null to update unconditionally
+     */
     @Transactional
-    public Author updateAuthor(Integer id, Author authorDetails) {
+    public Author updateAuthor(Integer id, Author authorDetails, Long expectedVersion) {
         Author author = authorRepository.findById(id)
                 .orElseThrow(() -> new AuthorNotFoundException(id));
+        if (expectedVersion != null && author.getVersion() != expectedVersion) {
+            throw new OptimisticLockingFailureException("Author with id " + id + " has been modified");
+        }
 
         author.setFirstName(authorDetails.getFirstName());
         author.setLastName(authorDetails.getLastName());
         author.setBiography(authorDetails.getBiography());
         author.setNationality(authorDetails.getNationality());
 
-        return authorRepository.save(author);
+        Author saved = authorRepository.save(author);
+        outboxService.record(AuthorEvent.of(LibraryEventType.AUTHOR_UPDATED, saved));
+        return saved;
     }
 
     @Transactional
@@ -65,5 +126,6 @@ public class AuthorService {
         Author author = authorRepository.findById(id)
                 .orElseThrow(() -> new AuthorNotFoundException(id));
         authorRepository.delete(author);
+        outboxService.record(AuthorEvent.deleted(id));
     }
 }
@@ -0,0 +1,278 @@
+package com.example.library.service;
+
+import com.example.library.dto.AuthorLink;
+import com.example.library.dto.AuthorLinkRequest;
+import com.example.library.dto.AuthorLinkResult;
+import com.example.library.event.BookEvent;
+import com.example.library.event.LibraryEventType;
+import com.example.library.event.OutboxService;
+import com.example.library.model.Author;
+import com.example.library.model.Book;
+import com.example.library.repository.AuthorRepository;
+import com.example.library.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Adds and removes book/author links directly in {@code book_author}. Ids are checked with batched
+ * IN queries and rows are written with JDBC batches, so no book, author or author collection is
+ * loaded. Every book whose links change gets a new version and a {@code BOOK_UPDATED} event, as
+ * with an update through {@link BookService#updateBook}.
+ */
+@Service
+public class BookAuthorLinkService {
+    private static final Logger logger = LoggerFactory.getLogger(BookAuthorLinkService.class);
+    private static final int IN_CHUNK_SIZE = 1000;
+    private static final int MAX_REPORTED_IDS = 20;
+    private static final int EVENTS_PER_FLUSH = 100;
+    private static final String INSERT_LINK = "INSERT INTO book_author (book_id, author_id) VALUES (?, ?)";
+    // Rows are written in key order so concurrent requests lock them in the same order
+    private static final Comparator<AuthorLink> KEY_ORDER = Comparator.comparing(AuthorLink::getBookId)
+            .thenComparing(AuthorLink::getAuthorId);
+
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final OutboxService outboxService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SessionFactory sessionFactory;
+    private final int maxPairs;
+    private final int batchSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public BookAuthorLinkService(BookRepository bookRepository, AuthorRepository authorRepository,
+            OutboxService outboxService, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            EntityManagerFactory entityManagerFactory,
+            @Value("${library.author-links.max-pairs:10000}") int maxPairs,
+            @Value("${library.author-links.batch-size:1000}") int batchSize) {
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.outboxService = outboxService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.maxPairs = maxPairs;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Applies all additions and removals in one transaction. Adding an existing link or removing a
+     * missing one is not an error, so a failed backfill request can simply be sent again.
+     *
+     * @throws IllegalArgumentException for an invalid request or unknown book/author ids (nothing is changed)
+     */
+    public AuthorLinkResult apply(AuthorLinkRequest request) {
+        Set<AuthorLink> add = distinct(request.getAdd());
+        Set<AuthorLink> remove = distinct(request.getRemove());
+        if (add.isEmpty() && remove.isEmpty()) {
+            throw new IllegalArgumentException("No links to add or remove");
+        }
+        if (add.size() + remove.size() > maxPairs) {
+            throw new IllegalArgumentException("Maximum " + maxPairs + " links can be changed at once");
+        }
+        for (AuthorLink link : add) {
+            if (remove.contains(link)) {
+                throw new IllegalArgumentException("Link of book " + link.getBookId() + " and author "
+                        + link.getAuthorId() + " is both added and removed");
+            }
+        }
+
+        long started = System.nanoTime();
+        Set<Integer> touchedBooks = new TreeSet<>();
+        Set<Integer> touchedAuthors = new HashSet<>();
+        AuthorLinkResult result = transactionTemplate.execute(status -> link(add, remove, touchedBooks, touchedAuthors));
+        evictCachedLinks(touchedBooks, touchedAuthors);
+
+        logger.info("Service: Author links applied - added: {}, removed: {}, unchanged: {}, books: {} ({} ms)",
+                result.getAdded(), result.getRemoved(), result.getUnchanged(), result.getBooksUpdated(),
+                (System.nanoTime() - started) / 1_000_000);
+        return result;
+    }
+
+    private AuthorLinkResult link(Set<AuthorLink> add, Set<AuthorLink> remove,
+            Set<Integer> touchedBooks, Set<Integer> touchedAuthors) {
+        Set<Integer> bookIds = new HashSet<>();
+        Set<Integer> authorIds = new HashSet<>();
+        for (Set<AuthorLink> links : List.of(add, remove)) {
+            links.forEach(link -> {
+                bookIds.add(link.getBookId());
+                authorIds.add(link.getAuthorId());
+            });
+        }
+
+        Map<Integer, Object[]> books = new HashMap<>();
+        inChunks(bookIds, chunk -> bookRepository.findEventInfo(chunk).forEach(row -> books.put((Integer) row[0], row)));
+        Set<Integer> authors = new HashSet<>();
+        inChunks(authorIds, chunk -> authors.addAll(authorRepository.findExistingIds(chunk)));
+        rejectMissing("book", bookIds, books.keySet());
+        rejectMissing("author", authorIds, authors);
+
+        Set<AuthorLink> existing = new HashSet<>();
+        inChunks(bookIds, chunk -> bookRepository.findAuthorLinks(chunk)
+                .forEach(row -> existing.add(new AuthorLink((Integer) row[0], (Integer) row[1]))));
+        List<AuthorLink> missing = add.stream().filter(link -> !existing.contains(link)).sorted(KEY_ORDER).toList();
+        List<AuthorLink> deletes = remove.stream().filter(existing::contains).sorted(KEY_ORDER).toList();
+
+        List<AuthorLink> inserts = insertLinks(missing);
+        writeLinks("DELETE FROM book_author WHERE book_id = ? AND author_id = ?", deletes);
+        for (List<AuthorLink> links : List.of(inserts, deletes)) {
+            links.forEach(link -> {
+                touchedBooks.add(link.getBookId());
+                touchedAuthors.add(link.getAuthorId());
+            });
+        }
+
+        // Same effect on version and updated_at as an entity update, so ETags and If-Match see the change
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate("UPDATE book SET version = version + 1, updated_at = ? WHERE id = ?",
+                new ArrayList<>(touchedBooks), batchSize, (ps, bookId) -> {
+                    ps.setTimestamp(1, now);
+                    ps.setInt(2, bookId);
+                });
+        int recorded = 0;
+        for (Integer bookId : touchedBooks) {
+            outboxService.record(updatedEvent(books.get(bookId)));
+            // Each event adds outbox and change log rows; without clearing, every auto-flush
+            // would dirty-check all rows recorded so far
+            if (++recorded % EVENTS_PER_FLUSH == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+
+        int unchanged = add.size() + remove.size() - inserts.size() - deletes.size();
+        return new AuthorLinkResult(inserts.size(), deletes.size(), unchanged, touchedBooks.size());
+    }
+
+    /**
+     * Inserts the links batch by batch. A concurrent request may have inserted some of them since
+     * they were read; the batch is then rolled back to its savepoint and its links are inserted one
+     * by one, skipping the ones that exist now. The savepoints are set on the transaction's JDBC
+     * connection (JpaTransactionManager does not offer them); nothing goes through Hibernate in between.
+     *
+     * @return the links actually inserted
+     */
+    private List<AuthorLink> insertLinks(List<AuthorLink> links) {
+        List<AuthorLink> inserted = new ArrayList<>(links.size());
+        for (int from = 0; from < links.size(); from += batchSize) {
+            List<AuthorLink> batch = links.subList(from, Math.min(from + batchSize, links.size()));
+            Savepoint savepoint = jdbcTemplate.execute((ConnectionCallback<Savepoint>) connection -> connection.setSavepoint());
+            try {
+                writeLinks(INSERT_LINK, batch);
+                jdbcTemplate.execute((ConnectionCallback<Object>) connection -> {
+                    connection.releaseSavepoint(savepoint);
+                    return null;
+                });
+                inserted.addAll(batch);
+            } catch (DuplicateKeyException e) {
+                jdbcTemplate.execute((ConnectionCallback<Object>) connection -> {
+                    connection.rollback(savepoint);
+                    return null;
+                });
+                int before = inserted.size();
+                for (AuthorLink link : batch) {
+                    try {
+                        jdbcTemplate.update(INSERT_LINK, link.getBookId(), link.getAuthorId());
+                        inserted.add(link);
+                    } catch (DuplicateKeyException duplicate) {
+                        // Only the failed statement is rolled back (MySQL, H2); the link exists, as requested
+                    }
+                }
+                logger.debug("Service: {} of {} author links were inserted concurrently by another request",
+                        batch.size() - (inserted.size() - before), batch.size());
+            }
+        }
+        return inserted;
+    }
+
+    private void writeLinks(String sql, List<AuthorLink> links) {
+        jdbcTemplate.batchUpdate(sql, links, batchSize, (ps, link) -> {
+            ps.setInt(1, link.getBookId());
+            ps.setInt(2, link.getAuthorId());
+        });
+    }
+
+    // The JDBC writes bypass the second-level cache, so the cached link collections are stale now
+    private void evictCachedLinks(Set<Integer> bookIds, Set<Integer> authorIds) {
+        Cache cache = sessionFactory.getCache();
+        for (Integer bookId : bookIds) {
+            cache.evictEntityData(Book.class, bookId);
+            cache.evictCollectionData(Book.class.getName() + ".authors", bookId);
+        }
+        for (Integer authorId : authorIds) {
+            cache.evictCollectionData(Author.class.getName() + ".books", authorId);
+        }
+    }
+
+    private static Set<AuthorLink> distinct(List<AuthorLink> links) {
+        if (links == null) {
+            return Set.of();
+        }
+        Set<AuthorLink> distinct = new LinkedHashSet<>();
+        for (AuthorLink link : links) {
+            if (link == null || link.getBookId() == null || link.getBookId() <= 0
+                    || link.getAuthorId() == null || link.getAuthorId() <= 0) {
+                throw new IllegalArgumentException("Every link needs a valid bookId and authorId");
+            }
+            distinct.add(link);
+        }
+        return distinct;
+    }
+
+    private static void inChunks(Set<Integer> ids, Consumer<List<Integer>> query) {
+        List<Integer> all = new ArrayList<>(ids);
+        for (int from = 0; from < all.size(); from += IN_CHUNK_SIZE) {
+            query.accept(all.subList(from, Math.min(from + IN_CHUNK_SIZE, all.size())));
+        }
+    }
+
+    private static void rejectMissing(String type, Set<Integer> requested, Set<Integer> found) {
+        if (found.size() == requested.size()) {
+            return;
+        }
+        List<Integer> missing = requested.stream().filter(id -> !found.contains(id)).sorted().toList();
+        throw new IllegalArgumentException("Unknown " + type + " ids: " + missing.stream()
+                .limit(MAX_REPORTED_IDS).map(String::valueOf).collect(Collectors.joining(", "))
+                + (missing.size() > MAX_REPORTED_IDS ? " and " + (missing.size() - MAX_REPORTED_IDS) + " more" : ""));
+    }
+
+    // Row of BookRepository.findEventInfo
+    private static BookEvent updatedEvent(Object[] row) {
+        BookEvent event = new BookEvent();
+        event.setType(LibraryEventType.BOOK_UPDATED);
+        event.setBookId((Integer) row[0]);
+        event.setTitle((String) row[1]);
+        event.setPublicationYear((Integer) row[2]);
+        event.setAvailable((Boolean) row[3]);
+        event.setAvailableCopies((Integer) row[4]);
+        return event;
+    }
+}
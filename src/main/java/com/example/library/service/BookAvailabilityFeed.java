@@ -0,0 +1,374 @@
+package com.example.library.service;
+
+import com.example.library.dto.AvailabilityDelta;
+import com.example.library.event.BookEvent;
+import com.example.library.event.LibraryEventType;
+import com.example.library.event.OutboxCursor;
+import com.example.library.model.OutboxEvent;
+import com.example.library.repository.OutboxEventRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes book availability changes to Server-Sent Events subscribers.
+ * Every node tails the outbox, so subscribers also see changes committed on the other nodes.
+ * Idle connections are parked as async requests and hold no thread; sends run on a small
+ * dispatcher pool and use non-blocking writes, so a client that stops reading holds no thread
+ * either. Every subscriber has a bounded buffer and is evicted when it overflows.
+ */
+@Service
+public class BookAvailabilityFeed {
+    private static final Logger logger = LoggerFactory.getLogger(BookAvailabilityFeed.class);
+    private static final AvailabilityDelta HEARTBEAT = new AvailabilityDelta();
+    private static final MediaType TEXT_PLAIN = new MediaType("text", "plain", StandardCharsets.UTF_8);
+    private static final int BATCH_SIZE = 500;
+
+    private final Set<Subscriber> allBooksSubscribers = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, Set<Subscriber>> subscribersByBook = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService dispatcher;
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+    private final OutboxCursor cursor;
+
+    @Value("${library.availability-feed.buffer-size:256}")
+    private int bufferSize;
+
+    @Value("${library.availability-feed.timeout-ms:1800000}")
+    private long timeoutMillis;
+
+    @Value("${library.availability-feed.max-subscribers:10000}")
+    private int maxSubscribers;
+
+    public BookAvailabilityFeed(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper,
+            @Value("${library.availability-feed.dispatcher-threads:2}") int dispatcherThreads,
+            @Value("${library.availability-feed.gap-timeout-ms:10000}") long gapTimeoutMs) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+        this.cursor = new OutboxCursor("availability feed", 0, gapTimeoutMs);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(dispatcherThreads, runnable -> {
+            Thread thread = new Thread(runnable, "availability-feed-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Subscribers only get changes committed after they connect, so the feed starts at the end
+     * of the outbox.
+     */
+    @PostConstruct
+    public void startAtEnd() {
+        synchronized (cursor) {
+            cursor.moveTo(outboxEventRepository.findMaxId());
+        }
+    }
+
+    /**
+     * Registers a new subscriber for the given book ids, or for all books when the set is empty.
+     * {@code response} is the stream's response; its output is switched to non-blocking writes
+     * once the stream starts.
+     */
+    public ResponseBodyEmitter subscribe(Set<Integer> bookIds, HttpServletResponse response) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            logger.warn("Availability feed: Subscriber limit of {} reached", maxSubscribers);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many availability subscribers");
+        }
+
+        EventStream emitter = new EventStream(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, response, Set.copyOf(bookIds), bufferSize);
+        if (subscriber.bookIds.isEmpty()) {
+            allBooksSubscribers.add(subscriber);
+        } else {
+            subscriber.bookIds.forEach(bookId ->
+                    subscribersByBook.computeIfAbsent(bookId, id -> ConcurrentHashMap.newKeySet()).add(subscriber));
+        }
+
+        emitter.onCompletion(() -> unregister(subscriber));
+        emitter.onTimeout(() -> unregister(subscriber));
+        emitter.onError(e -> unregister(subscriber));
+
+        logger.debug("Availability feed: New subscriber for {} (subscribers: {})",
+                subscriber.bookIds.isEmpty() ? "all books" : subscriber.bookIds, subscriberCount.get());
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    /**
+     * Publishes the book events committed since the last poll, in id order. An id that is missing
+     * may still belong to a transaction that has not committed yet, so the poll stops there until
+     * it shows up or {@code library.availability-feed.gap-timeout-ms} passes.
+     */
+    @Scheduled(fixedDelayString = "${library.availability-feed.poll-interval-ms:500}")
+    public void poll() {
+        try {
+            synchronized (cursor) {
+                while (true) {
+                    List<OutboxEvent> read = outboxEventRepository.findByIdGreaterThanOrderByIdAsc(
+                            cursor.getPosition(), PageRequest.of(0, BATCH_SIZE));
+                    List<OutboxEvent> batch = cursor.readable(read);
+                    if (subscriberCount.get() > 0) {
+                        publish(batch);
+                    }
+                    cursor.advance(batch);
+                    if (batch.size() < BATCH_SIZE) {
+                        return;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Availability feed: Failed to read the outbox", e);
+        }
+    }
+
+    // Only the latest change of each book in the batch is sent, so a burst of changes to one book
+    // does not fill the subscribers' buffers
+    private void publish(List<OutboxEvent> batch) {
+        Map<Integer, AvailabilityDelta> latest = new LinkedHashMap<>();
+        for (OutboxEvent row : batch) {
+            if (!"Book".equals(row.getAggregateType())) {
+                continue;
+            }
+            BookEvent event;
+            try {
+                event = objectMapper.readValue(row.getPayload(), BookEvent.class);
+            } catch (Exception e) {
+                logger.warn("Availability feed: Skipping unreadable outbox event {}", row.getId(), e);
+                continue;
+            }
+            boolean deleted = event.getType() == LibraryEventType.BOOK_DELETED;
+            latest.remove(event.getBookId());
+            latest.put(event.getBookId(), new AvailabilityDelta(event.getBookId(), !deleted && event.isAvailable(),
+                    deleted ? Integer.valueOf(0) : event.getAvailableCopies(), row.getId()));
+        }
+
+        latest.forEach((bookId, delta) -> {
+            allBooksSubscribers.forEach(subscriber -> enqueue(subscriber, delta));
+            Set<Subscriber> bookSubscribers = subscribersByBook.get(bookId);
+            if (bookSubscribers != null) {
+                bookSubscribers.forEach(subscriber -> enqueue(subscriber, delta));
+            }
+        });
+    }
+
+    /**
+     * Keeps idle connections open through proxies and detects clients that went away.
+     */
+    @Scheduled(fixedDelayString = "${library.availability-feed.heartbeat-ms:30000}")
+    public void heartbeat() {
+        allBooksSubscribers.forEach(subscriber -> enqueue(subscriber, HEARTBEAT));
+        subscribersByBook.values().forEach(subscribers -> subscribers.forEach(subscriber -> {
+            // Multi-book subscribers are reachable from several sets; a full buffer just skips the beat.
+            if (subscriber.buffer.isEmpty()) {
+                enqueue(subscriber, HEARTBEAT);
+            }
+        }));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+    }
+
+    private void enqueue(Subscriber subscriber, AvailabilityDelta delta) {
+        if (subscriber.closed.get()) {
+            return;
+        }
+        if (!subscriber.buffer.offer(delta)) {
+            if (delta != HEARTBEAT) {
+                logger.info("Availability feed: Evicting slow subscriber after {} buffered events", bufferSize);
+                evict(subscriber);
+            }
+            return;
+        }
+        if (subscriber.draining.compareAndSet(false, true)) {
+            dispatcher.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            AvailabilityDelta delta;
+            while ((delta = subscriber.buffer.peek()) != null && canWrite(subscriber)) {
+                subscriber.buffer.poll();
+                write(subscriber, delta == HEARTBEAT ? ":keep-alive\n\n"
+                        : "id:" + delta.getVersion() + "\nevent:availability\ndata:"
+                                + objectMapper.writeValueAsString(delta) + "\n\n");
+            }
+            // Otherwise onWritePossible drains again once the client has read what was sent
+            canWrite(subscriber);
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Availability feed: Dropping disconnected subscriber", e);
+            evict(subscriber);
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+
+        // An event may have been buffered between the last poll and releasing the flag.
+        if (!subscriber.writeBlocked && !subscriber.buffer.isEmpty() && subscriber.draining.compareAndSet(false, true)) {
+            dispatcher.execute(() -> drain(subscriber));
+        }
+    }
+
+    // Switches the stream to non-blocking writes on the first send, once the request is async, so
+    // a client that stops reading never holds a dispatcher thread. Where the container does not
+    // support it, sends block as before.
+    private void write(Subscriber subscriber, String text) throws IOException {
+        if (subscriber.output == null && subscriber.response != null) {
+            startNonBlocking(subscriber);
+        }
+        if (subscriber.output == null) {
+            subscriber.emitter.send(text, TEXT_PLAIN);
+            return;
+        }
+        subscriber.output.write(text.getBytes(StandardCharsets.UTF_8));
+        subscriber.flushPending = true;
+    }
+
+    // Flushes what was written if the stream is ready; false while the socket still holds earlier
+    // data, in which case onWritePossible follows
+    private boolean canWrite(Subscriber subscriber) throws IOException {
+        if (subscriber.output == null) {
+            return true;
+        }
+        subscriber.writeBlocked = true;
+        if (!subscriber.output.isReady()) {
+            return false;
+        }
+        if (subscriber.flushPending) {
+            subscriber.flushPending = false;
+            subscriber.output.flush();
+            if (!subscriber.output.isReady()) {
+                return false;
+            }
+        }
+        subscriber.writeBlocked = false;
+        return true;
+    }
+
+    private void startNonBlocking(Subscriber subscriber) throws IOException {
+        ServletOutputStream output = subscriber.response.getOutputStream();
+        try {
+            output.setWriteListener(new WriteListener() {
+                @Override
+                public void onWritePossible() {
+                    subscriber.writeBlocked = false;
+                    if (subscriber.draining.compareAndSet(false, true)) {
+                        dispatcher.execute(() -> drain(subscriber));
+                    }
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    logger.debug("Availability feed: Dropping disconnected subscriber", t);
+                    evict(subscriber);
+                }
+            });
+        } catch (IllegalStateException e) {
+            // Not async yet; the emitter holds sends until the stream starts
+            return;
+        } catch (UnsupportedOperationException e) {
+            logger.debug("Availability feed: Non-blocking writes not available, sending blocking", e);
+            subscriber.response = null;
+            return;
+        }
+        subscriber.output = output;
+    }
+
+    private void evict(Subscriber subscriber) {
+        unregister(subscriber);
+        try {
+            subscriber.emitter.complete();
+        } catch (Exception e) {
+            logger.debug("Availability feed: Failed to complete evicted subscriber", e);
+        }
+    }
+
+    private void unregister(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        subscriberCount.decrementAndGet();
+        if (subscriber.bookIds.isEmpty()) {
+            allBooksSubscribers.remove(subscriber);
+        } else {
+            subscriber.bookIds.forEach(bookId -> subscribersByBook.computeIfPresent(bookId, (id, subscribers) -> {
+                subscribers.remove(subscriber);
+                return subscribers.isEmpty() ? null : subscribers;
+            }));
+        }
+        subscriber.buffer.clear();
+    }
+
+    // Server-Sent Events stream whose events are written as preformatted text. SseEmitter writes an
+    // event in several parts and flushes each, which a non-blocking stream rejects midway.
+    private static final class EventStream extends ResponseBodyEmitter {
+        private EventStream(long timeout) {
+            super(timeout);
+        }
+
+        @Override
+        protected void extendResponse(ServerHttpResponse outputMessage) {
+            super.extendResponse(outputMessage);
+            if (outputMessage.getHeaders().getContentType() == null) {
+                outputMessage.getHeaders().setContentType(MediaType.TEXT_EVENT_STREAM);
+            }
+        }
+    }
+
+    private static final class Subscriber {
+        private final EventStream emitter;
+        private final Set<Integer> bookIds;
+        private final BlockingQueue<AvailabilityDelta> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // Only used by the thread that holds the draining flag
+        private HttpServletResponse response;
+        private ServletOutputStream output;
+        private boolean flushPending;
+        // The last write has not reached the socket yet; onWritePossible clears it
+        private volatile boolean writeBlocked;
+
+        private Subscriber(EventStream emitter, HttpServletResponse response, Set<Integer> bookIds, int bufferSize) {
+            this.emitter = emitter;
+            this.response = response;
+            this.bookIds = bookIds;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+}
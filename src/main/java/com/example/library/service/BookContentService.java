@@ -0,0 +1,170 @@
+package com.example.library.service;
+
+import com.example.library.model.BookContent;
+import com.example.library.repository.BookContentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compressed storage for book text in {@code book_content}. Books only carry the text on create/update;
+ * reading it goes through {@code GET /api/books/{id}/content}.
+ */
+@Service
+public class BookContentService {
+    private static final Logger logger = LoggerFactory.getLogger(BookContentService.class);
+    private static final int MIGRATION_BATCH_SIZE = 500;
+
+    private final BookContentRepository contentRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean migrateLegacy;
+
+    public BookContentService(BookContentRepository contentRepository, JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${library.book-content.migrate-legacy:false}") boolean migrateLegacy) {
+        this.contentRepository = contentRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.migrateLegacy = migrateLegacy;
+    }
+
+    /**
+     * Stores the text of a book. Null leaves the stored text unchanged, an empty string removes it.
+     */
+    @Transactional
+    public void putContent(Integer bookId, String text) {
+        if (text == null) {
+            return;
+        }
+        if (text.isEmpty()) {
+            deleteContent(bookId);
+            return;
+        }
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = deflate(utf8);
+        contentRepository.save(new BookContent(bookId, compressed, utf8.length, sha256(utf8), null));
+        logger.debug("Service: Stored content of book {} ({} bytes, {} compressed)", bookId, utf8.length, compressed.length);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<BookContent> getContent(Integer bookId) {
+        return contentRepository.findById(bookId);
+    }
+
+    @Transactional
+    public void deleteContent(Integer bookId) {
+        if (contentRepository.existsById(bookId)) {
+            contentRepository.deleteById(bookId);
+        }
+    }
+
+    // Uncompressed UTF-8 text
+    public byte[] decompress(BookContent content) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(content.getData());
+            byte[] utf8 = new byte[content.getByteLength()];
+            int length = 0;
+            while (length < utf8.length && !inflater.finished()) {
+                length += inflater.inflate(utf8, length, utf8.length - length);
+            }
+            if (length != utf8.length) {
+                throw new IllegalStateException("Content of book " + content.getBookId() + " is truncated");
+            }
+            return utf8;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Content of book " + content.getBookId() + " is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Moves text left in the old {@code book.content} column into {@code book_content}, in batches.
+     * Runs only with {@code library.book-content.migrate-legacy} set, which one node needs for one
+     * start after the upgrade; does nothing on databases created after the column was dropped from
+     * the mapping.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(WarmUpService.STARTUP_ORDER)
+    public void migrateLegacyContent() {
+        if (!migrateLegacy) {
+            return;
+        }
+        int migrated = 0;
+        try {
+            List<Integer> batch;
+            do {
+                batch = transactionTemplate.execute(status -> {
+                    List<Object[]> rows = jdbcTemplate.query(
+                            "SELECT id, content FROM book WHERE content IS NOT NULL ORDER BY id LIMIT " + MIGRATION_BATCH_SIZE,
+                            (rs, rowNum) -> new Object[] { rs.getInt(1), rs.getString(2) });
+                    for (Object[] row : rows) {
+                        Integer bookId = (Integer) row[0];
+                        if (!contentRepository.existsById(bookId)) {
+                            putContent(bookId, (String) row[1]);
+                        }
+                        jdbcTemplate.update("UPDATE book SET content = NULL WHERE id = ?", bookId);
+                    }
+                    return rows.stream().map(row -> (Integer) row[0]).toList();
+                });
+                migrated += batch.size();
+            } while (batch.size() == MIGRATION_BATCH_SIZE);
+        } catch (BadSqlGrammarException e) {
+            logger.debug("Book content: No legacy book.content column to migrate ({})", e.getMessage());
+            return;
+        } catch (DataAccessException e) {
+            logger.error("Book content: Moving legacy texts to book_content failed after {} texts, start again to move the rest",
+                    migrated, e);
+            return;
+        }
+        if (migrated > 0) {
+            logger.info("Book content: Moved {} texts from book.content to book_content", migrated);
+        }
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, input.length / 2));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static String sha256(byte[] input) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(input));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package com.example.library.service;
+
+import com.example.library.dto.BookFacets;
+import com.example.library.dto.StatEntry;
+import com.example.library.repository.AuthorRepository;
+import com.example.library.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Book counts by availability, publication decade, author and author nationality, kept in memory
+ * so browse pages get facets without a GROUP BY per request.
+ * Counters are built from the database on startup and on a schedule, and kept current in between
+ * by polling {@code catalog_change}, which records the book, author and availability changes of
+ * every node: the affected rows are re-read and the difference is applied. Re-reading (rather than
+ * trusting an event payload) keeps the counters right whatever order the changes commit in.
+ */
+@Service
+public class BookFacetService {
+    private static final Logger logger = LoggerFactory.getLogger(BookFacetService.class);
+
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final CatalogChangePoller changePoller;
+    private final TransactionTemplate transactionTemplate;
+
+    // Guards the fields below and the swap of the counters; never held while reading the database
+    private final Object writeLock = new Object();
+    private final Set<Integer> booksTouchedDuringRebuild = new HashSet<>();
+    private final Set<Integer> authorsTouchedDuringRebuild = new HashSet<>();
+    private boolean rebuilding;
+    // catalog_change rows up to this sequence number are applied
+    private long pollFrom;
+    private volatile Counters counters = new Counters();
+
+    public BookFacetService(BookRepository bookRepository, AuthorRepository authorRepository,
+            CatalogChangePoller changePoller, TransactionTemplate transactionTemplate) {
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.changePoller = changePoller;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(WarmUpService.STARTUP_ORDER)
+    public void buildOnStartup() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.error("Book facets: Initial build failed", e);
+        }
+    }
+
+    /**
+     * Safety net for changes that bypass {@code catalog_change} (e.g. direct SQL).
+     */
+    @Scheduled(cron = "${library.facets.rebuild-cron:0 15 4 * * *}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.error("Book facets: Scheduled rebuild failed", e);
+        }
+    }
+
+    /**
+     * Current facet counts; authors and nationalities are limited to the {@code limit} most frequent.
+     */
+    public BookFacets getFacets(int limit) {
+        Counters current = counters;
+        List<StatEntry> availability = new ArrayList<>();
+        availability.add(new StatEntry("true", "Available", current.availability.getOrDefault(true, 0L)));
+        availability.add(new StatEntry("false", "On loan", current.availability.getOrDefault(false, 0L)));
+
+        List<StatEntry> decades = current.decades.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(e -> new StatEntry(String.valueOf(e.getKey()), e.getKey() + "s", e.getValue()))
+                .toList();
+        List<StatEntry> authors = top(current.authorCounts, limit,
+                id -> new StatEntry(String.valueOf(id), current.authorName(id), 0));
+        List<StatEntry> nationalities = top(current.nationalities, limit,
+                nationality -> new StatEntry(nationality, nationality, 0));
+
+        return new BookFacets(current.totalBooks(), availability, decades, authors, nationalities);
+    }
+
+    public Map<String, Object> describe() {
+        Counters current = counters;
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("books", current.totalBooks());
+        info.put("authors", current.authors.size());
+        info.put("builtAt", current.builtAt);
+        return info;
+    }
+
+    /**
+     * Applies changes written by any node; re-reading an unchanged row changes no count.
+     */
+    @Scheduled(fixedDelayString = "${library.facets.poll-interval-ms:1000}")
+    public void pollChanges() {
+        long from;
+        synchronized (writeLock) {
+            if (counters.builtAt == null) {
+                return;
+            }
+            from = pollFrom;
+        }
+        try {
+            long to = changePoller.poll(from, (bookIds, authorIds) -> {
+                Changes changes = read(bookIds, authorIds);
+                synchronized (writeLock) {
+                    if (rebuilding) {
+                        booksTouchedDuringRebuild.addAll(bookIds);
+                        authorsTouchedDuringRebuild.addAll(authorIds);
+                    }
+                    changes.applyTo(counters);
+                }
+            });
+            synchronized (writeLock) {
+                pollFrom = Math.max(pollFrom, to);
+            }
+        } catch (Exception e) {
+            logger.error("Book facets: Failed to poll catalogue changes", e);
+        }
+    }
+
+    /**
+     * Recounts all facets from the database. Books and authors changed while it loads are
+     * re-read onto the new counters before they are swapped in.
+     *
+     * @return summary of the new counters
+     */
+    public synchronized Map<String, Object> rebuild() {
+        long started = System.nanoTime();
+        synchronized (writeLock) {
+            rebuilding = true;
+        }
+
+        try {
+            Counters built = new Counters();
+            Map<Integer, BookRow> rows = new HashMap<>();
+            Map<Integer, List<Integer>> links = new HashMap<>();
+            long[] changeLogPosition = new long[1];
+            transactionTemplate.executeWithoutResult(status -> {
+                changeLogPosition[0] = changePoller.currentPosition();
+                try (Stream<Object[]> authors = authorRepository.streamFacetInfo()) {
+                    authors.forEach(row -> built.authors.put((Integer) row[0],
+                            new AuthorInfo(name((String) row[1], (String) row[2]), (String) row[3])));
+                }
+                try (Stream<Object[]> books = bookRepository.streamFacetRows()) {
+                    books.forEach(row -> rows.put((Integer) row[0],
+                            new BookRow((Boolean) row[1], ((Number) row[2]).intValue(), new int[0])));
+                }
+                try (Stream<Object[]> bookAuthors = bookRepository.streamAuthorLinks()) {
+                    bookAuthors.forEach(row -> links.computeIfAbsent((Integer) row[0], id -> new ArrayList<>())
+                            .add((Integer) row[1]));
+                }
+            });
+            rows.forEach((id, row) -> built.putBook(id, new BookRow(row.available(), row.year(),
+                    links.getOrDefault(id, List.of()).stream().mapToInt(Integer::intValue).toArray())));
+
+            // The new counters are private to this thread until they are swapped in, so the rows
+            // changed meanwhile are re-read without the lock until no more arrive
+            int replayed = 0;
+            while (true) {
+                Set<Integer> bookIds;
+                Set<Integer> authorIds;
+                synchronized (writeLock) {
+                    if (booksTouchedDuringRebuild.isEmpty() && authorsTouchedDuringRebuild.isEmpty()) {
+                        built.builtAt = Instant.now();
+                        pollFrom = Math.max(pollFrom, changeLogPosition[0]);
+                        counters = built;
+                        rebuilding = false;
+                        break;
+                    }
+                    bookIds = new HashSet<>(booksTouchedDuringRebuild);
+                    authorIds = new HashSet<>(authorsTouchedDuringRebuild);
+                    booksTouchedDuringRebuild.clear();
+                    authorsTouchedDuringRebuild.clear();
+                }
+                replayed += bookIds.size() + authorIds.size();
+                read(bookIds, authorIds).applyTo(built);
+            }
+
+            long millis = (System.nanoTime() - started) / 1_000_000;
+            logger.info("Book facets: Counted {} books in {} ms (re-read {} changed rows)",
+                    built.totalBooks(), millis, replayed);
+            Map<String, Object> info = describe();
+            info.put("millis", millis);
+            return info;
+        } finally {
+            synchronized (writeLock) {
+                rebuilding = false;
+                booksTouchedDuringRebuild.clear();
+                authorsTouchedDuringRebuild.clear();
+            }
+        }
+    }
+
+    // Current rows of the given books and authors; empty for the ones that no longer exist
+    private Changes read(Set<Integer> bookIds, Set<Integer> authorIds) {
+        Changes changes = new Changes();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Integer authorId : authorIds) {
+                List<Object[]> found = authorRepository.findFacetInfo(authorId);
+                changes.authors.put(authorId, found.stream().findFirst()
+                        .map(row -> new AuthorInfo(name((String) row[0], (String) row[1]), (String) row[2])));
+            }
+            for (Integer bookId : bookIds) {
+                List<Object[]> found = bookRepository.findFacetRow(bookId);
+                changes.books.put(bookId, found.stream().findFirst().map(row -> new BookRow((Boolean) row[0],
+                        ((Number) row[1]).intValue(),
+                        bookRepository.findAuthorIds(bookId).stream().mapToInt(Integer::intValue).toArray())));
+            }
+        });
+        return changes;
+    }
+
+    private static <K> List<StatEntry> top(Map<K, Long> counts, int limit, Function<K, StatEntry> entry) {
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<K, Long>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(e -> String.valueOf(e.getKey())))
+                .limit(limit)
+                .map(e -> {
+                    StatEntry stat = entry.apply(e.getKey());
+                    stat.setCount(e.getValue());
+                    return stat;
+                })
+                .toList();
+    }
+
+    private static String name(String firstName, String lastName) {
+        return (firstName + " " + lastName).trim();
+    }
+
+    private record BookRow(boolean available, int year, int[] authorIds) {
+    }
+
+    private record AuthorInfo(String name, String nationality) {
+    }
+
+    private static final class Changes {
+        private final Map<Integer, Optional<BookRow>> books = new HashMap<>();
+        private final Map<Integer, Optional<AuthorInfo>> authors = new HashMap<>();
+
+        // Authors first, so the books' nationality counts use the new author rows
+        private void applyTo(Counters target) {
+            authors.forEach((id, info) -> {
+                if (info.isPresent()) {
+                    target.putAuthor(id, info.get());
+                } else {
+                    target.removeAuthor(id);
+                }
+            });
+            books.forEach((id, row) -> {
+                if (row.isPresent()) {
+                    target.putBook(id, row.get());
+                } else {
+                    target.removeBook(id);
+                }
+            });
+        }
+    }
+
+    /**
+     * Book rows are the source of each counter contribution: a change removes the old row's counts and
+     * adds the new row's. Mutated by one writer at a time; counter maps are concurrent for readers.
+     */
+    private static final class Counters {
+        private final Map<Integer, BookRow> books = new HashMap<>();
+        private final Map<Integer, AuthorInfo> authors = new ConcurrentHashMap<>();
+        private final Map<Boolean, Long> availability = new ConcurrentHashMap<>();
+        private final Map<Integer, Long> decades = new ConcurrentHashMap<>();
+        private final Map<Integer, Long> authorCounts = new ConcurrentHashMap<>();
+        private final Map<String, Long> nationalities = new ConcurrentHashMap<>();
+        private volatile Instant builtAt;
+
+        private long totalBooks() {
+            return availability.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        private String authorName(Integer authorId) {
+            AuthorInfo info = authors.get(authorId);
+            return info != null ? info.name() : String.valueOf(authorId);
+        }
+
+        private void putBook(Integer bookId, BookRow row) {
+            BookRow previous = books.put(bookId, row);
+            if (previous != null) {
+                count(previous, -1);
+            }
+            count(row, 1);
+        }
+
+        private void removeBook(Integer bookId) {
+            BookRow previous = books.remove(bookId);
+            if (previous != null) {
+                count(previous, -1);
+            }
+        }
+
+        private void putAuthor(Integer authorId, AuthorInfo info) {
+            AuthorInfo previous = authors.get(authorId);
+            if (previous != null && Objects.equals(previous.nationality(), info.nationality())) {
+                authors.put(authorId, info);
+                return;
+            }
+            List<BookRow> affected = booksOf(authorId);
+            affected.forEach(row -> countNationalities(row, -1));
+            authors.put(authorId, info);
+            affected.forEach(row -> countNationalities(row, 1));
+        }
+
+        private void removeAuthor(Integer authorId) {
+            for (Map.Entry<Integer, BookRow> entry : new ArrayList<>(books.entrySet())) {
+                BookRow row = entry.getValue();
+                if (contains(row.authorIds(), authorId)) {
+                    int[] remaining = Arrays.stream(row.authorIds()).filter(id -> id != authorId).toArray();
+                    putBook(entry.getKey(), new BookRow(row.available(), row.year(), remaining));
+                }
+            }
+            authors.remove(authorId);
+        }
+
+        private List<BookRow> booksOf(Integer authorId) {
+            return books.values().stream().filter(row -> contains(row.authorIds(), authorId)).toList();
+        }
+
+        private void count(BookRow row, int delta) {
+            bump(availability, row.available(), delta);
+            bump(decades, Math.floorDiv(row.year(), 10) * 10, delta);
+            for (int authorId : row.authorIds()) {
+                bump(authorCounts, authorId, delta);
+            }
+            countNationalities(row, delta);
+        }
+
+        // A book counts once per distinct nationality among its authors
+        private void countNationalities(BookRow row, int delta) {
+            Set<String> seen = new LinkedHashSet<>();
+            for (int authorId : row.authorIds()) {
+                AuthorInfo info = authors.get(authorId);
+                if (info != null && info.nationality() != null && !info.nationality().isBlank()) {
+                    seen.add(info.nationality());
+                }
+            }
+            seen.forEach(nationality -> bump(nationalities, nationality, delta));
+        }
+
+        private static boolean contains(int[] ids, int id) {
+            for (int candidate : ids) {
+                if (candidate == id) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static <K> void bump(Map<K, Long> counts, K key, int delta) {
+            counts.merge(key, (long) delta, (a, b) -> a + b == 0 ? null : a + b);
+        }
+    }
+}
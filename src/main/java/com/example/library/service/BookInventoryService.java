@@ -0,0 +1,100 @@
+package com.example.library.service;
+
+import com.example.library.model.Book;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+/**
+ * Copy counters of a title. Borrowing and returning change {@code available_copies} with a single
+ * conditional UPDATE, so two borrows of the last copy cannot both succeed. The UPDATE also bumps the
+ * book's version, so an update through the entity that read the old counts fails its optimistic lock
+ * instead of writing them back.
+ */
+@Service
+public class BookInventoryService {
+    private static final Logger logger = LoggerFactory.getLogger(BookInventoryService.class);
+    // `available` is assigned first: MySQL evaluates SET left to right, so later terms see new values
+    private static final String TAKE_COPY = "UPDATE book SET available = (available_copies > 1), "
+            + "available_copies = available_copies - 1, version = version + 1, updated_at = ? "
+            + "WHERE id = ? AND available_copies > 0";
+    private static final String RETURN_COPY = "UPDATE book SET available = TRUE, "
+            + "available_copies = available_copies + 1, version = version + 1, updated_at = ? "
+            + "WHERE id = ? AND available_copies < total_copies";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SessionFactory sessionFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public BookInventoryService(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    /**
+     * Takes a copy of {@code book} off the shelf and refreshes it with the new counts.
+     *
+     * @return false if no copy is available (nothing is changed)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean takeCopy(Book book) {
+        if (!update(TAKE_COPY, book)) {
+            logger.debug("Service: No copy of book {} available", book.getId());
+            return false;
+        }
+        logger.debug("Service: Copy of book {} taken, {} of {} left", book.getId(),
+                book.getAvailableCopies(), book.getTotalCopies());
+        return true;
+    }
+
+    /**
+     * Puts a copy of {@code book} back on the shelf and refreshes it with the new counts.
+     *
+     * @return false if all copies were already on the shelf (nothing is changed)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean returnCopy(Book book) {
+        if (!update(RETURN_COPY, book)) {
+            logger.warn("Service: All {} copies of book {} are already on the shelf", book.getTotalCopies(), book.getId());
+            return false;
+        }
+        logger.debug("Service: Copy of book {} returned, {} of {} available", book.getId(),
+                book.getAvailableCopies(), book.getTotalCopies());
+        return true;
+    }
+
+    private boolean update(String sql, Book book) {
+        if (jdbcTemplate.update(sql, Timestamp.from(Instant.now()), book.getId()) == 0) {
+            return false;
+        }
+        evictAfterCompletion(book.getId());
+        entityManager.refresh(book);
+        return true;
+    }
+
+    // The JDBC update bypasses the second-level cache. The refresh may cache the uncommitted counts,
+    // so the entry is dropped once the transaction has committed or rolled back.
+    private void evictAfterCompletion(Integer bookId) {
+        sessionFactory.getCache().evictEntityData(Book.class, bookId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                sessionFactory.getCache().evictEntityData(Book.class, bookId);
+            }
+        });
+    }
+}
@@ -1,11 +1,20 @@
 package com.example.library.service;
 
+import com.example.library.dto.BookFilter;
+import com.example.library.event.BookEvent;
+import com.example.library.event.LibraryEventType;
+import com.example.library.event.OutboxService;
 import com.example.library.model.Author;
 import com.example.library.model.Book;
 import com.example.library.repository.BookRepository;
+import com.example.library.repository.BookSpecifications;
+import com.example.library.util.SingleFlight;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.HashSet;
@@ -17,9 +26,17 @@ import java.util.Set;
 public class BookService {
     private static final Logger logger = LoggerFactory.getLogger(BookService.class);
     private final BookRepository bookRepository;
+    private final OutboxService outboxService;
+    private final BookContentService contentService;
+    private final SingleFlight<Integer, Optional<Book>> bookLoads;
 
-    public BookService(BookRepository bookRepository) {
+    public BookService(BookRepository bookRepository, OutboxService outboxService, BookContentService contentService,
+            @Value("${library.single-flight.max-in-flight:10000}") int maxInFlight,
+            @Value("${library.single-flight.timeout-ms:2000}") long timeoutMs) {
         this.bookRepository = bookRepository;
+        this.outboxService = outboxService;
+        this.contentService = contentService;
+        this.bookLoads = new SingleFlight<>(maxInFlight, timeoutMs);
     }
 
     /**
@@ -35,11 +52,23 @@ public class BookService {
     }
 
     /**
-     * Get a single book by ID
+     * Filtered book page; only the whitelisted filters and sort keys of {@link BookSpecifications} are used.
+     */
+    public Page<Book> searchBooks(BookFilter filter, Pageable pageable) {
+        logger.debug("Service: Searching books - filter: {}, page: {}, size: {}",
+                filter, pageable.getPageNumber(), pageable.getPageSize());
+        Page<Book> books = bookRepository.findAll(BookSpecifications.matching(filter), pageable);
+        logger.debug("Service: Found {} books out of {} matching", books.getNumberOfElements(), books.getTotalElements());
+        return books;
+    }
+
+    /**
+     * Get a single book by ID. Concurrent lookups of the same ID share one database load; they get a
+     * detached copy, never the entity managed by the loading request's session, and it is read-only.
      */
     public Optional<Book> getBookById(Integer id) {
         logger.debug("Service: Fetching book with id: {}", id);
-        Optional<Book> book = bookRepository.findById(id);
+        Optional<Book> book = bookLoads.load(id, () -> bookRepository.findById(id).map(BookService::detachedCopy));
         if (book.isPresent()) {
             logger.debug("Service: Found book: {}", book.get().getTitle());
         } else {
@@ -48,13 +77,32 @@ public class BookService {
         return book;
     }
 
+    private static Book detachedCopy(Book book) {
+        Book copy = new Book();
+        copy.setId(book.getId());
+        copy.setTitle(book.getTitle());
+        copy.setAuthor(book.getAuthor());
+        copy.setPublicationYear(book.getPublicationYear());
+        copy.setIsbn(book.getIsbn());
+        copy.setAvailable(book.isAvailable());
+        copy.setTotalCopies(book.getTotalCopies());
+        copy.setAvailableCopies(book.getAvailableCopies());
+        copy.setVersion(book.getVersion());
+        copy.setUpdatedAt(book.getUpdatedAt());
+        copy.setAuthors(CatalogReadModel.authorSet(book.getAuthors().stream().map(AuthorService::detachedCopy).toList()));
+        return copy;
+    }
+
     /**
      * Save a new book to the database
      */
+    @Transactional
     public Book createBook(Book book) {
         logger.info("Service: Creating new book - Title: {}, Author: {}", book.getTitle(), book.getAuthor());
         book.setAvailable(true);
         Book savedBook = bookRepository.save(book);
+        contentService.putContent(savedBook.getId(), book.getContent());
+        outboxService.record(BookEvent.of(LibraryEventType.BOOK_CREATED, savedBook));
         logger.info("Service: Book created successfully with ID: {}", savedBook.getId());
         return savedBook;
     }
@@ -62,31 +110,42 @@ public class BookService {
     /**
      * Save multiple books to the database
      */
+    @Transactional
     public List<Book> createMultipleBooks(List<Book> books) {
         logger.info("Service: Creating {} books in bulk", books.size());
         books.forEach(book -> book.setAvailable(true));
         List<Book> savedBooks = bookRepository.saveAll(books);
+        savedBooks.forEach(book -> contentService.putContent(book.getId(), book.getContent()));
+        savedBooks.forEach(book -> outboxService.record(BookEvent.of(LibraryEventType.BOOK_CREATED, book)));
         logger.info("Service: {} books created successfully", savedBooks.size());
         return savedBooks;
     }
 
     /**
      * Update an existing book in the database
+     *
+     * @param expectedVersion version the client last read (from If-Match), or null to update unconditionally
      */
-    public Book updateBook(Integer id, Book updatedBook) {
+    @Transactional
+    public Book updateBook(Integer id, Book updatedBook, Long expectedVersion) {
         logger.info("Service: Updating book with id: {}", id);
         Book book = bookRepository.findById(id)
                 .orElseThrow(() -> {
                     logger.warn("Service: Book not found for update with id: {}", id);
                     return new IllegalArgumentException("Book with id " + id + " not found");
                 });
+        if (expectedVersion != null && book.getVersion() != expectedVersion) {
+            logger.warn("Service: Book {} is at version {}, expected {}", id, book.getVersion(), expectedVersion);
+            throw new OptimisticLockingFailureException("Book with id " + id + " has been modified");
+        }
 
         book.setTitle(updatedBook.getTitle());
         book.setAuthor(updatedBook.getAuthor());
-        book.setContent(updatedBook.getContent());
         book.setPublicationYear(updatedBook.getPublicationYear());
         book.setIsbn(updatedBook.getIsbn());
-        book.setAvailable(updatedBook.isAvailable());
+        if (updatedBook.getTotalCopies() != null) {
+            setTotalCopies(book, updatedBook.getTotalCopies());
+        }
 
         // Update authors relationship
         if (updatedBook.getAuthors() != null && !updatedBook.getAuthors().isEmpty()) {
@@ -95,6 +154,9 @@ public class BookService {
         }
 
         Book savedBook = bookRepository.save(book);
+        // Content is not part of the book read by clients, so an omitted content keeps the stored text
+        contentService.putContent(id, updatedBook.getContent());
+        outboxService.record(BookEvent.of(LibraryEventType.BOOK_UPDATED, savedBook));
         logger.info("Service: Book updated successfully with id: {}", id);
         return savedBook;
     }
@@ -102,6 +164,7 @@ public class BookService {
     /**
      * Delete a book from the database
      */
+    @Transactional
     public void deleteBook(Integer id) {
         logger.info("Service: Deleting book with id: {}", id);
         if (!bookRepository.existsById(id)) {
@@ -109,6 +172,8 @@ public class BookService {
             throw new IllegalArgumentException("Book with id " + id + " not found");
         }
         bookRepository.deleteById(id);
+        contentService.deleteContent(id);
+        outboxService.record(BookEvent.deleted(id));
         logger.info("Service: Book deleted successfully with id: {}", id);
     }
 
@@ -118,4 +183,16 @@ public class BookService {
     public boolean bookExists(Integer id) {
         return bookRepository.existsById(id);
     }
+
+    // Copies on loan stay on loan; the difference goes to or comes off the shelf
+    private static void setTotalCopies(Book book, int totalCopies) {
+        int onLoan = book.getTotalCopies() - book.getAvailableCopies();
+        if (totalCopies < onLoan) {
+            throw new IllegalStateException("Book with id " + book.getId() + " has " + onLoan
+                    + " copies on loan, total copies cannot be less");
+        }
+        book.setTotalCopies(totalCopies);
+        book.setAvailableCopies(totalCopies - onLoan);
+        book.setAvailable(totalCopies > onLoan);
+    }
 }
@@ -0,0 +1,345 @@
+package com.example.library.service;
+
+import com.example.library.dto.Suggestion;
+import com.example.library.repository.AuthorRepository;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.LoanArchiveRepository;
+import com.example.library.repository.LoanRepository;
+import com.example.library.util.PrefixIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Typeahead over book titles and author names. Queries hit an immutable {@link PrefixIndex} built in
+ * the background and swapped atomically; book and author changes since the build, picked up from
+ * {@code catalog_change} for every node, are kept in a small overlay that is merged into each
+ * result. Once the overlay grows past {@code library.suggest.max-pending-changes} the index is rebuilt.
+ */
+@Service
+public class BookSuggestService {
+    private static final Logger logger = LoggerFactory.getLogger(BookSuggestService.class);
+    private static final String BOOK = "BOOK";
+    private static final String AUTHOR = "AUTHOR";
+    private static final int MAX_WORD_KEYS = 8;
+    // Most borrowed first, then shorter and alphabetical
+    private static final Comparator<Entry> RANK = Comparator.comparingLong(Entry::weight).reversed()
+            .thenComparingInt(entry -> entry.text().length())
+            .thenComparing(Entry::text);
+
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final LoanRepository loanRepository;
+    private final LoanArchiveRepository loanArchiveRepository;
+    private final CatalogChangePoller changePoller;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxPendingChanges;
+
+    private final Object writeLock = new Object();
+    private final List<Entry> upsertsDuringRebuild = new ArrayList<>();
+    private final List<String> removalsDuringRebuild = new ArrayList<>();
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    private boolean rebuilding;
+    private boolean built;
+    // catalog_change rows up to this sequence number are applied
+    private long pollFrom;
+    private volatile State state = new State(PrefixIndex.empty(RANK), Map.of(), Map.of());
+
+    public BookSuggestService(BookRepository bookRepository, AuthorRepository authorRepository,
+            LoanRepository loanRepository, LoanArchiveRepository loanArchiveRepository, CatalogChangePoller changePoller,
+            TransactionTemplate transactionTemplate,
+            @Value("${library.suggest.max-pending-changes:2000}") int maxPendingChanges) {
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.loanRepository = loanRepository;
+        this.loanArchiveRepository = loanArchiveRepository;
+        this.changePoller = changePoller;
+        this.transactionTemplate = transactionTemplate;
+        this.maxPendingChanges = maxPendingChanges;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(WarmUpService.STARTUP_ORDER)
+    public void buildOnStartup() {
+        rebuildInBackground();
+    }
+
+    // Also refreshes the popularity ranking, which events do not touch
+    @Scheduled(cron = "${library.suggest.rebuild-cron:0 20 4 * * *}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.error("Suggest: Scheduled rebuild failed", e);
+        }
+    }
+
+    /**
+     * Titles and author names with a word starting with {@code prefix}, best first.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String normalized = PrefixIndex.normalize(prefix);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        State current = state;
+        List<Entry> found = new ArrayList<>(current.index.top(normalized, limit,
+                entry -> !current.removed.contains(entry.key()) && !current.upserts.containsKey(entry.key())));
+        for (Entry entry : current.upserts.values()) {
+            if (entry.keys().stream().anyMatch(key -> key.startsWith(normalized))) {
+                found.add(entry);
+            }
+        }
+        return found.stream()
+                .sorted(RANK)
+                .limit(limit)
+                .map(entry -> new Suggestion(entry.type(), entry.id(), entry.text()))
+                .toList();
+    }
+
+    public Map<String, Object> describe() {
+        State current = state;
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("entries", current.index.size());
+        info.put("pendingChanges", current.upserts.size() + current.removed.size());
+        info.put("builtAt", current.builtAt);
+        return info;
+    }
+
+    /**
+     * Applies book and author changes written by any node; a title or name that did not change
+     * (e.g. after a borrow) is not added to the overlay.
+     */
+    @Scheduled(fixedDelayString = "${library.suggest.poll-interval-ms:1000}")
+    public void pollChanges() {
+        long from;
+        synchronized (writeLock) {
+            if (!built) {
+                return;
+            }
+            from = pollFrom;
+        }
+        try {
+            long to = changePoller.poll(from, (bookIds, authorIds) -> {
+                apply(BOOK, bookIds, readTitles(bookIds));
+                apply(AUTHOR, authorIds, readNames(authorIds));
+            });
+            synchronized (writeLock) {
+                pollFrom = Math.max(pollFrom, to);
+            }
+        } catch (Exception e) {
+            logger.error("Suggest: Failed to poll catalogue changes", e);
+        }
+        rebuildIfOverlayFull();
+    }
+
+    /**
+     * Builds a new index from the database and swaps it in. Changes committed while it loads are
+     * replayed onto the new overlay.
+     *
+     * @return summary of the new index
+     */
+    public synchronized Map<String, Object> rebuild() {
+        long started = System.nanoTime();
+        synchronized (writeLock) {
+            rebuilding = true;
+        }
+
+        try {
+            Map<String, Long> weights = new HashMap<>();
+            List<Entry> entries = new ArrayList<>();
+            long[] changeLogPosition = new long[1];
+            transactionTemplate.executeWithoutResult(status -> {
+                changeLogPosition[0] = changePoller.currentPosition();
+                addLoans(weights, BOOK, loanRepository.countLoansByBook());
+                addLoans(weights, BOOK, loanArchiveRepository.countLoansByBook());
+                addLoans(weights, AUTHOR, loanRepository.countLoansByAuthor());
+                addLoans(weights, AUTHOR, loanArchiveRepository.countLoansByAuthor());
+                try (Stream<Object[]> books = bookRepository.streamTitles()) {
+                    books.forEach(row -> entries.add(entry(BOOK, (Integer) row[0], (String) row[1], weights)));
+                }
+                try (Stream<Object[]> authors = authorRepository.streamFacetInfo()) {
+                    authors.forEach(row -> entries.add(entry(AUTHOR, (Integer) row[0],
+                            fullName((String) row[1], (String) row[2]), weights)));
+                }
+            });
+            Map<String, String> texts = new HashMap<>();
+            entries.forEach(entry -> texts.put(entry.key(), entry.text()));
+            State next = new State(PrefixIndex.build(entries, Entry::keys, RANK), weights, texts);
+
+            int replayed;
+            synchronized (writeLock) {
+                upsertsDuringRebuild.forEach(next::upsert);
+                removalsDuringRebuild.forEach(next::remove);
+                replayed = upsertsDuringRebuild.size() + removalsDuringRebuild.size();
+                pollFrom = Math.max(pollFrom, changeLogPosition[0]);
+                built = true;
+                state = next;
+            }
+
+            long millis = (System.nanoTime() - started) / 1_000_000;
+            logger.info("Suggest: Indexed {} titles and names in {} ms (replayed {} changes)",
+                    entries.size(), millis, replayed);
+            Map<String, Object> info = describe();
+            info.put("millis", millis);
+            return info;
+        } finally {
+            synchronized (writeLock) {
+                rebuilding = false;
+                upsertsDuringRebuild.clear();
+                removalsDuringRebuild.clear();
+            }
+        }
+    }
+
+    // Current titles of the given books; books that no longer exist are missing
+    private Map<Integer, String> readTitles(Set<Integer> bookIds) {
+        Map<Integer, String> titles = new HashMap<>();
+        if (!bookIds.isEmpty()) {
+            bookRepository.findTitlesByIds(bookIds).forEach(row -> titles.put((Integer) row[0], (String) row[1]));
+        }
+        return titles;
+    }
+
+    private Map<Integer, String> readNames(Set<Integer> authorIds) {
+        Map<Integer, String> names = new HashMap<>();
+        if (!authorIds.isEmpty()) {
+            authorRepository.findAllById(authorIds).forEach(author -> names.put(author.getId(), author.getFullName()));
+        }
+        return names;
+    }
+
+    // Read outside the lock; only the overlay update holds it
+    private void apply(String type, Set<Integer> ids, Map<Integer, String> texts) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        synchronized (writeLock) {
+            State current = state;
+            for (Integer id : ids) {
+                String key = key(type, id);
+                String text = texts.get(id);
+                if (Objects.equals(current.textOf(key), text)) {
+                    continue;
+                }
+                if (text == null) {
+                    if (rebuilding) {
+                        removalsDuringRebuild.add(key);
+                    }
+                    current.remove(key);
+                } else {
+                    Entry entry = entry(type, id, text, current.weights);
+                    if (rebuilding) {
+                        upsertsDuringRebuild.add(entry);
+                    }
+                    current.upsert(entry);
+                }
+            }
+        }
+    }
+
+    private void rebuildIfOverlayFull() {
+        State current = state;
+        if (current.upserts.size() + current.removed.size() > maxPendingChanges) {
+            rebuildInBackground();
+        }
+    }
+
+    private void rebuildInBackground() {
+        if (!rebuildQueued.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                logger.error("Suggest: Index build failed", e);
+            } finally {
+                rebuildQueued.set(false);
+            }
+        }, "suggest-index-build");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static Entry entry(String type, Integer id, String text, Map<String, Long> weights) {
+        String value = text != null ? text : "";
+        return new Entry(type, id, value, weights.getOrDefault(key(type, id), 0L),
+                PrefixIndex.wordKeys(value, MAX_WORD_KEYS));
+    }
+
+    private static void addLoans(Map<String, Long> weights, String type, List<Object[]> counts) {
+        counts.forEach(row -> weights.merge(key(type, (Integer) row[0]), ((Number) row[1]).longValue(), Long::sum));
+    }
+
+    private static String key(String type, Integer id) {
+        return type + ":" + id;
+    }
+
+    // Same format as Author.getFullName()
+    private static String fullName(String firstName, String lastName) {
+        return firstName + " " + lastName;
+    }
+
+    // keys are the normalized word keys of text, computed once
+    private record Entry(String type, int id, String text, long weight, List<String> keys) {
+        private String key() {
+            return BookSuggestService.key(type, id);
+        }
+    }
+
+    private static final class State {
+        private final PrefixIndex<Entry> index;
+        // Loan counts at build time, reused for entries patched in afterwards
+        private final Map<String, Long> weights;
+        // Indexed text by key, to tell whether a polled change touched the title or name
+        private final Map<String, String> texts;
+        private final Map<String, Entry> upserts = new ConcurrentHashMap<>();
+        private final Set<String> removed = ConcurrentHashMap.newKeySet();
+        private final Instant builtAt = Instant.now();
+
+        private State(PrefixIndex<Entry> index, Map<String, Long> weights, Map<String, String> texts) {
+            this.index = index;
+            this.weights = weights;
+            this.texts = texts;
+        }
+
+        // Text currently suggested for the key, null when it is not suggested
+        private String textOf(String key) {
+            Entry upserted = upserts.get(key);
+            if (upserted != null) {
+                return upserted.text();
+            }
+            return removed.contains(key) ? null : texts.get(key);
+        }
+
+        private void upsert(Entry entry) {
+            upserts.put(entry.key(), entry);
+            removed.remove(entry.key());
+        }
+
+        private void remove(String key) {
+            upserts.remove(key);
+            removed.add(key);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.library.service;
+
+import com.example.library.dto.CacheRegionStats;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads per-region hit ratios of the Hibernate second-level and query caches.
+ */
+@Service
+public class CacheStatisticsService {
+    private static final Logger logger = LoggerFactory.getLogger(CacheStatisticsService.class);
+
+    private final SessionFactory sessionFactory;
+
+    public CacheStatisticsService(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    public List<CacheRegionStats> getRegionStats() {
+        Statistics statistics = sessionFactory.getStatistics();
+        List<CacheRegionStats> regions = new ArrayList<>();
+        String[] names = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(names);
+        for (String name : names) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(name);
+            if (region != null) {
+                regions.add(toStats(name, region.getHitCount(), region.getMissCount(), region.getPutCount(),
+                        region.getElementCountInMemory()));
+            }
+        }
+        return regions;
+    }
+
+    /**
+     * Totals over all query cache regions; update timestamps are checked on every cached query.
+     */
+    public CacheRegionStats getQueryCacheStats() {
+        Statistics statistics = sessionFactory.getStatistics();
+        return toStats("query-cache", statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount(),
+                statistics.getQueryCachePutCount(), CacheRegionStatistics.NO_EXTENDED_STAT_SUPPORT_RETURN);
+    }
+
+    /**
+     * Drops all entries of a region, e.g. after editing data directly in the database.
+     *
+     * @throws IllegalArgumentException if the region does not exist
+     */
+    public void evictRegion(String region) {
+        if (!Arrays.asList(sessionFactory.getStatistics().getSecondLevelCacheRegionNames()).contains(region)) {
+            throw new IllegalArgumentException("Unknown cache region: " + region);
+        }
+        logger.info("Service: Evicting cache region {}", region);
+        sessionFactory.getCache().evictRegion(region);
+    }
+
+    private static CacheRegionStats toStats(String name, long hits, long misses, long puts, long entries) {
+        long lookups = hits + misses;
+        double ratio = lookups == 0 ? 0 : Math.round(hits * 10000.0 / lookups) / 10000.0;
+        // Ehcache does not report region sizes through Hibernate
+        Long inMemory = entries == CacheRegionStatistics.NO_EXTENDED_STAT_SUPPORT_RETURN ? null : entries;
+        return new CacheRegionStats(name, hits, misses, puts, ratio, inMemory);
+    }
+}
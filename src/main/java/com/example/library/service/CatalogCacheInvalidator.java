@@ -0,0 +1,62 @@
+package com.example.library.service;
+
+import com.example.library.model.Author;
+import com.example.library.model.Book;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops second-level cache entries of books and authors changed on other nodes. Hibernate only
+ * evicts on the node that wrote, and borrows and returns change the copy counts with JDBC, so
+ * without this another node keeps serving the old counts until the entry expires. Every such
+ * change is in {@code catalog_change}, which this polls like the in-memory views do.
+ */
+@Component
+public class CatalogCacheInvalidator {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogCacheInvalidator.class);
+    private static final String BOOK_AUTHORS = Book.class.getName() + ".authors";
+    private static final String AUTHOR_BOOKS = Author.class.getName() + ".books";
+
+    private final CatalogChangePoller changePoller;
+    private final Cache cache;
+    // catalog_change rows up to this sequence number are evicted
+    private long pollFrom;
+
+    public CatalogCacheInvalidator(CatalogChangePoller changePoller, EntityManagerFactory entityManagerFactory) {
+        this.changePoller = changePoller;
+        this.cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+
+    /**
+     * Starts at the end of the log: the cache is empty, so nothing before it can be cached.
+     */
+    @PostConstruct
+    public synchronized void startAtEnd() {
+        pollFrom = changePoller.currentPosition();
+    }
+
+    @Scheduled(fixedDelayString = "${library.cache.invalidation-poll-interval-ms:1000}")
+    public synchronized void pollChanges() {
+        try {
+            pollFrom = changePoller.poll(pollFrom, (bookIds, authorIds) -> {
+                for (Integer id : bookIds) {
+                    cache.evictEntityData(Book.class, id);
+                    cache.evictCollectionData(BOOK_AUTHORS, id);
+                }
+                for (Integer id : authorIds) {
+                    cache.evictEntityData(Author.class, id);
+                    cache.evictCollectionData(AUTHOR_BOOKS, id);
+                }
+                logger.debug("Cache: Evicted {} changed books and {} changed authors", bookIds.size(), authorIds.size());
+            });
+        } catch (Exception e) {
+            logger.error("Cache: Failed to poll catalogue changes", e);
+        }
+    }
+}
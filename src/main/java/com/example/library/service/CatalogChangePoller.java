@@ -0,0 +1,60 @@
+package com.example.library.service;
+
+import com.example.library.model.CatalogChange;
+import com.example.library.repository.CatalogChangeRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads {@code catalog_change} for the in-memory views of the catalogue (read model, facets,
+ * typeahead), which each keep their own position. Sequence numbers become visible in the order
+ * they were assigned (see {@link CatalogSyncService}), so every row up to the highest one read is
+ * final: no lower number can still commit, and a missing one was replaced by a later change.
+ */
+@Component
+public class CatalogChangePoller {
+    private static final int BATCH_SIZE = 1000;
+
+    private final CatalogChangeRepository catalogChangeRepository;
+
+    public CatalogChangePoller(CatalogChangeRepository catalogChangeRepository) {
+        this.catalogChangeRepository = catalogChangeRepository;
+    }
+
+    /**
+     * Position to poll from after loading the catalogue in the same transaction: the load saw every
+     * change up to it.
+     */
+    public long currentPosition() {
+        return catalogChangeRepository.findMaxSeq();
+    }
+
+    /**
+     * Passes the ids of the books and authors changed after {@code from} to {@code apply}, a batch
+     * at a time in sequence order.
+     *
+     * @return the position after the last row read, {@code from} when there was none
+     */
+    public long poll(long from, BiConsumer<Set<Integer>, Set<Integer>> apply) {
+        long position = from;
+        List<CatalogChange> rows;
+        do {
+            rows = catalogChangeRepository.findBySeqGreaterThanOrderBySeqAsc(position, PageRequest.of(0, BATCH_SIZE));
+            Set<Integer> bookIds = new HashSet<>();
+            Set<Integer> authorIds = new HashSet<>();
+            for (CatalogChange row : rows) {
+                (CatalogChange.BOOK.equals(row.getEntityType()) ? bookIds : authorIds).add(row.getEntityId());
+            }
+            if (!rows.isEmpty()) {
+                apply.accept(bookIds, authorIds);
+                position = rows.get(rows.size() - 1).getSeq();
+            }
+        } while (rows.size() == BATCH_SIZE);
+        return position;
+    }
+}
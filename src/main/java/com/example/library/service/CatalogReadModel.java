@@ -0,0 +1,656 @@
+package com.example.library.service;
+
+import com.example.library.event.AuthorEvent;
+import com.example.library.event.BookEvent;
+import com.example.library.model.Author;
+import com.example.library.model.Book;
+import com.example.library.repository.AuthorRepository;
+import com.example.library.repository.BookRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * In-memory copy of the catalogue (books, authors and their links) that serves the public catalogue
+ * GETs without a database connection. It is built from the database in the background on startup
+ * and published as immutable {@link CatalogSnapshot}s; each committed change publishes a new one.
+ * <p>
+ * Changes are re-read from the database rather than taken from the event payload, like the facet
+ * counters. Book and author events of this node apply right after commit. Changes made by other
+ * nodes are picked up by polling {@code catalog_change}, which records every catalogue change in
+ * the writing transaction. Until the first build finishes, callers fall back to the database.
+ * <p>
+ * The latest snapshot is also written to {@code library.read-model.snapshot-file.path} now and then
+ * and on shutdown. A restarted node loads that file before it serves requests and catches up from
+ * the change log, instead of reading the whole catalogue from the database.
+ */
+@Service
+public class CatalogReadModel {
+    public static final String SNAPSHOT_HEADER = "Catalog-Snapshot";
+    private static final Logger logger = LoggerFactory.getLogger(CatalogReadModel.class);
+    private static final int READ_BATCH_SIZE = 500;
+
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final CatalogChangePoller changePoller;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int maxPendingChanges;
+    private final long retentionMs;
+    private final int maxSnapshots;
+    private final Path snapshotFile;
+
+    private final Object writeLock = new Object();
+    private final Set<Integer> booksTouchedDuringRebuild = new HashSet<>();
+    private final Set<Integer> authorsTouchedDuringRebuild = new HashSet<>();
+    private final ConcurrentSkipListMap<Long, Kept> kept = new ConcurrentSkipListMap<>();
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    private final AtomicBoolean foldQueued = new AtomicBoolean();
+    private final Object fileLock = new Object();
+    private boolean rebuilding;
+    private long lastVersion;
+    // catalog_change rows up to this sequence number are applied
+    private long pollFrom;
+    private long lastWrittenVersion = -1;
+    private volatile CatalogSnapshot current;
+
+    public CatalogReadModel(BookRepository bookRepository, AuthorRepository authorRepository,
+            CatalogChangePoller changePoller, TransactionTemplate transactionTemplate,
+            @Value("${library.read-model.enabled:true}") boolean enabled,
+            @Value("${library.read-model.max-pending-changes:5000}") int maxPendingChanges,
+            @Value("${library.read-model.snapshot-retention-seconds:300}") long retentionSeconds,
+            @Value("${library.read-model.max-snapshots:200}") int maxSnapshots,
+            @Value("${library.read-model.snapshot-file.path:}") String snapshotFile) {
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.changePoller = changePoller;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.maxPendingChanges = maxPendingChanges;
+        this.retentionMs = retentionSeconds * 1000;
+        this.maxSnapshots = maxSnapshots;
+        this.snapshotFile = snapshotFile.isBlank() ? null : Path.of(snapshotFile);
+    }
+
+    /**
+     * Thrown for a snapshot token that is malformed or not kept by this node.
+     */
+    public static class SnapshotExpiredException extends RuntimeException {
+        public SnapshotExpiredException(String token) {
+            super("Catalogue snapshot " + token + " is not available, start again from the first page");
+        }
+    }
+
+    /**
+     * Serves the catalogue from the snapshot file, when there is a valid one, as soon as the web
+     * server starts. Changes logged after the file's watermark are applied by the regular poll.
+     */
+    @PostConstruct
+    public void loadSnapshotFile() {
+        if (!enabled || snapshotFile == null || !Files.exists(snapshotFile)) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            CatalogSnapshotFile file = CatalogSnapshotFile.open(snapshotFile);
+            synchronized (writeLock) {
+                current = file.toSnapshot(++lastVersion);
+                pollFrom = file.getWatermark();
+            }
+            synchronized (fileLock) {
+                lastWrittenVersion = current.getVersion();
+            }
+            logger.info("Read model: Loaded {} books and {} authors from {} written at {} (change log position {}) in {} ms",
+                    current.getBookCount(), current.getAuthorCount(), snapshotFile, file.getWrittenAt(),
+                    file.getWatermark(), (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Read model: Ignoring snapshot file {}: {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(WarmUpService.STARTUP_ORDER)
+    public void buildOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        if (current != null) {
+            // Loaded from the snapshot file. A change log behind its watermark means a different database.
+            long logged = changePoller.currentPosition();
+            if (logged >= pollFrom) {
+                return;
+            }
+            logger.warn("Read model: Snapshot file is ahead of the change log ({} > {}), loading from the database",
+                    pollFrom, logged);
+            current = null;
+        }
+        rebuildInBackground();
+    }
+
+    /**
+     * Writes the latest snapshot to the snapshot file, unless it has not changed since the last write.
+     */
+    @Scheduled(fixedDelayString = "${library.read-model.snapshot-file.write-interval-ms:300000}")
+    public void writeSnapshotFile() {
+        if (snapshotFile == null) {
+            return;
+        }
+        synchronized (fileLock) {
+            CatalogSnapshot snapshot;
+            long watermark;
+            synchronized (writeLock) {
+                snapshot = current;
+                watermark = pollFrom;
+            }
+            if (snapshot == null || snapshot.getVersion() == lastWrittenVersion) {
+                return;
+            }
+            long started = System.nanoTime();
+            try {
+                CatalogSnapshotFile.write(snapshotFile, snapshot, watermark);
+                lastWrittenVersion = snapshot.getVersion();
+                logger.info("Read model: Wrote {} books and {} authors to {} (change log position {}) in {} ms",
+                        snapshot.getBookCount(), snapshot.getAuthorCount(), snapshotFile, watermark,
+                        (System.nanoTime() - started) / 1_000_000);
+            } catch (IOException | RuntimeException e) {
+                logger.error("Read model: Failed to write snapshot file {}", snapshotFile, e);
+            }
+        }
+    }
+
+    // The next instance starts from the newest state
+    @PreDestroy
+    public void writeSnapshotFileOnShutdown() {
+        writeSnapshotFile();
+    }
+
+    /**
+     * Safety net for changes that raise no events and leave no change log row (e.g. direct SQL).
+     */
+    @Scheduled(cron = "${library.read-model.rebuild-cron:0 25 4 * * *}")
+    public void scheduledRebuild() {
+        if (!enabled || current == null) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.error("Read model: Scheduled rebuild failed", e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The latest snapshot, or empty while the read model is disabled or not built yet.
+     */
+    public Optional<CatalogSnapshot> current() {
+        return Optional.ofNullable(current);
+    }
+
+    /**
+     * The snapshot to serve a list page from: the latest one for a first page ({@code token} null),
+     * which is then kept for {@code library.read-model.snapshot-retention-seconds}, or the kept
+     * snapshot a client got with its first page. Only the node that issued a token keeps its
+     * snapshot, so paging needs sticky sessions.
+     *
+     * @return empty while the read model is disabled or not built yet
+     * @throws SnapshotExpiredException if the token is malformed, expired, or issued by another node
+     *         or an earlier run
+     */
+    public Optional<CatalogSnapshot> forPaging(String token) {
+        CatalogSnapshot latest = current;
+        if (latest == null) {
+            return Optional.empty();
+        }
+        if (token == null || token.isEmpty()) {
+            keep(latest);
+            return Optional.of(latest);
+        }
+        int dash = token.indexOf('-');
+        long position;
+        long version;
+        try {
+            position = Long.parseLong(token.substring(0, Math.max(dash, 0)));
+            version = Long.parseLong(token.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            throw new SnapshotExpiredException(token);
+        }
+        Kept found = kept.get(version);
+        if (found == null || found.keptUntil < System.currentTimeMillis() || found.snapshot.getPosition() != position) {
+            throw new SnapshotExpiredException(token);
+        }
+        return Optional.of(found.snapshot);
+    }
+
+    public Map<String, Object> describe() {
+        Map<String, Object> info = new LinkedHashMap<>();
+        CatalogSnapshot latest = current;
+        info.put("enabled", enabled);
+        info.put("ready", latest != null);
+        if (latest != null) {
+            info.put("snapshot", latest.getToken());
+            info.put("books", latest.getBookCount());
+            info.put("authors", latest.getAuthorCount());
+            info.put("pendingChanges", latest.getChangeCount());
+            info.put("snapshotCreatedAt", latest.getCreatedAt());
+        }
+        info.put("keptSnapshots", kept.size());
+        info.put("snapshotFile", snapshotFile != null ? snapshotFile.toString() : null);
+        return info;
+    }
+
+    @TransactionalEventListener
+    public void onBookEvent(BookEvent event) {
+        if (event.getBookId() == null || current == null) {
+            return;
+        }
+        try {
+            apply(Set.of(event.getBookId()), Set.of());
+        } catch (Exception e) {
+            logger.error("Read model: Failed to apply {} for book {}", event.getType(), event.getBookId(), e);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onAuthorEvent(AuthorEvent event) {
+        if (event.getAuthorId() == null || current == null) {
+            return;
+        }
+        try {
+            apply(Set.of(), Set.of(event.getAuthorId()));
+        } catch (Exception e) {
+            logger.error("Read model: Failed to apply {} for author {}", event.getType(), event.getAuthorId(), e);
+        }
+    }
+
+    /**
+     * Applies changes written by any node; re-reading an unchanged row publishes nothing.
+     */
+    @Scheduled(fixedDelayString = "${library.read-model.poll-interval-ms:1000}")
+    public void pollChanges() {
+        if (current == null) {
+            return;
+        }
+        try {
+            long to = changePoller.poll(pollFrom, this::apply);
+            synchronized (writeLock) {
+                pollFrom = Math.max(pollFrom, to);
+                CatalogSnapshot latest = current;
+                if (latest.getPosition() < pollFrom) {
+                    current = latest.with(pollFrom, ++lastVersion, Map.of(), Map.of());
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Read model: Failed to poll catalogue changes", e);
+        }
+    }
+
+    /**
+     * Loads the whole catalogue into a new snapshot and publishes it. Books and authors changed
+     * while it loads are re-read onto the new snapshot before it is published.
+     *
+     * @return summary of the new snapshot
+     * @throws IllegalStateException if the read model is disabled
+     */
+    public synchronized Map<String, Object> rebuild() {
+        if (!enabled) {
+            throw new IllegalStateException("Catalogue read model is disabled (library.read-model.enabled)");
+        }
+        long started = System.nanoTime();
+        synchronized (writeLock) {
+            rebuilding = true;
+        }
+
+        try {
+            Map<Integer, Author> authors = new HashMap<>();
+            Map<Integer, Object[]> rows = new HashMap<>();
+            Map<Integer, List<Integer>> links = new HashMap<>();
+            long[] changeLogPosition = new long[1];
+            transactionTemplate.executeWithoutResult(status -> {
+                changeLogPosition[0] = changePoller.currentPosition();
+                try (Stream<Object[]> authorRows = authorRepository.streamReadModelRows()) {
+                    authorRows.forEach(row -> authors.put((Integer) row[0], toAuthor(row)));
+                }
+                try (Stream<Object[]> bookRows = bookRepository.streamReadModelRows()) {
+                    bookRows.forEach(row -> rows.put((Integer) row[0], row));
+                }
+                try (Stream<Object[]> bookAuthors = bookRepository.streamAuthorLinks()) {
+                    bookAuthors.forEach(row -> links.computeIfAbsent((Integer) row[0], id -> new ArrayList<>())
+                            .add((Integer) row[1]));
+                }
+            });
+            List<Book> books = new ArrayList<>(rows.size());
+            rows.forEach((id, row) -> books.add(toBook(row, links.getOrDefault(id, List.of()).stream()
+                    .map(authors::get).filter(Objects::nonNull).toList())));
+
+            CatalogSnapshot built = CatalogSnapshot.build(changeLogPosition[0], 0, books, authors.values());
+
+            // The new snapshot is private to this thread until it is published, so the rows changed
+            // meanwhile are re-read without the lock until no more arrive
+            int replayed = 0;
+            while (true) {
+                Set<Integer> bookIds;
+                Set<Integer> authorIds;
+                synchronized (writeLock) {
+                    if (booksTouchedDuringRebuild.isEmpty() && authorsTouchedDuringRebuild.isEmpty()) {
+                        // Rows polled since the load started were re-read, so it has them too
+                        pollFrom = Math.max(pollFrom, changeLogPosition[0]);
+                        built = built.with(pollFrom, ++lastVersion, Map.of(), Map.of());
+                        current = built;
+                        rebuilding = false;
+                        break;
+                    }
+                    bookIds = new HashSet<>(booksTouchedDuringRebuild);
+                    authorIds = new HashSet<>(authorsTouchedDuringRebuild);
+                    booksTouchedDuringRebuild.clear();
+                    authorsTouchedDuringRebuild.clear();
+                }
+                replayed += bookIds.size() + authorIds.size();
+                Changes changes = read(built, bookIds, authorIds);
+                if (!changes.isEmpty()) {
+                    built = built.with(changeLogPosition[0], 0, changes.books, changes.authors);
+                }
+            }
+
+            long millis = (System.nanoTime() - started) / 1_000_000;
+            logger.info("Read model: Loaded {} books and {} authors in {} ms (re-read {} changed rows)",
+                    books.size(), authors.size(), millis, replayed);
+            Map<String, Object> info = describe();
+            info.put("millis", millis);
+            return info;
+        } finally {
+            synchronized (writeLock) {
+                rebuilding = false;
+                booksTouchedDuringRebuild.clear();
+                authorsTouchedDuringRebuild.clear();
+            }
+        }
+    }
+
+    private void apply(Set<Integer> bookIds, Set<Integer> authorIds) {
+        if (bookIds.isEmpty() && authorIds.isEmpty()) {
+            return;
+        }
+        synchronized (writeLock) {
+            if (rebuilding) {
+                booksTouchedDuringRebuild.addAll(bookIds);
+                authorsTouchedDuringRebuild.addAll(authorIds);
+            }
+        }
+        // Read without the lock; if another change was published meanwhile, read again against it
+        while (true) {
+            CatalogSnapshot latest = current;
+            Changes changes = read(latest, bookIds, authorIds);
+            synchronized (writeLock) {
+                if (current != latest) {
+                    continue;
+                }
+                if (changes.isEmpty()) {
+                    return;
+                }
+                current = latest.with(latest.getPosition(), ++lastVersion, changes.books, changes.authors);
+                break;
+            }
+        }
+        if (current.getChangeCount() > maxPendingChanges) {
+            foldInBackground();
+        }
+    }
+
+    /**
+     * Reads the given books and authors from the database and returns what differs from
+     * {@code snapshot}. Books embedding a changed author are re-created with the new author.
+     */
+    private Changes read(CatalogSnapshot snapshot, Collection<Integer> bookIds, Collection<Integer> authorIds) {
+        Changes changes = new Changes();
+        Set<Integer> booksToRead = new LinkedHashSet<>(bookIds);
+        Set<Integer> booksToRelink = new LinkedHashSet<>();
+        inBatches(authorIds, batch -> {
+            Map<Integer, Object[]> found = new HashMap<>();
+            authorRepository.findReadModelRows(batch).forEach(row -> found.put((Integer) row[0], row));
+            for (Integer id : batch) {
+                Object[] row = found.get(id);
+                Optional<Author> existing = snapshot.findAuthor(id);
+                if (row == null) {
+                    if (existing.isPresent()) {
+                        changes.authors.put(id, Optional.empty());
+                        // Its links are gone as well
+                        booksToRead.addAll(snapshot.findBookIds(id));
+                    }
+                } else if (existing.isEmpty() || existing.get().getVersion() != ((Number) row[5]).longValue()) {
+                    changes.authors.put(id, Optional.of(toAuthor(row)));
+                    booksToRelink.addAll(snapshot.findBookIds(id));
+                }
+            }
+        });
+
+        inBatches(booksToRead, batch -> {
+            Map<Integer, Object[]> found = new HashMap<>();
+            bookRepository.findReadModelRows(batch).forEach(row -> found.put((Integer) row[0], row));
+            Map<Integer, List<Integer>> links = new HashMap<>();
+            bookRepository.findAuthorLinks(batch).forEach(row -> links.computeIfAbsent((Integer) row[0],
+                    id -> new ArrayList<>()).add((Integer) row[1]));
+            for (Integer id : batch) {
+                Object[] row = found.get(id);
+                Optional<Book> existing = snapshot.findBook(id);
+                List<Integer> authorIdsOfBook = links.getOrDefault(id, List.of());
+                if (row == null) {
+                    if (existing.isPresent()) {
+                        changes.books.put(id, Optional.empty());
+                    }
+                } else if (existing.isEmpty() || existing.get().getVersion() != ((Number) row[8]).longValue()
+                        || !authorIdsOf(existing.get()).equals(new HashSet<>(authorIdsOfBook))) {
+                    changes.books.put(id, Optional.of(toBook(row, authorsFor(snapshot, changes, authorIdsOfBook))));
+                }
+            }
+        });
+
+        // Same book with the changed author objects
+        for (Integer id : booksToRelink) {
+            if (changes.books.containsKey(id)) {
+                continue;
+            }
+            snapshot.findBook(id).ifPresent(book -> {
+                List<Integer> ids = book.getAuthors().stream().map(Author::getId).toList();
+                changes.books.put(id, Optional.of(copy(book, authorsFor(snapshot, changes, ids))));
+            });
+        }
+        return changes;
+    }
+
+    // Authors of a book as of the snapshot plus the pending changes; authors the model does not know
+    // yet (e.g. created by cascade with the book, without an author event) are read now
+    private List<Author> authorsFor(CatalogSnapshot snapshot, Changes changes, List<Integer> ids) {
+        List<Author> authors = new ArrayList<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : ids) {
+            Optional<Author> author = changes.authors.containsKey(id) ? changes.authors.get(id) : snapshot.findAuthor(id);
+            if (author.isPresent()) {
+                authors.add(author.get());
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Object[] row : authorRepository.findReadModelRows(missing)) {
+                Author author = toAuthor(row);
+                changes.authors.put(author.getId(), Optional.of(author));
+                authors.add(author);
+            }
+        }
+        return authors;
+    }
+
+    private void foldInBackground() {
+        if (!foldQueued.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                fold();
+            } catch (Exception e) {
+                logger.error("Read model: Fold failed", e);
+            } finally {
+                foldQueued.set(false);
+            }
+        }, "catalog-read-model-fold");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Merges the pending changes into a new base; changes published meanwhile are carried over
+    private void fold() {
+        long started = System.nanoTime();
+        CatalogSnapshot from = current;
+        CatalogSnapshot folded = from.fold(0);
+        synchronized (writeLock) {
+            CatalogSnapshot latest = current;
+            if (!latest.hasSameBase(from)) {
+                // Rebuilt meanwhile
+                return;
+            }
+            current = latest.replayOnto(folded, from, ++lastVersion);
+        }
+        logger.info("Read model: Merged {} changes into a new base in {} ms", from.getChangeCount(),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void rebuildInBackground() {
+        if (!rebuildQueued.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                logger.error("Read model: Build failed", e);
+            } finally {
+                rebuildQueued.set(false);
+            }
+        }, "catalog-read-model-build");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Kept snapshots share the base and differ only in their changes; the oldest go first
+    private void keep(CatalogSnapshot snapshot) {
+        long now = System.currentTimeMillis();
+        kept.put(snapshot.getVersion(), new Kept(snapshot, now + retentionMs));
+        while (kept.size() > maxSnapshots
+                || (!kept.isEmpty() && kept.firstEntry().getValue().keptUntil < now)) {
+            kept.pollFirstEntry();
+        }
+    }
+
+    private static void inBatches(Collection<Integer> ids, Consumer<List<Integer>> read) {
+        List<Integer> all = new ArrayList<>(ids);
+        for (int from = 0; from < all.size(); from += READ_BATCH_SIZE) {
+            read.accept(all.subList(from, Math.min(from + READ_BATCH_SIZE, all.size())));
+        }
+    }
+
+    private static Set<Integer> authorIdsOf(Book book) {
+        Set<Integer> ids = new HashSet<>();
+        book.getAuthors().forEach(author -> ids.add(author.getId()));
+        return ids;
+    }
+
+    // Row of AuthorRepository.streamReadModelRows
+    private static Author toAuthor(Object[] row) {
+        Author author = new Author();
+        author.setId((Integer) row[0]);
+        author.setFirstName((String) row[1]);
+        author.setLastName((String) row[2]);
+        author.setBiography((String) row[3]);
+        author.setNationality((String) row[4]);
+        author.setVersion(((Number) row[5]).longValue());
+        author.setUpdatedAt((Instant) row[6]);
+        return author;
+    }
+
+    // Row of BookRepository.streamReadModelRows
+    private static Book toBook(Object[] row, List<Author> authors) {
+        Book book = new Book();
+        book.setId((Integer) row[0]);
+        book.setTitle((String) row[1]);
+        book.setAuthor((String) row[2]);
+        book.setPublicationYear(((Number) row[3]).intValue());
+        book.setIsbn((String) row[4]);
+        book.setAvailable((Boolean) row[5]);
+        book.setTotalCopies((Integer) row[6]);
+        book.setAvailableCopies((Integer) row[7]);
+        book.setVersion(((Number) row[8]).longValue());
+        book.setUpdatedAt((Instant) row[9]);
+        book.setAuthors(authorSet(authors));
+        return book;
+    }
+
+    private static Book copy(Book book, List<Author> authors) {
+        Book copy = new Book();
+        copy.setId(book.getId());
+        copy.setTitle(book.getTitle());
+        copy.setAuthor(book.getAuthor());
+        copy.setPublicationYear(book.getPublicationYear());
+        copy.setIsbn(book.getIsbn());
+        copy.setAvailable(book.isAvailable());
+        copy.setTotalCopies(book.getTotalCopies());
+        copy.setAvailableCopies(book.getAvailableCopies());
+        copy.setVersion(book.getVersion());
+        copy.setUpdatedAt(book.getUpdatedAt());
+        copy.setAuthors(authorSet(authors));
+        return copy;
+    }
+
+    // Shared between requests, so read-only; ordered by id for a stable JSON representation
+    static Set<Author> authorSet(List<Author> authors) {
+        Set<Author> set = new LinkedHashSet<>();
+        authors.stream().sorted(Comparator.comparing(Author::getId)).forEach(set::add);
+        return Collections.unmodifiableSet(set);
+    }
+
+    private static final class Changes {
+        private final Map<Integer, Optional<Book>> books = new HashMap<>();
+        private final Map<Integer, Optional<Author>> authors = new HashMap<>();
+
+        private boolean isEmpty() {
+            return books.isEmpty() && authors.isEmpty();
+        }
+    }
+
+    private record Kept(CatalogSnapshot snapshot, long keptUntil) {
+    }
+}
@@ -0,0 +1,419 @@
+package com.example.library.service;
+
+import com.example.library.dto.BookFilter;
+import com.example.library.dto.ResourceVersion;
+import com.example.library.model.Author;
+import com.example.library.model.Book;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * One version of the catalogue read model ({@link CatalogReadModel}): a base with precomputed sort
+ * orders plus the books and authors changed since it was built. A snapshot never changes, so a
+ * request that reads only from one sees a consistent catalogue without taking a lock, and paging
+ * through a kept snapshot cannot skip or repeat rows. The books and authors it returns are shared
+ * between requests and must not be modified.
+ */
+public final class CatalogSnapshot {
+    // Ascending, with id as tie-breaker like the database queries; text compares case-insensitively,
+    // as in MySQL's default collation
+    static final Map<String, Comparator<Book>> BOOK_ORDERS = Map.of(
+            "id", Comparator.comparing(Book::getId),
+            "title", Comparator.comparing(Book::getTitle, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+                    .thenComparing(Book::getId),
+            "publicationYear", Comparator.comparingInt(Book::getPublicationYear).thenComparing(Book::getId),
+            "isbn", Comparator.comparing(Book::getIsbn, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+                    .thenComparing(Book::getId),
+            "updatedAt", Comparator.comparing(Book::getUpdatedAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(Book::getId));
+    static final Map<String, Comparator<Author>> AUTHOR_ORDERS = Map.of(
+            "id", Comparator.comparing(Author::getId),
+            "firstName", Comparator.comparing(Author::getFirstName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+                    .thenComparing(Author::getId),
+            "lastName", Comparator.comparing(Author::getLastName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+                    .thenComparing(Author::getId),
+            "nationality", Comparator.comparing(Author::getNationality, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+                    .thenComparing(Author::getId),
+            "updatedAt", Comparator.comparing(Author::getUpdatedAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(Author::getId));
+
+    private final long position;
+    private final long version;
+    private final Instant createdAt = Instant.now();
+    private final Base base;
+    // Changed since the base was built; empty for deleted
+    private final Map<Integer, Optional<Book>> changedBooks;
+    private final Map<Integer, Optional<Author>> changedAuthors;
+    private volatile Object[][] stamps;
+
+    private CatalogSnapshot(long position, long version, Base base, Map<Integer, Optional<Book>> changedBooks,
+            Map<Integer, Optional<Author>> changedAuthors) {
+        this.position = position;
+        this.version = version;
+        this.base = base;
+        this.changedBooks = changedBooks;
+        this.changedAuthors = changedAuthors;
+    }
+
+    public static boolean canSortAuthorsBy(String property) {
+        return AUTHOR_ORDERS.containsKey(property);
+    }
+
+    static CatalogSnapshot build(long position, long version, Collection<Book> books, Collection<Author> authors) {
+        return new CatalogSnapshot(position, version, new Base(books, authors), Map.of(), Map.of());
+    }
+
+    /**
+     * Identifies this snapshot to {@link CatalogReadModel#forPaging}: the change log position it is
+     * complete up to and its version on the node that published it.
+     */
+    public String getToken() {
+        return position + "-" + version;
+    }
+
+    public Optional<Book> findBook(int id) {
+        Optional<Book> changed = changedBooks.get(id);
+        return changed != null ? changed : Optional.ofNullable(base.books.get(id));
+    }
+
+    public Optional<Author> findAuthor(int id) {
+        Optional<Author> changed = changedAuthors.get(id);
+        return changed != null ? changed : Optional.ofNullable(base.authors.get(id));
+    }
+
+    /**
+     * Same result as {@link BookService#searchBooks} for a sort key from {@link #BOOK_ORDERS}.
+     */
+    public Page<Book> findBooks(BookFilter filter, Pageable pageable) {
+        Sort.Order order = firstOrder(pageable, BOOK_ORDERS.keySet());
+        Comparator<Book> ascending = BOOK_ORDERS.get(order.getProperty());
+        int[] ids;
+        if (filter.getAuthorId() != null) {
+            // An author's books are few; sort them on the fly instead of walking the whole catalogue
+            int[] byAuthor = base.booksByAuthor.getOrDefault(filter.getAuthorId(), new int[0]);
+            ids = IntStream.of(byAuthor).mapToObj(base.books::get).sorted(ascending).mapToInt(Book::getId).toArray();
+        } else {
+            ids = base.bookOrders.get(order.getProperty());
+        }
+        return page(ids, order.isDescending(), base.books::get, changedBooks, filter.isEmpty() ? null : matching(filter),
+                getBookCount(), ascending, pageable);
+    }
+
+    /**
+     * Same result as the database queries behind {@code GET /api/authors}: {@code name} matches a
+     * part of the first or last name, otherwise {@code nationality} the whole nationality.
+     */
+    public Page<Author> findAuthors(String name, String nationality, Pageable pageable) {
+        Sort.Order order = firstOrder(pageable, AUTHOR_ORDERS.keySet());
+        Predicate<Author> filter = null;
+        if (name != null && !name.isEmpty()) {
+            String part = name.toLowerCase(Locale.ROOT);
+            filter = author -> contains(author.getFirstName(), part) || contains(author.getLastName(), part);
+        } else if (nationality != null && !nationality.isEmpty()) {
+            filter = author -> nationality.equalsIgnoreCase(author.getNationality());
+        }
+        return page(base.authorOrders.get(order.getProperty()), order.isDescending(), base.authors::get, changedAuthors,
+                filter, getAuthorCount(), AUTHOR_ORDERS.get(order.getProperty()), pageable);
+    }
+
+    // The same ETags and Last-Modified dates as ResourceVersionService computes from the database
+
+    public ResourceVersion getBooksVersion() {
+        Object[][] current = stamps();
+        return ResourceVersionService.collection(List.<Object[]>of(current[0]), List.<Object[]>of(current[1]));
+    }
+
+    public ResourceVersion getAuthorsVersion() {
+        return ResourceVersionService.collection(List.<Object[]>of(stamps()[1]));
+    }
+
+    public Optional<ResourceVersion> getBookVersion(int id) {
+        return findBook(id).flatMap(book -> {
+            long authorVersions = 0;
+            Instant authorsUpdatedAt = null;
+            for (Author author : book.getAuthors()) {
+                authorVersions += author.getVersion();
+                authorsUpdatedAt = latest(authorsUpdatedAt, author.getUpdatedAt());
+            }
+            return ResourceVersionService.single(List.<Object[]>of(
+                    new Object[] { book.getVersion(), book.getUpdatedAt(), authorVersions, authorsUpdatedAt }));
+        });
+    }
+
+    public Optional<ResourceVersion> getAuthorVersion(int id) {
+        return findAuthor(id).flatMap(author -> ResourceVersionService.single(List.<Object[]>of(
+                new Object[] { author.getVersion(), author.getUpdatedAt() })));
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    // catalog_change rows up to this sequence number are reflected
+    long getPosition() {
+        return position;
+    }
+
+    Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    int getBookCount() {
+        return ((Number) stamps()[0][0]).intValue();
+    }
+
+    int getAuthorCount() {
+        return ((Number) stamps()[1][0]).intValue();
+    }
+
+    int getChangeCount() {
+        return changedBooks.size() + changedAuthors.size();
+    }
+
+    Collection<Book> getBooks() {
+        return merged(base.books, changedBooks);
+    }
+
+    Collection<Author> getAuthors() {
+        return merged(base.authors, changedAuthors);
+    }
+
+    boolean hasSameBase(CatalogSnapshot other) {
+        return base == other.base;
+    }
+
+    // Ids of the books linked to an author
+    List<Integer> findBookIds(int authorId) {
+        List<Integer> ids = new ArrayList<>();
+        for (int id : base.booksByAuthor.getOrDefault(authorId, new int[0])) {
+            if (!changedBooks.containsKey(id)) {
+                ids.add(id);
+            }
+        }
+        changedBooks.values().forEach(changed -> changed
+                .filter(book -> hasAuthor(book, authorId))
+                .ifPresent(book -> ids.add(book.getId())));
+        return ids;
+    }
+
+    /**
+     * A new snapshot with the given books and authors changed (empty to delete).
+     */
+    CatalogSnapshot with(long newPosition, long newVersion, Map<Integer, Optional<Book>> books,
+            Map<Integer, Optional<Author>> authors) {
+        Map<Integer, Optional<Book>> newBooks = new HashMap<>(changedBooks);
+        newBooks.putAll(books);
+        Map<Integer, Optional<Author>> newAuthors = new HashMap<>(changedAuthors);
+        newAuthors.putAll(authors);
+        return new CatalogSnapshot(newPosition, newVersion, base,
+                Collections.unmodifiableMap(newBooks), Collections.unmodifiableMap(newAuthors));
+    }
+
+    /**
+     * The same catalogue with all changes merged into a new base. Builds the sort orders again, so
+     * it is run in the background.
+     */
+    CatalogSnapshot fold(long newVersion) {
+        return build(position, newVersion, merged(base.books, changedBooks), merged(base.authors, changedAuthors));
+    }
+
+    /**
+     * {@code folded} (a fold of {@code older}) with the changes this snapshot has made since {@code older}.
+     */
+    CatalogSnapshot replayOnto(CatalogSnapshot folded, CatalogSnapshot older, long newVersion) {
+        Map<Integer, Optional<Book>> books = new HashMap<>();
+        changedBooks.forEach((id, book) -> {
+            if (older.changedBooks.get(id) != book) {
+                books.put(id, book);
+            }
+        });
+        Map<Integer, Optional<Author>> authors = new HashMap<>();
+        changedAuthors.forEach((id, author) -> {
+            if (older.changedAuthors.get(id) != author) {
+                authors.put(id, author);
+            }
+        });
+        return folded.with(position, newVersion, books, authors);
+    }
+
+    private static <T> Collection<T> merged(Map<Integer, T> base, Map<Integer, Optional<T>> changed) {
+        Map<Integer, T> merged = new HashMap<>(base);
+        changed.forEach((id, item) -> {
+            if (item.isPresent()) {
+                merged.put(id, item.get());
+            } else {
+                merged.remove(id);
+            }
+        });
+        return merged.values();
+    }
+
+    /**
+     * Walks the base in sort order, skipping changed rows, and merges in the matching changed rows
+     * (sorted separately). Without a filter ({@code filter} null) the total is {@code rowCount} and
+     * the walk stops once the page is full; with one, every match is counted for the total.
+     */
+    private static <T> Page<T> page(int[] ids, boolean descending, IntFunction<T> baseRow,
+            Map<Integer, Optional<T>> changed, Predicate<T> filter, long rowCount, Comparator<T> ascending,
+            Pageable pageable) {
+        Comparator<T> order = descending ? ascending.reversed() : ascending;
+        List<T> changedRows = changed.values().stream()
+                .flatMap(Optional::stream)
+                .filter(filter == null ? row -> true : filter)
+                .sorted(order)
+                .toList();
+        Collector<T> collector = new Collector<>(pageable);
+        int next = 0;
+        for (int i = 0; i < ids.length && (filter != null || !collector.isFull()); i++) {
+            int id = ids[descending ? ids.length - 1 - i : i];
+            if (changed.containsKey(id)) {
+                continue;
+            }
+            T row = baseRow.apply(id);
+            if (filter != null && !filter.test(row)) {
+                continue;
+            }
+            while (next < changedRows.size() && order.compare(changedRows.get(next), row) < 0) {
+                collector.add(changedRows.get(next++));
+            }
+            collector.add(row);
+        }
+        while (next < changedRows.size() && (filter != null || !collector.isFull())) {
+            collector.add(changedRows.get(next++));
+        }
+        return new PageImpl<>(collector.content, pageable, filter == null ? rowCount : collector.total);
+    }
+
+    private static Sort.Order firstOrder(Pageable pageable, Collection<String> supported) {
+        Sort.Order order = pageable.getSort().stream().findFirst().orElse(Sort.Order.asc("id"));
+        if (!supported.contains(order.getProperty())) {
+            throw new IllegalArgumentException("Cannot sort by '" + order.getProperty() + "'");
+        }
+        return order;
+    }
+
+    private static Predicate<Book> matching(BookFilter filter) {
+        return book -> (filter.getAvailable() == null || book.isAvailable() == filter.getAvailable())
+                && (filter.getYearFrom() == null || book.getPublicationYear() >= filter.getYearFrom())
+                && (filter.getYearTo() == null || book.getPublicationYear() <= filter.getYearTo())
+                && (filter.getIsbnPrefix() == null || filter.getIsbnPrefix().isEmpty()
+                        || (book.getIsbn() != null && book.getIsbn().startsWith(filter.getIsbnPrefix())))
+                && (filter.getAuthorId() == null || hasAuthor(book, filter.getAuthorId()));
+    }
+
+    private static boolean hasAuthor(Book book, int authorId) {
+        return book.getAuthors().stream().anyMatch(author -> author.getId() == authorId);
+    }
+
+    private static boolean contains(String value, String lowerCasePart) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(lowerCasePart);
+    }
+
+    // (count, max id, max updated_at) of books and of authors, as ResourceVersionService reads them
+    private Object[][] stamps() {
+        Object[][] current = stamps;
+        if (current == null) {
+            current = new Object[][] {
+                    stamp(base.books, changedBooks, base.bookOrders, Book::getId, Book::getUpdatedAt),
+                    stamp(base.authors, changedAuthors, base.authorOrders, Author::getId, Author::getUpdatedAt) };
+            stamps = current;
+        }
+        return current;
+    }
+
+    // The base maxima are the last unchanged rows of the id and updatedAt orders
+    private static <T> Object[] stamp(Map<Integer, T> baseRows, Map<Integer, Optional<T>> changed,
+            Map<String, int[]> orders, Function<T, Integer> id, Function<T, Instant> updatedAt) {
+        long count = baseRows.size();
+        for (Map.Entry<Integer, Optional<T>> entry : changed.entrySet()) {
+            count += (entry.getValue().isPresent() ? 1 : 0) - (baseRows.containsKey(entry.getKey()) ? 1 : 0);
+        }
+        int maxId = lastUnchanged(orders.get("id"), changed, baseRows).map(id).orElse(0);
+        Instant maxUpdatedAt = lastUnchanged(orders.get("updatedAt"), changed, baseRows).map(updatedAt).orElse(null);
+        for (Optional<T> row : changed.values()) {
+            if (row.isPresent()) {
+                maxId = Math.max(maxId, id.apply(row.get()));
+                maxUpdatedAt = latest(maxUpdatedAt, updatedAt.apply(row.get()));
+            }
+        }
+        return new Object[] { count, maxId, maxUpdatedAt };
+    }
+
+    private static <T> Optional<T> lastUnchanged(int[] ids, Map<Integer, Optional<T>> changed, Map<Integer, T> baseRows) {
+        for (int i = ids.length - 1; i >= 0; i--) {
+            if (!changed.containsKey(ids[i])) {
+                return Optional.of(baseRows.get(ids[i]));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Instant latest(Instant a, Instant b) {
+        return a == null || (b != null && b.isAfter(a)) ? b : a;
+    }
+
+    private static final class Collector<T> {
+        private final long offset;
+        private final int size;
+        private final List<T> content = new ArrayList<>();
+        private long total;
+
+        private Collector(Pageable pageable) {
+            this.offset = pageable.getOffset();
+            this.size = pageable.getPageSize();
+        }
+
+        private void add(T row) {
+            if (total >= offset && content.size() < size) {
+                content.add(row);
+            }
+            total++;
+        }
+
+        private boolean isFull() {
+            return total >= offset + size;
+        }
+    }
+
+    private static final class Base {
+        private final Map<Integer, Book> books = new HashMap<>();
+        private final Map<Integer, Author> authors = new HashMap<>();
+        private final Map<Integer, int[]> booksByAuthor = new HashMap<>();
+        // Ids sorted ascending per sort key
+        private final Map<String, int[]> bookOrders = new HashMap<>();
+        private final Map<String, int[]> authorOrders = new HashMap<>();
+
+        private Base(Collection<Book> bookRows, Collection<Author> authorRows) {
+            bookRows.forEach(book -> books.put(book.getId(), book));
+            authorRows.forEach(author -> authors.put(author.getId(), author));
+            Map<Integer, List<Integer>> byAuthor = new HashMap<>();
+            for (Book book : bookRows) {
+                book.getAuthors().forEach(author -> byAuthor.computeIfAbsent(author.getId(), key -> new ArrayList<>())
+                        .add(book.getId()));
+            }
+            byAuthor.forEach((authorId, ids) -> booksByAuthor.put(authorId,
+                    ids.stream().mapToInt(Integer::intValue).toArray()));
+            BOOK_ORDERS.forEach((key, order) -> bookOrders.put(key,
+                    bookRows.stream().sorted(order).mapToInt(Book::getId).toArray()));
+            AUTHOR_ORDERS.forEach((key, order) -> authorOrders.put(key,
+                    authorRows.stream().sorted(order).mapToInt(Author::getId).toArray()));
+        }
+    }
+}
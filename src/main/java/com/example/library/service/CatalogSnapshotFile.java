@@ -0,0 +1,274 @@
+package com.example.library.service;
+
+import com.example.library.model.Author;
+import com.example.library.model.Book;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary file holding a {@link CatalogSnapshot}, so a restarted node can serve the catalogue before
+ * it has read anything from the database. Layout (big-endian):
+ * <pre>
+ * header   magic "LIBCAT01", format version, watermark, written at, author count, book count,
+ *          payload length, CRC32C of the payload
+ * payload  author index (id, offset) sorted by id, book index (id, offset) sorted by id,
+ *          then the author and book records; records are read through the index
+ * </pre>
+ * The watermark is the {@code catalog_change} sequence number up to which the snapshot is complete;
+ * changes after it are read from the change log once the file is loaded. The file is replaced
+ * atomically, so readers see the previous or the new file, never a partial one.
+ */
+final class CatalogSnapshotFile {
+    private static final long MAGIC = 0x4C49424341543031L;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int INDEX_ENTRY_SIZE = 12;
+    private static final long NO_INSTANT = Long.MIN_VALUE;
+
+    private final MappedByteBuffer buffer;
+    private final long watermark;
+    private final Instant writtenAt;
+    private final int authorCount;
+    private final int bookCount;
+
+    private CatalogSnapshotFile(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getLong(0) != MAGIC) {
+            throw new IOException("Not a catalogue snapshot file");
+        }
+        if (buffer.getInt(8) != FORMAT_VERSION) {
+            throw new IOException("Unsupported catalogue snapshot format " + buffer.getInt(8));
+        }
+        this.watermark = buffer.getLong(16);
+        this.writtenAt = Instant.ofEpochMilli(buffer.getLong(24));
+        this.authorCount = buffer.getInt(32);
+        this.bookCount = buffer.getInt(36);
+        long payloadLength = buffer.getLong(40);
+        if (payloadLength != buffer.capacity() - HEADER_SIZE
+                || (long) (authorCount + bookCount) * INDEX_ENTRY_SIZE > payloadLength) {
+            throw new IOException("Catalogue snapshot file is truncated");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(HEADER_SIZE, (int) payloadLength));
+        if (crc.getValue() != buffer.getLong(48)) {
+            throw new IOException("Catalogue snapshot file checksum mismatch");
+        }
+    }
+
+    /**
+     * Maps {@code file} read-only and verifies its header and checksum.
+     *
+     * @throws IOException if the file cannot be read or is not a complete snapshot
+     */
+    static CatalogSnapshotFile open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Catalogue snapshot file is too large to map");
+            }
+            // The mapping stays valid after the channel is closed
+            return new CatalogSnapshotFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    long getWatermark() {
+        return watermark;
+    }
+
+    Instant getWrittenAt() {
+        return writtenAt;
+    }
+
+    /**
+     * Reads the whole file into a snapshot at the watermark. Books share the author objects, as in a
+     * snapshot built from the database.
+     */
+    CatalogSnapshot toSnapshot(long version) {
+        Map<Integer, Author> authors = new HashMap<>();
+        for (int i = 0; i < authorCount; i++) {
+            Author author = readAuthor((int) buffer.getLong(HEADER_SIZE + i * INDEX_ENTRY_SIZE + 4));
+            authors.put(author.getId(), author);
+        }
+        int bookIndex = HEADER_SIZE + authorCount * INDEX_ENTRY_SIZE;
+        List<Book> books = new ArrayList<>(bookCount);
+        for (int i = 0; i < bookCount; i++) {
+            books.add(readBook((int) buffer.getLong(bookIndex + i * INDEX_ENTRY_SIZE + 4), authors::get));
+        }
+        return CatalogSnapshot.build(watermark, version, books, authors.values());
+    }
+
+    /**
+     * Writes {@code snapshot} to {@code file}, replacing it atomically.
+     */
+    static void write(Path file, CatalogSnapshot snapshot, long watermark) throws IOException {
+        List<Author> authors = new ArrayList<>(snapshot.getAuthors());
+        authors.sort(Comparator.comparing(Author::getId));
+        List<Book> books = new ArrayList<>(snapshot.getBooks());
+        books.sort(Comparator.comparing(Book::getId));
+
+        int recordsStart = HEADER_SIZE + (authors.size() + books.size()) * INDEX_ENTRY_SIZE;
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        DataOutputStream records = new DataOutputStream(recordBytes);
+        ByteBuffer index = ByteBuffer.allocate(recordsStart - HEADER_SIZE);
+        for (Author author : authors) {
+            index.putInt(author.getId()).putLong(recordsStart + records.size());
+            writeAuthor(records, author);
+        }
+        for (Book book : books) {
+            index.putInt(book.getId()).putLong(recordsStart + records.size());
+            writeBook(records, book);
+        }
+        records.flush();
+        if ((long) recordsStart + records.size() > Integer.MAX_VALUE) {
+            throw new IOException("Catalogue snapshot is too large for a snapshot file");
+        }
+
+        index.flip();
+        ByteBuffer payload = ByteBuffer.wrap(recordBytes.toByteArray());
+        CRC32C crc = new CRC32C();
+        crc.update(index.duplicate());
+        crc.update(payload.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putLong(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putInt(0)
+                .putLong(watermark)
+                .putLong(System.currentTimeMillis())
+                .putInt(authors.size())
+                .putInt(books.size())
+                .putLong(index.remaining() + payload.remaining())
+                .putLong(crc.getValue());
+        header.clear();
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer[] parts = { header, index, payload };
+                while (payload.hasRemaining()) {
+                    channel.write(parts);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void writeAuthor(DataOutputStream out, Author author) throws IOException {
+        out.writeInt(author.getId());
+        out.writeLong(author.getVersion());
+        writeInstant(out, author.getUpdatedAt());
+        writeString(out, author.getFirstName());
+        writeString(out, author.getLastName());
+        writeString(out, author.getBiography());
+        writeString(out, author.getNationality());
+    }
+
+    private Author readAuthor(int offset) {
+        ByteBuffer in = buffer.duplicate().position(offset);
+        Author author = new Author();
+        author.setId(in.getInt());
+        author.setVersion(in.getLong());
+        author.setUpdatedAt(readInstant(in));
+        author.setFirstName(readString(in));
+        author.setLastName(readString(in));
+        author.setBiography(readString(in));
+        author.setNationality(readString(in));
+        return author;
+    }
+
+    private static void writeBook(DataOutputStream out, Book book) throws IOException {
+        out.writeInt(book.getId());
+        out.writeLong(book.getVersion());
+        writeInstant(out, book.getUpdatedAt());
+        writeString(out, book.getTitle());
+        writeString(out, book.getAuthor());
+        out.writeInt(book.getPublicationYear());
+        writeString(out, book.getIsbn());
+        out.writeBoolean(book.isAvailable());
+        out.writeInt(book.getTotalCopies() != null ? book.getTotalCopies() : -1);
+        out.writeInt(book.getAvailableCopies() != null ? book.getAvailableCopies() : -1);
+        out.writeInt(book.getAuthors().size());
+        for (Author author : book.getAuthors()) {
+            out.writeInt(author.getId());
+        }
+    }
+
+    private Book readBook(int offset, IntFunction<Author> authors) {
+        ByteBuffer in = buffer.duplicate().position(offset);
+        Book book = new Book();
+        book.setId(in.getInt());
+        book.setVersion(in.getLong());
+        book.setUpdatedAt(readInstant(in));
+        book.setTitle(readString(in));
+        book.setAuthor(readString(in));
+        book.setPublicationYear(in.getInt());
+        book.setIsbn(readString(in));
+        book.setAvailable(in.get() != 0);
+        int totalCopies = in.getInt();
+        book.setTotalCopies(totalCopies >= 0 ? totalCopies : null);
+        int availableCopies = in.getInt();
+        book.setAvailableCopies(availableCopies >= 0 ? availableCopies : null);
+        int authorCount = in.getInt();
+        List<Author> bookAuthors = new ArrayList<>(authorCount);
+        for (int i = 0; i < authorCount; i++) {
+            Author author = authors.apply(in.getInt());
+            if (author != null) {
+                bookAuthors.add(author);
+            }
+        }
+        book.setAuthors(CatalogReadModel.authorSet(bookAuthors));
+        return book;
+    }
+
+    private static void writeInstant(DataOutputStream out, Instant instant) throws IOException {
+        out.writeLong(instant != null ? instant.getEpochSecond() : NO_INSTANT);
+        out.writeInt(instant != null ? instant.getNano() : 0);
+    }
+
+    private static Instant readInstant(ByteBuffer in) {
+        long seconds = in.getLong();
+        int nanos = in.getInt();
+        return seconds != NO_INSTANT ? Instant.ofEpochSecond(seconds, nanos) : null;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.library.service;
+
+import com.example.library.dto.SyncBatch;
+import com.example.library.dto.SyncChange;
+import com.example.library.event.AuthorEvent;
+import com.example.library.event.BookEvent;
+import com.example.library.event.LibraryEventType;
+import com.example.library.model.Author;
+import com.example.library.model.Book;
+import com.example.library.model.CatalogChange;
+import com.example.library.model.CatalogChangeLock;
+import com.example.library.repository.AuthorRepository;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.CatalogChangeRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Delta sync of the catalogue (books and authors) for offline clients.
+ * Every book/author event updates the entity's row in {@code catalog_change} within the
+ * mutating transaction, so a client holding sequence N only needs the rows above N.
+ * <p>
+ * Writers lock the {@code catalog_change_lock} row before they take a sequence number and keep it
+ * until they commit, so numbers become visible in the order they were assigned: once a reader sees
+ * N, no lower number can still appear. Catalogue writes queue on that lock only for the rest of
+ * their transaction.
+ */
+@Service
+public class CatalogSyncService {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSyncService.class);
+    public static final int MAX_BATCH_SIZE = 2000;
+    // Deletes the entity's row and inserts a new one with the next seq, in one statement
+    private static final String REPLACE_CHANGE =
+            "REPLACE INTO catalog_change (entity_type, entity_id, deleted, changed_at) VALUES (?, ?, ?, ?)";
+    private static final String LOCK_CHANGE_LOG = "SELECT id FROM catalog_change_lock WHERE id = ? FOR UPDATE";
+
+    private final CatalogChangeRepository catalogChangeRepository;
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean replaceSupported;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public CatalogSyncService(CatalogChangeRepository catalogChangeRepository, BookRepository bookRepository,
+            AuthorRepository authorRepository, TransactionTemplate transactionTemplate, JdbcTemplate jdbcTemplate) {
+        this.catalogChangeRepository = catalogChangeRepository;
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        DatabaseDriver database = DatabaseDriver.fromProductName(jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+        this.replaceSupported = database == DatabaseDriver.MYSQL || database == DatabaseDriver.MARIADB;
+    }
+
+    /**
+     * Fills the change log with the existing catalogue the first time the application starts with it.
+     * Runs before this node accepts writes, under the change log lock, so another node starting at
+     * the same time waits and then finds the log seeded.
+     */
+    @PostConstruct
+    public void seedIfEmpty() {
+        try {
+            jdbcTemplate.update("INSERT INTO catalog_change_lock (id) VALUES (?)", CatalogChangeLock.ID);
+        } catch (DuplicateKeyException e) {
+            // Created by another node or an earlier start
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            lockChangeLog();
+            if (catalogChangeRepository.count() == 0) {
+                LocalDateTime now = LocalDateTime.now();
+                int authors = catalogChangeRepository.seedAuthors(now);
+                int books = catalogChangeRepository.seedBooks(now);
+                logger.info("Service: Seeded catalogue change log with {} authors and {} books", authors, books);
+            }
+        });
+    }
+
+    // Plain listeners: they run inside the transaction that records the event
+
+    @EventListener
+    public void onBookEvent(BookEvent event) {
+        track(CatalogChange.BOOK, event.getBookId(), event.getType() == LibraryEventType.BOOK_DELETED);
+    }
+
+    @EventListener
+    public void onAuthorEvent(AuthorEvent event) {
+        track(CatalogChange.AUTHOR, event.getAuthorId(), event.getType() == LibraryEventType.AUTHOR_DELETED);
+    }
+
+    private void track(String entityType, Integer entityId, boolean deleted) {
+        if (entityId == null) {
+            return;
+        }
+        // Pending entity writes take their row locks first, in the same order as JDBC writers
+        // (e.g. a borrow), which lock the book row before they get here
+        entityManager.flush();
+        lockChangeLog();
+        if (replaceSupported) {
+            jdbcTemplate.update(REPLACE_CHANGE, entityType, entityId, deleted, LocalDateTime.now());
+            return;
+        }
+        // Other databases (H2 in development and tests) have no upsert that assigns a new identity
+        // value, so concurrent changes of one entity can still conflict there
+        catalogChangeRepository.deleteByEntity(entityType, entityId);
+        catalogChangeRepository.save(new CatalogChange(null, entityType, entityId, deleted, LocalDateTime.now()));
+    }
+
+    /**
+     * Changes after {@code since} in sequence order, at most {@code limit} of them.
+     * A client starts with {@code since = 0} (full catalogue) and then passes the returned token.
+     */
+    @Transactional(readOnly = true)
+    public SyncBatch getChanges(long since, int limit) {
+        if (limit < 1 || limit > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_BATCH_SIZE);
+        }
+        List<CatalogChange> rows = catalogChangeRepository.findBySeqGreaterThanOrderBySeqAsc(since, PageRequest.of(0, limit + 1));
+        boolean hasMore = rows.size() > limit;
+        if (hasMore) {
+            rows = rows.subList(0, limit);
+        }
+
+        List<Integer> bookIds = new ArrayList<>();
+        List<Integer> authorIds = new ArrayList<>();
+        for (CatalogChange row : rows) {
+            if (!row.isDeleted()) {
+                (CatalogChange.BOOK.equals(row.getEntityType()) ? bookIds : authorIds).add(row.getEntityId());
+            }
+        }
+        Map<Integer, Book> books = bookIds.isEmpty() ? Map.of()
+                : bookRepository.findWithAuthorsByIdIn(bookIds).stream().collect(Collectors.toMap(Book::getId, Function.identity()));
+        Map<Integer, Author> authors = authorIds.isEmpty() ? Map.of()
+                : authorRepository.findAllById(authorIds).stream().collect(Collectors.toMap(Author::getId, Function.identity()));
+
+        List<SyncChange> changes = new ArrayList<>(rows.size());
+        for (CatalogChange row : rows) {
+            Book book = CatalogChange.BOOK.equals(row.getEntityType()) ? books.get(row.getEntityId()) : null;
+            Author author = CatalogChange.AUTHOR.equals(row.getEntityType()) ? authors.get(row.getEntityId()) : null;
+            // Rows for entities deleted since this read are sent as tombstones
+            boolean deleted = row.isDeleted() || (book == null && author == null);
+            changes.add(new SyncChange(row.getSeq(), row.getEntityType(), row.getEntityId(), deleted, book, author));
+        }
+
+        long next = rows.isEmpty() ? since : rows.get(rows.size() - 1).getSeq();
+        logger.debug("Service: Sync since {} returned {} changes (next token: {}, more: {})", since, changes.size(), next, hasMore);
+        return new SyncBatch(changes, Long.toString(next), hasMore);
+    }
+
+    // Held until the caller's transaction ends; re-locking within it is free
+    private void lockChangeLog() {
+        jdbcTemplate.queryForList(LOCK_CHANGE_LOG, Integer.class, CatalogChangeLock.ID);
+    }
+}
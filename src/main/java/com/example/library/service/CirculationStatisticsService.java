@@ -0,0 +1,437 @@
+package com.example.library.service;
+
+import com.example.library.dto.CirculationSummary;
+import com.example.library.dto.StatEntry;
+import com.example.library.event.LoanEvent;
+import com.example.library.event.OutboxCursor;
+import com.example.library.event.OutboxReader;
+import com.example.library.model.Author;
+import com.example.library.model.CirculationStat;
+import com.example.library.model.CirculationStatId;
+import com.example.library.model.OutboxEvent;
+import com.example.library.model.OutboxOffset;
+import com.example.library.model.StatDimension;
+import com.example.library.repository.AuthorRepository;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.CirculationStatRepository;
+import com.example.library.repository.LoanArchiveRepository;
+import com.example.library.repository.LoanRepository;
+import com.example.library.repository.OutboxEventRepository;
+import com.example.library.repository.OutboxOffsetRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Circulation statistics maintained incrementally from loan events.
+ * Every node tails the outbox, so its counters include loans made on the other nodes; changed
+ * counters are flushed to {@code circulation_stat} together with the outbox position they
+ * reflect, and top-N lists are precomputed at flush time so dashboard reads never touch the
+ * loan tables.
+ */
+@Service
+public class CirculationStatisticsService implements OutboxReader {
+    public static final String READER_NAME = "circulation-statistics";
+    private static final Logger logger = LoggerFactory.getLogger(CirculationStatisticsService.class);
+    private static final String ACTIVE_LOANS = "activeLoans";
+    private static final String TOTAL_LOANS = "totalLoans";
+    // Position kept in circulation_stat before it moved to outbox_offset
+    private static final String LEGACY_LAST_EVENT_ID = "lastEventId";
+    private static final int BATCH_SIZE = 500;
+    private static final List<StatDimension> RANKED_DIMENSIONS = List.of(StatDimension.BOOK, StatDimension.AUTHOR, StatDimension.CITY);
+
+    private final CirculationStatRepository statRepository;
+    private final LoanRepository loanRepository;
+    private final LoanArchiveRepository loanArchiveRepository;
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxOffsetRepository outboxOffsetRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<StatDimension, Map<String, LongAdder>> counters = new EnumMap<>(StatDimension.class);
+    private final Set<CirculationStatId> dirty = ConcurrentHashMap.newKeySet();
+    private final LongAdder activeLoans = new LongAdder();
+    private final LongAdder totalLoans = new LongAdder();
+    // Guards the cursor, and keeps a flush from capturing half-applied events
+    private final Object lock = new Object();
+    private final OutboxCursor cursor;
+
+    private volatile Map<StatDimension, List<StatEntry>> rankings = Map.of();
+    private volatile LocalDateTime snapshotAt;
+
+    @Value("${library.stats.top-size:100}")
+    private int topSize;
+
+    public CirculationStatisticsService(CirculationStatRepository statRepository, LoanRepository loanRepository,
+            LoanArchiveRepository loanArchiveRepository, BookRepository bookRepository,
+            AuthorRepository authorRepository, OutboxEventRepository outboxEventRepository,
+            OutboxOffsetRepository outboxOffsetRepository, ObjectMapper objectMapper,
+            TransactionTemplate transactionTemplate, @Value("${library.stats.gap-timeout-ms:10000}") long gapTimeoutMs) {
+        this.statRepository = statRepository;
+        this.loanRepository = loanRepository;
+        this.loanArchiveRepository = loanArchiveRepository;
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxOffsetRepository = outboxOffsetRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.cursor = new OutboxCursor(READER_NAME, 0, gapTimeoutMs);
+        for (StatDimension dimension : StatDimension.values()) {
+            if (dimension != StatDimension.SUMMARY) {
+                counters.put(dimension, new ConcurrentHashMap<>());
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return READER_NAME;
+    }
+
+    /**
+     * Restores the counters and their outbox position from the summary table and catches up with
+     * the outbox. Without a position the counters are seeded once from the loan tables.
+     */
+    @PostConstruct
+    public void load() {
+        // Reading under the position lock keeps another node's flush from landing in between
+        boolean restored = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            Optional<OutboxOffset> position = outboxOffsetRepository.findForUpdate(READER_NAME);
+            List<CirculationStat> stats = statRepository.findAll();
+            Optional<CirculationStat> legacy = stats.stream()
+                    .filter(stat -> stat.getDimension() == StatDimension.SUMMARY && LEGACY_LAST_EVENT_ID.equals(stat.getStatKey()))
+                    .findFirst();
+            if (position.isEmpty() && legacy.isEmpty()) {
+                return false;
+            }
+            long lastEventId = position.isPresent() ? position.get().getLastEventId() : legacy.get().getLoanCount();
+            if (position.isEmpty()) {
+                outboxOffsetRepository.save(new OutboxOffset(READER_NAME, lastEventId, LocalDateTime.now()));
+            }
+            synchronized (lock) {
+                cursor.moveTo(lastEventId);
+            }
+            legacy.ifPresent(statRepository::delete);
+            for (CirculationStat stat : stats) {
+                if (stat.getDimension() == StatDimension.SUMMARY) {
+                    switch (stat.getStatKey()) {
+                        case ACTIVE_LOANS -> activeLoans.add(stat.getLoanCount());
+                        case TOTAL_LOANS -> totalLoans.add(stat.getLoanCount());
+                        case LEGACY_LAST_EVENT_ID -> { }
+                        default -> logger.warn("Statistics: Unknown summary key {}", stat.getStatKey());
+                    }
+                } else {
+                    counter(stat.getDimension(), stat.getStatKey()).add(stat.getLoanCount());
+                }
+            }
+            return true;
+        }));
+        if (!restored) {
+            seedFromLoans();
+        }
+        int applied = catchUp();
+        if (applied > 0) {
+            logger.info("Statistics: Replayed {} loan events from the outbox", applied);
+        }
+        refreshRankings();
+        logger.info("Statistics: Loaded circulation counters - total loans: {}, active: {}",
+                totalLoans.sum(), activeLoans.sum());
+    }
+
+    /**
+     * Applies the outbox events committed since the last poll, in id order, on every node.
+     * An id that is missing may still belong to a transaction that has not committed yet, so
+     * the poll stops there until it shows up or {@code library.stats.gap-timeout-ms} passes.
+     */
+    @Scheduled(fixedDelayString = "${library.stats.poll-interval-ms:1000}",
+            initialDelayString = "${library.stats.poll-interval-ms:1000}")
+    public void poll() {
+        int applied = catchUp();
+        if (applied > 0) {
+            logger.debug("Statistics: Applied {} loan events from the outbox", applied);
+        }
+    }
+
+    // Returns the number of loan events applied
+    private int catchUp() {
+        int applied = 0;
+        try {
+            synchronized (lock) {
+                while (true) {
+                    List<OutboxEvent> read = outboxEventRepository.findByIdGreaterThanOrderByIdAsc(
+                            cursor.getPosition(), PageRequest.of(0, BATCH_SIZE));
+                    List<OutboxEvent> batch = cursor.readable(read);
+                    for (OutboxEvent row : batch) {
+                        if ("Loan".equals(row.getAggregateType())) {
+                            applied += apply(row) ? 1 : 0;
+                        }
+                    }
+                    cursor.advance(batch);
+                    if (batch.size() < BATCH_SIZE) {
+                        return applied;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Statistics: Failed to read the outbox", e);
+            return applied;
+        }
+    }
+
+    /**
+     * Writes changed counters to the summary table and recomputes the top-N rankings.
+     * Nodes count the same events, so the values are written as they are, together with their
+     * position; a node whose position is behind the stored one skips the write.
+     */
+    @Scheduled(fixedDelayString = "${library.stats.flush-interval-ms:30000}",
+            initialDelayString = "${library.stats.flush-interval-ms:30000}")
+    public void flush() {
+        List<CirculationStatId> flushed = new ArrayList<>();
+        List<CirculationStat> rows = new ArrayList<>();
+        long position;
+        synchronized (lock) {
+            for (CirculationStatId id : dirty) {
+                flushed.add(id);
+                rows.add(new CirculationStat(id.getDimension(), id.getStatKey(), getCount(id.getDimension(), id.getStatKey())));
+            }
+            dirty.clear();
+            rows.add(new CirculationStat(StatDimension.SUMMARY, ACTIVE_LOANS, activeLoans.sum()));
+            rows.add(new CirculationStat(StatDimension.SUMMARY, TOTAL_LOANS, totalLoans.sum()));
+            position = cursor.getPosition();
+        }
+
+        try {
+            boolean written = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                Optional<OutboxOffset> stored = outboxOffsetRepository.findForUpdate(READER_NAME);
+                if (stored.isPresent() && stored.get().getLastEventId() >= position) {
+                    return false;
+                }
+                statRepository.saveAll(rows);
+                OutboxOffset offset = stored.orElseGet(() -> new OutboxOffset(READER_NAME, 0L, null));
+                offset.setLastEventId(position);
+                offset.setUpdatedAt(LocalDateTime.now());
+                outboxOffsetRepository.save(offset);
+                return true;
+            }));
+            if (written) {
+                logger.debug("Statistics: Flushed {} changed counters at event {}", flushed.size(), position);
+            } else {
+                logger.debug("Statistics: Skipped flush at event {}, another node stored a later position", position);
+            }
+        } catch (Exception e) {
+            dirty.addAll(flushed);
+            logger.error("Statistics: Failed to flush circulation counters", e);
+        }
+        refreshRankings();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    public CirculationSummary getSummary() {
+        return new CirculationSummary(activeLoans.sum(), totalLoans.sum(),
+                counters.get(StatDimension.BOOK).size(), counters.get(StatDimension.AUTHOR).size(),
+                counters.get(StatDimension.CITY).size(), snapshotAt);
+    }
+
+    /**
+     * Top entries of a dimension from the last precomputed ranking.
+     */
+    public List<StatEntry> getTop(StatDimension dimension, int limit) {
+        if (!RANKED_DIMENSIONS.contains(dimension)) {
+            throw new IllegalArgumentException("Dimension " + dimension + " is not ranked");
+        }
+        if (limit < 1 || limit > topSize) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + topSize);
+        }
+        List<StatEntry> ranking = rankings.getOrDefault(dimension, List.of());
+        return ranking.subList(0, Math.min(limit, ranking.size()));
+    }
+
+    /**
+     * Loans per month in chronological order.
+     */
+    public List<StatEntry> getMonthly() {
+        return rankings.getOrDefault(StatDimension.MONTH, List.of());
+    }
+
+    public long getCount(StatDimension dimension, String key) {
+        LongAdder counter = counters.get(dimension).get(key);
+        return counter != null ? counter.sum() : 0;
+    }
+
+    private boolean apply(OutboxEvent row) {
+        LoanEvent event;
+        try {
+            event = objectMapper.readValue(row.getPayload(), LoanEvent.class);
+        } catch (Exception e) {
+            logger.warn("Statistics: Skipping unreadable outbox event {}", row.getId(), e);
+            return false;
+        }
+        apply(event);
+        return true;
+    }
+
+    private void apply(LoanEvent event) {
+        boolean wasActive = "ACTIVE".equalsIgnoreCase(event.getPreviousStatus());
+        boolean isActive = "ACTIVE".equalsIgnoreCase(event.getStatus());
+        switch (event.getType()) {
+            case LOAN_BORROWED -> {
+                totalLoans.increment();
+                if (isActive) {
+                    activeLoans.increment();
+                }
+                increment(StatDimension.BOOK, event.getBookId());
+                if (event.getAuthorIds() != null) {
+                    event.getAuthorIds().forEach(authorId -> increment(StatDimension.AUTHOR, authorId));
+                }
+                increment(StatDimension.CITY, event.getUserCity());
+                increment(StatDimension.MONTH, event.getLoanDate() != null ? YearMonth.from(event.getLoanDate()) : null);
+            }
+            case LOAN_RETURNED, LOAN_UPDATED -> {
+                if (wasActive && !isActive) {
+                    activeLoans.decrement();
+                } else if (!wasActive && isActive) {
+                    activeLoans.increment();
+                }
+            }
+            case LOAN_DELETED -> {
+                if (wasActive) {
+                    activeLoans.decrement();
+                }
+            }
+            default -> logger.debug("Statistics: Ignoring event {}", event.getType());
+        }
+    }
+
+    private void increment(StatDimension dimension, Object key) {
+        add(dimension, key, 1);
+    }
+
+    private void add(StatDimension dimension, Object key, long amount) {
+        if (key == null) {
+            return;
+        }
+        String statKey = key.toString();
+        counter(dimension, statKey).add(amount);
+        dirty.add(new CirculationStatId(dimension, statKey));
+    }
+
+    private LongAdder counter(StatDimension dimension, String key) {
+        return counters.get(dimension).computeIfAbsent(key, k -> new LongAdder());
+    }
+
+    private void seedFromLoans() {
+        logger.info("Statistics: No circulation summary found, seeding counters from loan history");
+        long watermark = outboxEventRepository.findMaxId();
+
+        seed(StatDimension.BOOK, loanRepository.countLoansByBook());
+        seed(StatDimension.BOOK, loanArchiveRepository.countLoansByBook());
+        seed(StatDimension.AUTHOR, loanRepository.countLoansByAuthor());
+        seed(StatDimension.AUTHOR, loanArchiveRepository.countLoansByAuthor());
+        seed(StatDimension.CITY, loanRepository.countLoansByCity());
+        seed(StatDimension.CITY, loanArchiveRepository.countLoansByCity());
+        seedMonths(loanRepository.countLoansByMonth());
+        seedMonths(loanArchiveRepository.countLoansByMonth());
+
+        totalLoans.add(loanRepository.count() + loanArchiveRepository.count());
+        activeLoans.add(loanRepository.countByStatus("ACTIVE"));
+        synchronized (lock) {
+            cursor.moveTo(watermark);
+        }
+    }
+
+    private void seed(StatDimension dimension, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            add(dimension, row[0], ((Number) row[1]).longValue());
+        }
+    }
+
+    private void seedMonths(List<Object[]> rows) {
+        for (Object[] row : rows) {
+            YearMonth month = YearMonth.of(((Number) row[0]).intValue(), ((Number) row[1]).intValue());
+            add(StatDimension.MONTH, month, ((Number) row[2]).longValue());
+        }
+    }
+
+    private void refreshRankings() {
+        Map<StatDimension, List<StatEntry>> next = new EnumMap<>(StatDimension.class);
+        for (StatDimension dimension : RANKED_DIMENSIONS) {
+            next.put(dimension, topEntries(dimension));
+        }
+        labelBooks(next.get(StatDimension.BOOK));
+        labelAuthors(next.get(StatDimension.AUTHOR));
+
+        next.put(StatDimension.MONTH, counters.get(StatDimension.MONTH).entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> new StatEntry(entry.getKey(), entry.getKey(), entry.getValue().sum()))
+                .toList());
+
+        rankings = next;
+        snapshotAt = LocalDateTime.now();
+    }
+
+    // Bounded heap: O(n log k) per refresh instead of sorting every counter.
+    private List<StatEntry> topEntries(StatDimension dimension) {
+        PriorityQueue<StatEntry> heap = new PriorityQueue<>(Comparator.comparingLong(StatEntry::getCount));
+        counters.get(dimension).forEach((key, counter) -> {
+            long count = counter.sum();
+            if (heap.size() < topSize) {
+                heap.add(new StatEntry(key, key, count));
+            } else if (count > heap.peek().getCount()) {
+                heap.poll();
+                heap.add(new StatEntry(key, key, count));
+            }
+        });
+        List<StatEntry> top = new ArrayList<>(heap);
+        top.sort(Comparator.comparingLong(StatEntry::getCount).reversed().thenComparing(StatEntry::getKey));
+        return top;
+    }
+
+    private void labelBooks(List<StatEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Map<String, String> titles = new HashMap<>();
+        bookRepository.findTitlesByIds(entries.stream().map(entry -> Integer.valueOf(entry.getKey())).toList())
+                .forEach(row -> titles.put(row[0].toString(), (String) row[1]));
+        entries.forEach(entry -> entry.setLabel(titles.getOrDefault(entry.getKey(), entry.getKey())));
+    }
+
+    private void labelAuthors(List<StatEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Map<String, String> names = authorRepository.findAllById(
+                entries.stream().map(entry -> Integer.valueOf(entry.getKey())).toList())
+                .stream().collect(Collectors.toMap(author -> author.getId().toString(), Author::getFullName));
+        entries.forEach(entry -> entry.setLabel(names.getOrDefault(entry.getKey(), entry.getKey())));
+    }
+}
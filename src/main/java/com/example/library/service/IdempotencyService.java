@@ -0,0 +1,261 @@
+package com.example.library.service;
+
+import com.example.library.model.IdempotencyRecord;
+import com.example.library.repository.IdempotencyRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Remembers the response of the first request sent with an {@code Idempotency-Key} so retries get
+ * it replayed instead of running the write again. Results live in {@code idempotency_record} for
+ * {@code library.idempotency.ttl-hours}; recent ones are also kept in the bounded
+ * {@code library.idempotency} cache region. A duplicate arriving while the first request still runs
+ * waits for its result: on the same node through an in-process future, across nodes by polling the
+ * claim row.
+ */
+@Service
+public class IdempotencyService {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+    private static final String CACHE_NAME = "library.idempotency";
+    private static final long POLL_INTERVAL_MS = 100;
+    private static final int PURGE_BATCH_SIZE = 1000;
+
+    private final IdempotencyRecordRepository repository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<String, StoredResponse> recent;
+    private final ConcurrentHashMap<String, Execution> inFlight = new ConcurrentHashMap<>();
+    private final long ttlHours;
+    private final long waitTimeoutMs;
+    private final long claimTimeoutMs;
+
+    public IdempotencyService(IdempotencyRecordRepository repository, JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate, CacheManager jcacheManager,
+            @Value("${library.idempotency.ttl-hours:24}") long ttlHours,
+            @Value("${library.idempotency.wait-timeout-ms:30000}") long waitTimeoutMs,
+            @Value("${library.idempotency.claim-timeout-ms:120000}") long claimTimeoutMs) {
+        this.repository = repository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.recent = jcacheManager.getCache(CACHE_NAME);
+        this.ttlHours = ttlHours;
+        this.waitTimeoutMs = waitTimeoutMs;
+        this.claimTimeoutMs = claimTimeoutMs;
+    }
+
+    public record StoredResponse(String requestHash, int status, String contentType, byte[] body,
+            LocalDateTime expiresAt) implements Serializable {
+    }
+
+    /**
+     * Thrown when a key is reused for a request with a different body.
+     */
+    public static class KeyReusedException extends RuntimeException {
+        public KeyReusedException() {
+            super("Idempotency-Key was already used for a different request");
+        }
+    }
+
+    /**
+     * Looks up the result for {@code key}, waiting while another request with the key is running.
+     * When this returns empty the caller owns the key and must run the request, then call
+     * {@link #complete} or {@link #abandon}.
+     *
+     * @throws KeyReusedException if the stored request had a different body
+     * @throws IllegalStateException if the first request is still running after the wait timeout
+     */
+    public Optional<StoredResponse> begin(String key, String requestHash) {
+        long deadline = System.currentTimeMillis() + waitTimeoutMs;
+        while (true) {
+            StoredResponse cached = recent.get(key);
+            if (cached != null && cached.expiresAt().isAfter(LocalDateTime.now())) {
+                return Optional.of(matching(cached, requestHash));
+            }
+
+            Execution mine = new Execution();
+            Execution running = inFlight.putIfAbsent(key, mine);
+            if (running != null) {
+                StoredResponse result = await(running, deadline);
+                if (result != null) {
+                    return Optional.of(matching(result, requestHash));
+                }
+                // The first request failed and released the key; try to take it over
+                continue;
+            }
+
+            try {
+                Optional<StoredResponse> stored = claim(key, requestHash, mine, deadline);
+                if (stored.isPresent()) {
+                    inFlight.remove(key, mine);
+                    mine.result.complete(stored.get());
+                    return Optional.of(matching(stored.get(), requestHash));
+                }
+                return Optional.empty();
+            } catch (RuntimeException e) {
+                inFlight.remove(key, mine);
+                mine.result.complete(null);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Stores the response of a request started with {@link #begin} and releases waiting duplicates.
+     */
+    public void complete(String key, int status, String contentType, byte[] body) {
+        Execution mine = inFlight.get(key);
+        if (mine == null) {
+            return;
+        }
+        LocalDateTime expiresAt = now().plusHours(ttlHours);
+        StoredResponse stored = new StoredResponse(mine.requestHash, status, contentType, body, expiresAt);
+        try {
+            transactionTemplate.executeWithoutResult(tx -> jdbcTemplate.update(
+                    "UPDATE idempotency_record SET status = ?, content_type = ?, body = ?, expires_at = ? "
+                            + "WHERE record_key = ? AND created_at = ?",
+                    status, contentType, body, expiresAt, key, mine.claimedAt));
+            recent.put(key, stored);
+        } catch (RuntimeException e) {
+            // The write already happened; waiting duplicates still get the result, later retries may run again
+            logger.error("Idempotency: Failed to store result for key {}", key, e);
+        } finally {
+            inFlight.remove(key, mine);
+            mine.result.complete(stored);
+        }
+    }
+
+    /**
+     * Releases a key whose request failed, so a retry runs it again.
+     */
+    public void abandon(String key) {
+        Execution mine = inFlight.get(key);
+        if (mine == null) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(tx -> repository.deleteIfUnchanged(key, mine.claimedAt));
+        } catch (RuntimeException e) {
+            logger.error("Idempotency: Failed to release key {}", key, e);
+        } finally {
+            inFlight.remove(key, mine);
+            mine.result.complete(null);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${library.idempotency.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        int purged = 0;
+        List<String> keys;
+        do {
+            keys = transactionTemplate.execute(tx -> {
+                List<String> expired = repository.findExpiredKeys(LocalDateTime.now(), PageRequest.of(0, PURGE_BATCH_SIZE));
+                if (!expired.isEmpty()) {
+                    repository.deleteByKeys(expired);
+                }
+                return expired;
+            });
+            purged += keys.size();
+        } while (keys.size() == PURGE_BATCH_SIZE);
+        if (purged > 0) {
+            logger.info("Idempotency: Purged {} expired results", purged);
+        }
+    }
+
+    // Inserts the claim row, or returns the result stored by an earlier request
+    private Optional<StoredResponse> claim(String key, String requestHash, Execution mine, long deadline) {
+        while (true) {
+            LocalDateTime now = now();
+            IdempotencyRecord row = repository.findById(key).orElse(null);
+            if (row == null) {
+                try {
+                    transactionTemplate.executeWithoutResult(tx -> jdbcTemplate.update(
+                            "INSERT INTO idempotency_record (record_key, request_hash, created_at, expires_at) VALUES (?, ?, ?, ?)",
+                            key, requestHash, now, now.plusHours(ttlHours)));
+                    mine.requestHash = requestHash;
+                    mine.claimedAt = now;
+                    return Optional.empty();
+                } catch (DuplicateKeyException e) {
+                    continue;
+                }
+            }
+
+            boolean abandonedClaim = row.getStatus() == null
+                    && row.getCreatedAt().isBefore(now.minus(claimTimeoutMs, ChronoUnit.MILLIS));
+            if (row.getExpiresAt().isBefore(now) || abandonedClaim) {
+                transactionTemplate.executeWithoutResult(tx -> repository.deleteIfUnchanged(key, row.getCreatedAt()));
+                continue;
+            }
+            if (row.getStatus() != null) {
+                StoredResponse stored = new StoredResponse(row.getRequestHash(), row.getStatus(), row.getContentType(),
+                        row.getBody(), row.getExpiresAt());
+                recent.put(key, stored);
+                return Optional.of(stored);
+            }
+            if (!row.getRequestHash().equals(requestHash)) {
+                throw new KeyReusedException();
+            }
+
+            // Running on another node
+            if (System.currentTimeMillis() + POLL_INTERVAL_MS > deadline) {
+                throw new IllegalStateException("A request with this Idempotency-Key is still in progress");
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for an idempotent request", e);
+            }
+        }
+    }
+
+    private static StoredResponse await(Execution running, long deadline) {
+        try {
+            return running.result.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("A request with this Idempotency-Key is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an idempotent request", e);
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    private static StoredResponse matching(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new KeyReusedException();
+        }
+        return stored;
+    }
+
+    // Microseconds, as stored by DATETIME(6), so created_at compares equal after a round trip
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    private static final class Execution {
+        private final CompletableFuture<StoredResponse> result = new CompletableFuture<>();
+        private volatile String requestHash;
+        private volatile LocalDateTime claimedAt;
+    }
+}
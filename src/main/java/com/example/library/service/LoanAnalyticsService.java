@@ -0,0 +1,536 @@
+package com.example.library.service;
+
+import com.example.library.dto.StatEntry;
+import com.example.library.event.BookEvent;
+import com.example.library.event.LibraryEventType;
+import com.example.library.event.LoanEvent;
+import com.example.library.event.OutboxCursor;
+import com.example.library.model.OutboxEvent;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.LoanArchiveRepository;
+import com.example.library.repository.LoanRepository;
+import com.example.library.repository.OutboxEventRepository;
+import com.example.library.repository.UserRepository;
+import com.example.library.util.IntIntHashMap;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * In-memory columnar snapshot of the loan history (hot and archived loans) for analytical reports.
+ * Each loan is a row of int columns; strings are dictionary encoded and the book and user dimensions
+ * are joined through row indexes, so a report is a parallel scan over primitive arrays.
+ * The snapshot is rebuilt periodically and kept current in between from the loan and book events in
+ * the outbox, which every node tails, so it includes changes made on the other nodes.
+ */
+@Service
+public class LoanAnalyticsService {
+    private static final Logger logger = LoggerFactory.getLogger(LoanAnalyticsService.class);
+    private static final int SCAN_CHUNK = 1 << 16;
+    private static final int NONE = -1;
+    private static final int BATCH_SIZE = 500;
+
+    public enum Dimension { MONTH, CITY, DECADE, STATUS }
+
+    private final LoanRepository loanRepository;
+    private final LoanArchiveRepository loanArchiveRepository;
+    private final BookRepository bookRepository;
+    private final UserRepository userRepository;
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxCursor cursor;
+
+    private final Object writeLock = new Object();
+    private final List<Object> pendingDuringRebuild = new ArrayList<>();
+    private boolean rebuilding;
+    private volatile Snapshot snapshot = new Snapshot();
+
+    public LoanAnalyticsService(LoanRepository loanRepository, LoanArchiveRepository loanArchiveRepository,
+            BookRepository bookRepository, UserRepository userRepository, OutboxEventRepository outboxEventRepository,
+            ObjectMapper objectMapper, TransactionTemplate transactionTemplate,
+            @Value("${library.analytics.gap-timeout-ms:10000}") long gapTimeoutMs) {
+        this.loanRepository = loanRepository;
+        this.loanArchiveRepository = loanArchiveRepository;
+        this.bookRepository = bookRepository;
+        this.userRepository = userRepository;
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.cursor = new OutboxCursor("loan analytics", 0, gapTimeoutMs);
+    }
+
+    /**
+     * Events from here on are polled; the initial build, which starts later, loads everything before.
+     */
+    @PostConstruct
+    public void startAtEnd() {
+        synchronized (cursor) {
+            cursor.moveTo(outboxEventRepository.findMaxId());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(WarmUpService.STARTUP_ORDER)
+    public void buildOnStartup() {
+        Thread thread = new Thread(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                logger.error("Loan analytics: Initial build failed", e);
+            }
+        }, "loan-analytics-build");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Full rebuild also picks up changes that raise no events (user cities, archived or purged loans).
+     */
+    @Scheduled(cron = "${library.analytics.rebuild-cron:0 0 4 * * *}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.error("Loan analytics: Scheduled rebuild failed", e);
+        }
+    }
+
+    /**
+     * Counts loans grouped by {@code groupBy}, restricted by the optional filters.
+     * Filters that do not match any known value yield an empty report.
+     *
+     * @param from first loan month included, or null
+     * @param to last loan month included, or null
+     * @param decade first year of a publication decade (e.g. 1990), or null
+     */
+    public List<StatEntry> report(Dimension groupBy, String status, String city, Integer decade,
+            YearMonth from, YearMonth to) {
+        Snapshot current = snapshot;
+        int size = current.size;
+        Filter filter = new Filter();
+        filter.status = status != null ? current.statuses.code(status.toUpperCase(Locale.ROOT)) : NONE;
+        filter.city = city != null ? current.cities.code(city) : NONE;
+        filter.decade = decade != null ? Math.floorDiv(decade, 10) : NONE;
+        filter.fromMonth = from != null ? monthCode(from) : Integer.MIN_VALUE;
+        filter.toMonth = to != null ? monthCode(to) : Integer.MAX_VALUE;
+        filter.minMonth = current.minMonth;
+        if ((status != null && filter.status == NONE) || (city != null && filter.city == NONE)
+                || (decade != null && decade < 0)) {
+            return List.of();
+        }
+
+        int minMonth = filter.minMonth;
+        int groups = switch (groupBy) {
+            case MONTH -> size == 0 ? 0 : current.maxMonth - minMonth + 1;
+            case CITY -> current.cities.size();
+            case DECADE -> current.maxYear / 10 + 1;
+            case STATUS -> current.statuses.size();
+        };
+        long[] counts = scan(current, size, groupBy, filter, Math.max(groups, 0));
+
+        List<StatEntry> entries = new ArrayList<>();
+        for (int key = 0; key < counts.length; key++) {
+            if (counts[key] == 0) {
+                continue;
+            }
+            String label = switch (groupBy) {
+                case MONTH -> YearMonth.of(Math.floorDiv(minMonth + key, 12), Math.floorMod(minMonth + key, 12) + 1).toString();
+                case CITY -> current.cities.value(key);
+                case DECADE -> (key * 10) + "s";
+                case STATUS -> current.statuses.value(key);
+            };
+            entries.add(new StatEntry(groupBy == Dimension.DECADE ? String.valueOf(key * 10) : label, label, counts[key]));
+        }
+        return entries;
+    }
+
+    public Map<String, Object> describe() {
+        Snapshot current = snapshot;
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("loans", current.size);
+        info.put("books", current.bookCount - 1);
+        info.put("users", current.userCount - 1);
+        info.put("cities", current.cities.size());
+        info.put("builtAt", current.builtAt);
+        return info;
+    }
+
+    /**
+     * Applies the loan and book events committed since the last poll, in id order. An id that is
+     * missing may still belong to a transaction that has not committed yet, so the poll stops there
+     * until it shows up or {@code library.analytics.gap-timeout-ms} passes.
+     */
+    @Scheduled(fixedDelayString = "${library.analytics.poll-interval-ms:1000}")
+    public void poll() {
+        try {
+            synchronized (cursor) {
+                while (true) {
+                    List<OutboxEvent> read = outboxEventRepository.findByIdGreaterThanOrderByIdAsc(
+                            cursor.getPosition(), PageRequest.of(0, BATCH_SIZE));
+                    List<OutboxEvent> batch = cursor.readable(read);
+                    for (OutboxEvent row : batch) {
+                        Object event = read(row);
+                        if (event instanceof LoanEvent || (event instanceof BookEvent book
+                                && (book.getType() == LibraryEventType.BOOK_CREATED || book.getType() == LibraryEventType.BOOK_UPDATED))) {
+                            apply(event);
+                        }
+                    }
+                    cursor.advance(batch);
+                    if (batch.size() < BATCH_SIZE) {
+                        return;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Loan analytics: Failed to read the outbox", e);
+        }
+    }
+
+    // The loan or book event of an outbox row, null for other aggregates
+    private Object read(OutboxEvent row) {
+        Class<?> type = "Loan".equals(row.getAggregateType()) ? LoanEvent.class
+                : "Book".equals(row.getAggregateType()) ? BookEvent.class : null;
+        if (type == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(row.getPayload(), type);
+        } catch (Exception e) {
+            logger.warn("Loan analytics: Skipping unreadable outbox event {}", row.getId(), e);
+            return null;
+        }
+    }
+
+    private void apply(Object event) {
+        synchronized (writeLock) {
+            if (rebuilding) {
+                pendingDuringRebuild.add(event);
+            }
+            snapshot.apply(event);
+        }
+    }
+
+    /**
+     * Rebuilds the snapshot from the database. Events polled while it loads are
+     * replayed onto the new snapshot before it is swapped in; replaying is idempotent.
+     *
+     * @return summary of the new snapshot
+     */
+    public synchronized Map<String, Object> rebuild() {
+        long started = System.nanoTime();
+        synchronized (writeLock) {
+            rebuilding = true;
+        }
+
+        try {
+            Snapshot built = new Snapshot();
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Object[]> books = bookRepository.streamPublicationYears()) {
+                    books.forEach(row -> built.putBook(((Number) row[0]).intValue(), (Integer) row[1]));
+                }
+                try (Stream<Object[]> users = userRepository.streamCities()) {
+                    users.forEach(row -> built.putUser((String) row[0], (String) row[1]));
+                }
+                try (Stream<Object[]> hot = loanRepository.streamLoanFacts();
+                        Stream<Object[]> cold = loanArchiveRepository.streamLoanFacts()) {
+                    Stream.concat(hot, cold).forEach(row -> built.addLoan(((Number) row[0]).intValue(),
+                            (String) row[1], (Integer) row[2], (LocalDate) row[3], (String) row[4]));
+                }
+            });
+
+            int replayed;
+            synchronized (writeLock) {
+                for (Object event : pendingDuringRebuild) {
+                    built.apply(event);
+                }
+                replayed = pendingDuringRebuild.size();
+                built.builtAt = Instant.now();
+                snapshot = built;
+            }
+
+            long millis = (System.nanoTime() - started) / 1_000_000;
+            logger.info("Loan analytics: Rebuilt snapshot of {} loans in {} ms (replayed {} events)",
+                    built.size, millis, replayed);
+            Map<String, Object> info = describe();
+            info.put("millis", millis);
+            return info;
+        } finally {
+            synchronized (writeLock) {
+                rebuilding = false;
+                pendingDuringRebuild.clear();
+            }
+        }
+    }
+
+    private static long[] scan(Snapshot s, int size, Dimension groupBy, Filter filter, int groups) {
+        int chunks = (size + SCAN_CHUNK - 1) / SCAN_CHUNK;
+        return IntStream.range(0, chunks).parallel()
+                .mapToObj(chunk -> scanChunk(s, chunk * SCAN_CHUNK, Math.min(size, (chunk + 1) * SCAN_CHUNK),
+                        groupBy, filter, groups))
+                .reduce(new long[groups], (a, b) -> {
+                    long[] sum = a.clone();
+                    for (int i = 0; i < sum.length; i++) {
+                        sum[i] += b[i];
+                    }
+                    return sum;
+                });
+    }
+
+    private static long[] scanChunk(Snapshot s, int from, int to, Dimension groupBy, Filter filter, int groups) {
+        // Read each column reference once; rows below the observed size are fully published
+        int[] statuses = s.loanStatus.data;
+        int[] months = s.loanMonth.data;
+        int[] userRows = s.loanUser.data;
+        int[] bookRows = s.loanBook.data;
+        int[] userCities = s.userCity.data;
+        int[] bookYears = s.bookYear.data;
+        int minMonth = filter.minMonth;
+        long[] counts = new long[groups];
+
+        for (int i = from; i < to; i++) {
+            int status = statuses[i];
+            if (status == NONE || (filter.status != NONE && status != filter.status)) {
+                continue;
+            }
+            int month = months[i];
+            if (month < filter.fromMonth || month > filter.toMonth) {
+                continue;
+            }
+            int city = userCities[userRows[i]];
+            if (filter.city != NONE && city != filter.city) {
+                continue;
+            }
+            int year = bookYears[bookRows[i]];
+            int decade = year > 0 ? year / 10 : NONE;
+            if (filter.decade != NONE && decade != filter.decade) {
+                continue;
+            }
+
+            int key = switch (groupBy) {
+                case MONTH -> month == NONE ? NONE : month - minMonth;
+                case CITY -> city;
+                case DECADE -> decade;
+                case STATUS -> status;
+            };
+            if (key >= 0 && key < groups) {
+                counts[key]++;
+            }
+        }
+        return counts;
+    }
+
+    private static int monthCode(LocalDate date) {
+        return date == null ? NONE : date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    private static int monthCode(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+
+    private static final class Filter {
+        private int status;
+        private int city;
+        private int decade;
+        private int fromMonth;
+        private int toMonth;
+        private int minMonth;
+    }
+
+    /**
+     * Columns are appended by a single writer (under the service write lock). Readers take the
+     * size first and then the column arrays, so every row they scan is fully written.
+     */
+    private static final class Snapshot {
+        // Loan fact columns; a status of NONE marks a deleted loan
+        private final IntColumn loanStatus = new IntColumn();
+        private final IntColumn loanMonth = new IntColumn();
+        private final IntColumn loanUser = new IntColumn();
+        private final IntColumn loanBook = new IntColumn();
+        private final IntIntHashMap loanRows = new IntIntHashMap(1024);
+        private volatile int size;
+        private volatile int minMonth = Integer.MAX_VALUE;
+        private volatile int maxMonth = Integer.MIN_VALUE;
+
+        // Book dimension; row 0 is the unknown book
+        private final IntColumn bookYear = new IntColumn();
+        private final IntIntHashMap bookRows = new IntIntHashMap(1024);
+        private volatile int bookCount = 1;
+        private volatile int maxYear;
+
+        // User dimension; row 0 is the unknown user
+        private final IntColumn userCity = new IntColumn();
+        private final Map<String, Integer> userRows = new HashMap<>();
+        private volatile int userCount = 1;
+
+        private final Dictionary cities = new Dictionary();
+        private final Dictionary statuses = new Dictionary();
+        private volatile Instant builtAt;
+
+        private Snapshot() {
+            userCity.set(0, NONE);
+        }
+
+        private void apply(Object event) {
+            if (event instanceof BookEvent book) {
+                putBook(book.getBookId(), book.getPublicationYear());
+            } else if (event instanceof LoanEvent loan && loan.getLoanId() != null) {
+                if (loan.getType() == LibraryEventType.LOAN_BORROWED) {
+                    if (loan.getUserId() != null && !userRows.containsKey(loan.getUserId())) {
+                        putUser(loan.getUserId(), loan.getUserCity());
+                    }
+                    addLoan(loan.getLoanId(), loan.getUserId(), loan.getBookId(), loan.getLoanDate(), loan.getStatus());
+                } else if (loan.getType() == LibraryEventType.LOAN_DELETED) {
+                    if (loanRows.containsKey(loan.getLoanId())) {
+                        loanStatus.set(loanRows.get(loan.getLoanId()) - 1, NONE);
+                    }
+                } else if (loanRows.containsKey(loan.getLoanId())) {
+                    loanStatus.set(loanRows.get(loan.getLoanId()) - 1, statuses.encode(loan.getStatus()));
+                } else {
+                    addLoan(loan.getLoanId(), loan.getUserId(), loan.getBookId(), loan.getLoanDate(), loan.getStatus());
+                }
+            }
+        }
+
+        private void putBook(Integer bookId, Integer publicationYear) {
+            if (bookId == null || bookId == 0) {
+                return;
+            }
+            int year = publicationYear != null && publicationYear > 0 ? publicationYear : 0;
+            int row = bookRows.get(bookId);
+            if (row == 0) {
+                row = bookCount;
+                bookRows.put(bookId, row);
+                bookYear.set(row, year);
+                bookCount = row + 1;
+            } else {
+                bookYear.set(row, year);
+            }
+            if (year > maxYear) {
+                maxYear = year;
+            }
+        }
+
+        private void putUser(String uid, String city) {
+            int code = city != null && !city.isBlank() ? cities.encode(city) : NONE;
+            Integer row = userRows.get(uid);
+            if (row == null) {
+                row = userCount;
+                userRows.put(uid, row);
+                userCity.set(row, code);
+                userCount = row + 1;
+            } else {
+                userCity.set(row, code);
+            }
+        }
+
+        // Loans already present (e.g. seen both in the database and as an event) are ignored
+        private void addLoan(int loanId, String uid, Integer bookId, LocalDate loanDate, String status) {
+            if (loanId == 0 || loanRows.containsKey(loanId)) {
+                return;
+            }
+            int row = size;
+            Integer userRow = uid != null ? userRows.get(uid) : null;
+            int bookRow = bookId != null ? bookRows.get(bookId) : 0;
+            int month = monthCode(loanDate);
+
+            loanStatus.set(row, statuses.encode(status != null ? status : "UNKNOWN"));
+            loanMonth.set(row, month);
+            loanUser.set(row, userRow != null ? userRow : 0);
+            loanBook.set(row, bookRow);
+            loanRows.put(loanId, row + 1);
+            if (month != NONE) {
+                if (month < minMonth) {
+                    minMonth = month;
+                }
+                if (month > maxMonth) {
+                    maxMonth = month;
+                }
+            }
+            size = row + 1;
+        }
+    }
+
+    /**
+     * Growable int column; growth publishes a new array so readers holding the old one stay valid.
+     */
+    private static final class IntColumn {
+        private volatile int[] data = new int[1024];
+
+        private void set(int index, int value) {
+            int[] current = data;
+            if (index >= current.length) {
+                current = Arrays.copyOf(current, Math.max(index + 1, current.length + (current.length >> 1)));
+                current[index] = value;
+                data = current;
+            } else {
+                current[index] = value;
+            }
+        }
+    }
+
+    /**
+     * String dictionary; codes are dense and stable for the lifetime of a snapshot.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private volatile String[] values = new String[0];
+
+        private int encode(String value) {
+            if (value == null) {
+                return NONE;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                String[] current = values;
+                code = current.length;
+                String[] grown = Arrays.copyOf(current, code + 1);
+                grown[code] = value;
+                values = grown;
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        // Reader side: a linear search is fine for the small dictionaries held here
+        private int code(String value) {
+            String[] current = values;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i].equalsIgnoreCase(value)) {
+                    return i;
+                }
+            }
+            return NONE;
+        }
+
+        private String value(int code) {
+            return values[code];
+        }
+
+        private int size() {
+            return values.length;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.library.service;
+
+import com.example.library.dto.LoanView;
+import com.example.library.model.Book;
+import com.example.library.model.User;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.LoanArchiveRepository;
+import com.example.library.repository.LoanRepository;
+import com.example.library.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Hot/cold split of the loan history. Closed loans older than the configured age are moved
+ * from {@code loan} to {@code loan_archive} in id-ordered batches, each batch being one
+ * INSERT ... SELECT plus one DELETE in its own transaction.
+ */
+@Service
+public class LoanArchiveService {
+    private static final Logger logger = LoggerFactory.getLogger(LoanArchiveService.class);
+    private static final Set<String> MERGE_SORT_PROPERTIES = Set.of("id", "loanDate", "returnDate", "status");
+
+    private final LoanRepository loanRepository;
+    private final LoanArchiveRepository loanArchiveRepository;
+    private final BookRepository bookRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${library.loan-archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${library.loan-archive.min-age-days:365}")
+    private int minAgeDays;
+
+    @Value("${library.loan-archive.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${library.loan-archive.max-merged-window:10000}")
+    private int maxMergedWindow;
+
+    public LoanArchiveService(LoanRepository loanRepository, LoanArchiveRepository loanArchiveRepository,
+            BookRepository bookRepository, UserRepository userRepository, TransactionTemplate transactionTemplate) {
+        this.loanRepository = loanRepository;
+        this.loanArchiveRepository = loanArchiveRepository;
+        this.bookRepository = bookRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Scheduled(cron = "${library.loan-archive.cron:0 30 3 * * *}")
+    public void scheduledArchive() {
+        if (enabled) {
+            archiveClosedLoans();
+        }
+    }
+
+    /**
+     * Moves returned loans older than the configured age to the archive table.
+     *
+     * @return number of archived loans
+     */
+    public int archiveClosedLoans() {
+        LocalDate cutoff = LocalDate.now().minusDays(minAgeDays);
+        logger.info("Service: Archiving loans returned before {}", cutoff);
+        int archived = 0;
+
+        while (true) {
+            List<Integer> ids = loanRepository.findArchivableIds(cutoff, PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            Integer moved = transactionTemplate.execute(status -> {
+                // Both statements re-check the condition. On MySQL the copy locks the rows it reads, so
+                // they match the same loans; otherwise the count check rolls the batch back
+                int copied = loanArchiveRepository.copyFromLoans(ids, cutoff, LocalDateTime.now());
+                int deleted = loanRepository.deleteArchivable(ids, cutoff);
+                if (copied != deleted) {
+                    throw new IllegalStateException("Loan archive batch mismatch: copied " + copied + ", deleted " + deleted);
+                }
+                return deleted;
+            });
+            archived += moved != null ? moved : 0;
+            logger.debug("Service: Archived batch of {} loans (last ID: {})", moved, ids.get(ids.size() - 1));
+
+            if (ids.size() < batchSize) {
+                break;
+            }
+        }
+
+        logger.info("Service: Archived {} loans", archived);
+        return archived;
+    }
+
+    /**
+     * Pages over the hot tier only, or over both tiers when {@code includeArchived} is set.
+     * Each tier is read with one join projection (no user or book entities are loaded).
+     * Merged paging reads the first offset + size rows of each tier, so it is limited to
+     * simple sort keys and a bounded window.
+     */
+    public Page<LoanView> findLoans(Pageable pageable, boolean includeArchived) {
+        if (!includeArchived) {
+            return loanRepository.findViews(pageable).map(LoanArchiveService::toView);
+        }
+
+        for (Sort.Order order : pageable.getSort()) {
+            if (!MERGE_SORT_PROPERTIES.contains(order.getProperty())) {
+                throw new IllegalArgumentException("Sorting archived loans by '" + order.getProperty()
+                        + "' is not supported, use one of " + MERGE_SORT_PROPERTIES);
+            }
+        }
+        long window = pageable.getOffset() + pageable.getPageSize();
+        if (window > maxMergedWindow) {
+            throw new IllegalArgumentException("Page window exceeds " + maxMergedWindow + " loans when including archived loans");
+        }
+
+        Pageable head = PageRequest.of(0, (int) window, pageable.getSort());
+        Page<Object[]> hot = loanRepository.findViews(head);
+        Page<Object[]> cold = loanArchiveRepository.findViews(head);
+
+        List<LoanView> merged = new ArrayList<>(hot.getNumberOfElements() + cold.getNumberOfElements());
+        hot.forEach(row -> merged.add(toView(row)));
+        cold.forEach(row -> merged.add(toView(row)));
+        merged.sort(comparatorFor(pageable.getSort()));
+
+        int from = (int) Math.min(pageable.getOffset(), merged.size());
+        int to = (int) Math.min(window, merged.size());
+        return new PageImpl<>(new ArrayList<>(merged.subList(from, to)), pageable,
+                hot.getTotalElements() + cold.getTotalElements());
+    }
+
+    /**
+     * Finds a loan in the hot tier, falling back to the archive when {@code includeArchived} is set.
+     */
+    public Optional<LoanView> findLoan(Integer id, boolean includeArchived) {
+        List<Object[]> rows = loanRepository.findView(id);
+        if (rows.isEmpty() && includeArchived) {
+            rows = loanArchiveRepository.findView(id);
+        }
+        return rows.stream().findFirst().map(LoanArchiveService::toView);
+    }
+
+    /**
+     * Adds the full user and/or book to the views, with one batched lookup each.
+     */
+    public void expand(List<LoanView> views, boolean withUser, boolean withBook) {
+        if (withUser) {
+            Map<String, User> users = userRepository.findAllById(
+                    views.stream().map(LoanView::getUserId).filter(Objects::nonNull).collect(Collectors.toSet()))
+                    .stream().collect(Collectors.toMap(User::getUid, Function.identity()));
+            views.forEach(view -> view.setUser(users.get(view.getUserId())));
+        }
+        if (withBook) {
+            Map<Integer, Book> books = bookRepository.findAllById(
+                    views.stream().map(LoanView::getBookId).filter(Objects::nonNull).collect(Collectors.toSet()))
+                    .stream().collect(Collectors.toMap(Book::getId, Function.identity()));
+            views.forEach(view -> view.setBook(books.get(view.getBookId())));
+        }
+    }
+
+    // Row of LoanRepository.findViews, or LoanArchiveRepository.findViews (no version column)
+    private static LoanView toView(Object[] row) {
+        LoanView view = new LoanView();
+        view.setId((Integer) row[0]);
+        view.setUserId((String) row[1]);
+        view.setUserName(LoanView.fullName((String) row[2], (String) row[3]));
+        view.setBookId((Integer) row[4]);
+        view.setBookTitle((String) row[5]);
+        view.setLoanDate((LocalDate) row[6]);
+        view.setReturnDate((LocalDate) row[7]);
+        view.setStatus((String) row[8]);
+        if (row.length > 9) {
+            view.setVersion(((Number) row[9]).longValue());
+        } else {
+            view.setArchived(true);
+        }
+        return view;
+    }
+
+    // Mirrors MySQL ordering: nulls first when ascending, last when descending.
+    private static Comparator<LoanView> comparatorFor(Sort sort) {
+        Comparator<LoanView> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<LoanView> next = switch (order.getProperty()) {
+                case "id" -> Comparator.comparing(LoanView::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+                case "loanDate" -> Comparator.comparing(LoanView::getLoanDate, Comparator.nullsFirst(Comparator.naturalOrder()));
+                case "returnDate" -> Comparator.comparing(LoanView::getReturnDate, Comparator.nullsFirst(Comparator.naturalOrder()));
+                default -> Comparator.comparing(LoanView::getStatus, Comparator.nullsFirst(Comparator.naturalOrder()));
+            };
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator != null ? comparator : Comparator.comparing(LoanView::getId);
+    }
+}
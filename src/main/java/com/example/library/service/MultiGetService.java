@@ -0,0 +1,54 @@
+package com.example.library.service;
+
+import com.example.library.dto.MultiGetResponse;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Loads many entities by id in one go. Hibernate's multi-load serves ids from the persistence
+ * context and second-level cache first and fetches the rest with {@code IN} queries of at most
+ * {@value #CHUNK_SIZE} ids.
+ */
+@Service
+public class MultiGetService {
+    private static final Logger logger = LoggerFactory.getLogger(MultiGetService.class);
+    private static final int CHUNK_SIZE = 200;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * @param ids requested ids; duplicates are ignored, the first occurrence decides the position
+     */
+    @Transactional(readOnly = true)
+    public <T, K> MultiGetResponse<T, K> load(Class<T> entityType, List<K> ids) {
+        List<K> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<T> loaded = entityManager.unwrap(Session.class)
+                .byMultipleIds(entityType)
+                .withBatchSize(CHUNK_SIZE)
+                .enableOrderedReturn(true)
+                .multiLoad(distinct);
+
+        List<T> items = new ArrayList<>(distinct.size());
+        List<K> missing = new ArrayList<>();
+        for (int i = 0; i < distinct.size(); i++) {
+            if (loaded.get(i) != null) {
+                items.add(loaded.get(i));
+            } else {
+                missing.add(distinct.get(i));
+            }
+        }
+        logger.debug("Service: Multi-get of {} {} ids - {} found, {} missing",
+                distinct.size(), entityType.getSimpleName(), items.size(), missing.size());
+        return new MultiGetResponse<>(items, missing);
+    }
+}
@@ -0,0 +1,465 @@
+package com.example.library.service;
+
+import com.example.library.dto.RelatedBook;
+import com.example.library.event.BookEvent;
+import com.example.library.event.LibraryEventType;
+import com.example.library.event.LoanEvent;
+import com.example.library.event.OutboxCursor;
+import com.example.library.model.OutboxEvent;
+import com.example.library.repository.LoanArchiveRepository;
+import com.example.library.repository.LoanRepository;
+import com.example.library.repository.OutboxEventRepository;
+import com.example.library.util.IntIntHashMap;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+/**
+ * "Also borrowed" recommendations from a book co-occurrence matrix: the score of (a, b) is the
+ * number of distinct borrowers who borrowed both books.
+ * Rows are primitive {@link IntIntHashMap}s indexed by book id and carry a cached top list,
+ * so a lookup is an array access plus a copy of at most {@value #CACHED_TOP} entries.
+ * Borrows and book deletions come from the outbox, which every node tails.
+ */
+@Service
+public class RelatedBooksService {
+    private static final Logger logger = LoggerFactory.getLogger(RelatedBooksService.class);
+    private static final int CACHED_TOP = 50;
+    private static final int BATCH_SIZE = 500;
+
+    private final LoanRepository loanRepository;
+    private final LoanArchiveRepository loanArchiveRepository;
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxCursor cursor;
+
+    private final Object writeLock = new Object();
+    private final List<String[]> pendingDuringRebuild = new ArrayList<>();
+    private boolean rebuilding;
+    private volatile Matrix matrix = new Matrix(new Row[0], new ConcurrentHashMap<>());
+
+    public RelatedBooksService(LoanRepository loanRepository, LoanArchiveRepository loanArchiveRepository,
+            OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper, TransactionTemplate transactionTemplate,
+            @Value("${library.related-books.gap-timeout-ms:10000}") long gapTimeoutMs) {
+        this.loanRepository = loanRepository;
+        this.loanArchiveRepository = loanArchiveRepository;
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.cursor = new OutboxCursor("related books", 0, gapTimeoutMs);
+    }
+
+    /**
+     * Borrows from here on are polled; the initial build, which starts later, loads everything before.
+     */
+    @PostConstruct
+    public void startAtEnd() {
+        synchronized (cursor) {
+            cursor.moveTo(outboxEventRepository.findMaxId());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(WarmUpService.STARTUP_ORDER)
+    public void buildOnStartup() {
+        Thread thread = new Thread(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                logger.error("Related books: Initial build failed", e);
+            }
+        }, "related-books-build");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Books most often borrowed by borrowers of the given book, best first.
+     */
+    public List<RelatedBook> findRelated(int bookId, int limit) {
+        if (limit < 1 || limit > CACHED_TOP) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + CACHED_TOP);
+        }
+        Matrix current = matrix;
+        Row row = current.row(bookId);
+        if (row == null) {
+            return List.of();
+        }
+
+        Top top = row.top();
+        List<RelatedBook> related = new ArrayList<>(Math.min(limit, top.ids.length));
+        for (int i = 0; i < top.ids.length && related.size() < limit; i++) {
+            // Rows of deleted books are dropped; skip them in cached lists
+            if (current.row(top.ids[i]) != null) {
+                related.add(new RelatedBook(top.ids[i], top.scores[i]));
+            }
+        }
+        return related;
+    }
+
+    /**
+     * Applies the borrows and book deletions committed since the last poll, in id order. An id that
+     * is missing may still belong to a transaction that has not committed yet, so the poll stops
+     * there until it shows up or {@code library.related-books.gap-timeout-ms} passes.
+     */
+    @Scheduled(fixedDelayString = "${library.related-books.poll-interval-ms:1000}")
+    public void poll() {
+        try {
+            synchronized (cursor) {
+                while (true) {
+                    List<OutboxEvent> read = outboxEventRepository.findByIdGreaterThanOrderByIdAsc(
+                            cursor.getPosition(), PageRequest.of(0, BATCH_SIZE));
+                    List<OutboxEvent> batch = cursor.readable(read);
+                    for (OutboxEvent row : batch) {
+                        if ("Loan".equals(row.getAggregateType())) {
+                            LoanEvent event = read(row, LoanEvent.class);
+                            if (event != null) {
+                                applyBorrow(event);
+                            }
+                        } else if ("Book".equals(row.getAggregateType())) {
+                            BookEvent event = read(row, BookEvent.class);
+                            if (event != null) {
+                                applyDeletion(event);
+                            }
+                        }
+                    }
+                    cursor.advance(batch);
+                    if (batch.size() < BATCH_SIZE) {
+                        return;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Related books: Failed to read the outbox", e);
+        }
+    }
+
+    private <T> T read(OutboxEvent row, Class<T> type) {
+        try {
+            return objectMapper.readValue(row.getPayload(), type);
+        } catch (Exception e) {
+            logger.warn("Related books: Skipping unreadable outbox event {}", row.getId(), e);
+            return null;
+        }
+    }
+
+    private void applyBorrow(LoanEvent event) {
+        if (event.getType() == LibraryEventType.LOAN_BORROWED && event.getUserId() != null && event.getBookId() != null) {
+            synchronized (writeLock) {
+                if (rebuilding) {
+                    pendingDuringRebuild.add(new String[] { event.getUserId(), event.getBookId().toString() });
+                }
+                matrix.recordBorrow(event.getUserId(), event.getBookId());
+            }
+        }
+    }
+
+    private void applyDeletion(BookEvent event) {
+        if (event.getType() == LibraryEventType.BOOK_DELETED && event.getBookId() != null) {
+            synchronized (writeLock) {
+                matrix.removeRow(event.getBookId());
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the matrix from the full loan history (hot and archived loans). Rows are
+     * partitioned by book id across the fork-join pool, so workers never share a row.
+     * Borrows polled while the rebuild runs are replayed onto the new matrix before it is swapped in.
+     *
+     * @return summary of the new matrix
+     */
+    public synchronized Map<String, Object> rebuild() {
+        long started = System.nanoTime();
+        synchronized (writeLock) {
+            rebuilding = true;
+        }
+
+        try {
+            Map<String, IntIntHashMap> histories = new ConcurrentHashMap<>();
+            int[] maxBookId = new int[1];
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Object[]> hot = loanRepository.streamBorrowPairs();
+                        Stream<Object[]> cold = loanArchiveRepository.streamBorrowPairs()) {
+                    Stream.concat(hot, cold).forEach(pair -> {
+                        if (pair[0] != null && pair[1] != null) {
+                            int bookId = ((Number) pair[1]).intValue();
+                            histories.computeIfAbsent((String) pair[0], uid -> new IntIntHashMap()).put(bookId, 1);
+                            maxBookId[0] = Math.max(maxBookId[0], bookId);
+                        }
+                    });
+                }
+            });
+
+            int[][] borrowedBooks = histories.values().stream()
+                    .map(IntIntHashMap::keys)
+                    .filter(books -> books.length > 1)
+                    .toArray(int[][]::new);
+            Row[] rows = new Row[maxBookId[0] + 1];
+            int partitions = Math.max(1, ForkJoinPool.commonPool().getParallelism() * 4);
+            ForkJoinPool.commonPool().invoke(new BuildRowsTask(borrowedBooks, rows, partitions, 0, partitions));
+
+            Matrix built = new Matrix(rows, histories);
+            int replayed;
+            synchronized (writeLock) {
+                for (String[] borrow : pendingDuringRebuild) {
+                    built.recordBorrow(borrow[0], Integer.parseInt(borrow[1]));
+                }
+                replayed = pendingDuringRebuild.size();
+                matrix = built;
+            }
+
+            long millis = (System.nanoTime() - started) / 1_000_000;
+            logger.info("Related books: Rebuilt co-occurrence matrix for {} borrowers in {} ms (replayed {} borrows)",
+                    histories.size(), millis, replayed);
+            return Map.of("borrowers", histories.size(), "books", built.rowCount(), "millis", millis);
+        } finally {
+            synchronized (writeLock) {
+                rebuilding = false;
+                pendingDuringRebuild.clear();
+            }
+        }
+    }
+
+    private static final class Matrix {
+        private volatile Row[] rows;
+        private final Map<String, IntIntHashMap> histories;
+
+        private Matrix(Row[] rows, Map<String, IntIntHashMap> histories) {
+            this.rows = rows;
+            this.histories = histories;
+        }
+
+        private Row row(int bookId) {
+            Row[] current = rows;
+            return bookId > 0 && bookId < current.length ? current[bookId] : null;
+        }
+
+        // Callers hold the service write lock; readers only see fully published rows.
+        private void recordBorrow(String userId, int bookId) {
+            IntIntHashMap history = histories.computeIfAbsent(userId, uid -> new IntIntHashMap());
+            if (history.containsKey(bookId)) {
+                return;
+            }
+            int[] others = history.keys();
+            history.put(bookId, 1);
+            if (others.length == 0) {
+                return;
+            }
+
+            Row borrowed = rowForWrite(bookId);
+            for (int other : others) {
+                rowForWrite(other).increment(bookId);
+                borrowed.increment(other);
+            }
+        }
+
+        private void removeRow(int bookId) {
+            Row[] current = rows;
+            if (bookId > 0 && bookId < current.length) {
+                current[bookId] = null;
+                rows = current;
+            }
+        }
+
+        private Row rowForWrite(int bookId) {
+            Row[] current = rows;
+            if (bookId >= current.length) {
+                current = Arrays.copyOf(current, Math.max(bookId + 1, current.length + (current.length >> 1)));
+            }
+            Row row = current[bookId];
+            if (row == null) {
+                row = new Row();
+                current[bookId] = row;
+            }
+            rows = current;
+            return row;
+        }
+
+        private int rowCount() {
+            int count = 0;
+            for (Row row : rows) {
+                if (row != null) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    private static final class Row {
+        private final IntIntHashMap counts = new IntIntHashMap();
+        private volatile Top top;
+
+        private synchronized void increment(int otherBookId) {
+            counts.addTo(otherBookId, 1);
+            top = null;
+        }
+
+        private Top top() {
+            Top cached = top;
+            if (cached != null) {
+                return cached;
+            }
+            synchronized (this) {
+                if (top == null) {
+                    top = Top.of(counts, CACHED_TOP);
+                }
+                return top;
+            }
+        }
+    }
+
+    private static final class Top {
+        private final int[] ids;
+        private final int[] scores;
+
+        private Top(int[] ids, int[] scores) {
+            this.ids = ids;
+            this.scores = scores;
+        }
+
+        // Bounded min-heap over parallel primitive arrays, then sorted best first.
+        private static Top of(IntIntHashMap counts, int k) {
+            int[] heapIds = new int[Math.min(k, counts.size())];
+            int[] heapScores = new int[heapIds.length];
+            int[] size = new int[1];
+            counts.forEach((id, score) -> {
+                if (size[0] < heapIds.length) {
+                    heapIds[size[0]] = id;
+                    heapScores[size[0]] = score;
+                    siftUp(heapIds, heapScores, size[0]++);
+                } else if (heapIds.length > 0 && better(score, id, heapScores[0], heapIds[0])) {
+                    heapIds[0] = id;
+                    heapScores[0] = score;
+                    siftDown(heapIds, heapScores, size[0]);
+                }
+            });
+
+            // Pop the min-heap from the back to get descending order.
+            int n = size[0];
+            int[] ids = new int[n];
+            int[] scores = new int[n];
+            for (int i = n - 1; i >= 0; i--) {
+                ids[i] = heapIds[0];
+                scores[i] = heapScores[0];
+                heapIds[0] = heapIds[i];
+                heapScores[0] = heapScores[i];
+                siftDown(heapIds, heapScores, i);
+            }
+            return new Top(ids, scores);
+        }
+
+        // Higher score wins, lower book id breaks ties.
+        private static boolean better(int score, int id, int otherScore, int otherId) {
+            return score > otherScore || (score == otherScore && id < otherId);
+        }
+
+        private static void siftUp(int[] ids, int[] scores, int i) {
+            while (i > 0) {
+                int parent = (i - 1) >> 1;
+                if (!better(scores[parent], ids[parent], scores[i], ids[i])) {
+                    break;
+                }
+                swap(ids, scores, i, parent);
+                i = parent;
+            }
+        }
+
+        private static void siftDown(int[] ids, int[] scores, int size) {
+            int i = 0;
+            while (true) {
+                int left = 2 * i + 1;
+                int right = left + 1;
+                int smallest = i;
+                if (left < size && better(scores[smallest], ids[smallest], scores[left], ids[left])) {
+                    smallest = left;
+                }
+                if (right < size && better(scores[smallest], ids[smallest], scores[right], ids[right])) {
+                    smallest = right;
+                }
+                if (smallest == i) {
+                    return;
+                }
+                swap(ids, scores, i, smallest);
+                i = smallest;
+            }
+        }
+
+        private static void swap(int[] ids, int[] scores, int a, int b) {
+            int id = ids[a];
+            ids[a] = ids[b];
+            ids[b] = id;
+            int score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+
+    /**
+     * Builds the rows whose book id falls into a range of residues modulo {@code partitions}.
+     */
+    private static final class BuildRowsTask extends RecursiveAction {
+        private final int[][] borrowedBooks;
+        private final Row[] rows;
+        private final int partitions;
+        private final int from;
+        private final int to;
+
+        private BuildRowsTask(int[][] borrowedBooks, Row[] rows, int partitions, int from, int to) {
+            this.borrowedBooks = borrowedBooks;
+            this.rows = rows;
+            this.partitions = partitions;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BuildRowsTask(borrowedBooks, rows, partitions, from, middle),
+                        new BuildRowsTask(borrowedBooks, rows, partitions, middle, to));
+                return;
+            }
+
+            int residue = from;
+            for (int[] books : borrowedBooks) {
+                for (int book : books) {
+                    if (book % partitions != residue) {
+                        continue;
+                    }
+                    Row row = rows[book];
+                    if (row == null) {
+                        row = new Row();
+                        rows[book] = row;
+                    }
+                    for (int other : books) {
+                        if (other != book) {
+                            row.counts.addTo(other, 1);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.library.service;
+
+import com.example.library.dto.ResourceVersion;
+import com.example.library.repository.AuthorRepository;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.LoanArchiveRepository;
+import com.example.library.repository.LoanRepository;
+import com.example.library.repository.UserRepository;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.StringJoiner;
+
+/**
+ * ETags and Last-Modified dates for conditional requests, read from the version columns with
+ * projection queries so that a revalidation never loads the entities themselves.
+ * <p>
+ * A single resource gets a strong ETag built from its own {@code @Version} and the versions of the
+ * entities embedded in its JSON. A collection gets a weak ETag from a per-table stamp (row count,
+ * highest id and latest {@code updated_at}, all served from indexes), which changes on every
+ * insert, update and delete.
+ */
+@Service
+public class ResourceVersionService {
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final UserRepository userRepository;
+    private final LoanRepository loanRepository;
+    private final LoanArchiveRepository loanArchiveRepository;
+
+    public ResourceVersionService(BookRepository bookRepository, AuthorRepository authorRepository,
+            UserRepository userRepository, LoanRepository loanRepository, LoanArchiveRepository loanArchiveRepository) {
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.userRepository = userRepository;
+        this.loanRepository = loanRepository;
+        this.loanArchiveRepository = loanArchiveRepository;
+    }
+
+    public Optional<ResourceVersion> getBookVersion(Integer id) {
+        return single(bookRepository.findVersionStamp(id));
+    }
+
+    public Optional<ResourceVersion> getAuthorVersion(Integer id) {
+        return single(authorRepository.findVersionStamp(id));
+    }
+
+    public Optional<ResourceVersion> getUserVersion(String uid) {
+        return single(userRepository.findVersionStamp(uid));
+    }
+
+    public Optional<ResourceVersion> getLoanVersion(Integer id) {
+        return single(loanRepository.findVersionStamp(id));
+    }
+
+    public ResourceVersion getBooksVersion() {
+        return collection(bookRepository.findTableStamp(), authorRepository.findTableStamp());
+    }
+
+    public ResourceVersion getAuthorsVersion() {
+        return collection(authorRepository.findTableStamp());
+    }
+
+    public ResourceVersion getUsersVersion() {
+        return collection(userRepository.findTableStamp());
+    }
+
+    public ResourceVersion getLoansVersion() {
+        return collection(loanRepository.findTableStamp(), loanArchiveRepository.findTableStamp(),
+                userRepository.findTableStamp(), bookRepository.findTableStamp(), authorRepository.findTableStamp());
+    }
+
+    /**
+     * Whether an {@code If-Match} header value matches the given ETag (weak comparison, {@code *} matches anything).
+     */
+    public static boolean matches(String ifMatch, String etag) {
+        String current = stripWeak(etag);
+        for (String candidate : ifMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*") || stripWeak(value).equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Row of alternating version / timestamp columns, the entity's own first (also used by CatalogSnapshot)
+    static Optional<ResourceVersion> single(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        Object[] row = rows.get(0);
+        StringJoiner etag = new StringJoiner("-", "\"", "\"");
+        Instant lastModified = null;
+        for (int i = 0; i < row.length; i += 2) {
+            etag.add(String.valueOf(row[i] != null ? ((Number) row[i]).longValue() : 0));
+            lastModified = latest(lastModified, (Instant) row[i + 1]);
+        }
+        return Optional.of(new ResourceVersion(((Number) row[0]).longValue(), etag.toString(), lastModified));
+    }
+
+    // One (count, max id, max updated_at) row per table (also used by CatalogSnapshot)
+    static ResourceVersion collection(List<?>... stamps) {
+        StringJoiner etag = new StringJoiner("-", "W/\"", "\"");
+        for (List<?> stamp : stamps) {
+            for (Object value : (Object[]) stamp.get(0)) {
+                if (value instanceof Instant instant) {
+                    etag.add(Long.toString(instant.getEpochSecond(), 36) + "." + Integer.toString(instant.getNano(), 36));
+                } else {
+                    etag.add(value != null ? Long.toString(((Number) value).longValue(), 36) : "0");
+                }
+            }
+        }
+        return new ResourceVersion(null, etag.toString(), null);
+    }
+
+    private static Instant latest(Instant a, Instant b) {
+        return a == null || (b != null && b.isAfter(a)) ? b : a;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
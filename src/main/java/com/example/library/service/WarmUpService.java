@@ -0,0 +1,288 @@
+package com.example.library.service;
+
+import com.example.library.dto.StatEntry;
+import com.example.library.model.Author;
+import com.example.library.model.Book;
+import com.example.library.model.StatDimension;
+import com.example.library.repository.AuthorRepository;
+import com.example.library.repository.BookRepository;
+import com.example.library.util.JwtUtil;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Warms a node up before it takes traffic: opens the connection pool, loads the most borrowed books
+ * and authors into the second-level cache, primes the JWT signer and parser, waits for the catalogue
+ * read model and sends a few rounds of typical requests through the local server, so the first real
+ * requests find warm caches and compiled code.
+ * <p>
+ * Runs in the {@link ApplicationReadyEvent} listener, and Spring Boot only switches the readiness
+ * state to {@code ACCEPTING_TRAFFIC} after those listeners return, so {@code /api/health/readiness}
+ * reports the node unready until warm-up has finished. Failed steps are logged and skipped; warm-up
+ * never keeps a node out of service for longer than {@code library.warm-up.timeout-ms}.
+ */
+@Service
+public class WarmUpService {
+    /**
+     * Order of the other {@link ApplicationReadyEvent} listeners, which start the background builds
+     * and migrations that warm-up waits for or reads from; warm-up runs after all of them.
+     */
+    public static final int STARTUP_ORDER = 0;
+    private static final Logger logger = LoggerFactory.getLogger(WarmUpService.class);
+    private static final String WARM_UP_USER = "warm-up";
+    private static final int SAMPLE_BOOKS = 5;
+
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final CirculationStatisticsService statisticsService;
+    private final CatalogReadModel readModel;
+    private final JwtUtil jwtUtil;
+    private final DataSource dataSource;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int hotBooks;
+    private final List<Integer> bookIds;
+    private final List<Integer> authorIds;
+    private final int poolConnections;
+    private final int requestRounds;
+    private final long timeoutMs;
+    private final List<Integer> sampleBookIds = new ArrayList<>();
+    private volatile Map<String, Object> report = Map.of("status", "pending");
+
+    public WarmUpService(BookRepository bookRepository, AuthorRepository authorRepository,
+            CirculationStatisticsService statisticsService, CatalogReadModel readModel, JwtUtil jwtUtil,
+            DataSource dataSource, TransactionTemplate transactionTemplate,
+            @Value("${library.warm-up.enabled:true}") boolean enabled,
+            @Value("${library.warm-up.hot-books:100}") int hotBooks,
+            @Value("${library.stats.top-size:100}") int statsTopSize,
+            @Value("${library.warm-up.book-ids:}") List<Integer> bookIds,
+            @Value("${library.warm-up.author-ids:}") List<Integer> authorIds,
+            @Value("${library.warm-up.pool-connections:10}") int poolConnections,
+            @Value("${library.warm-up.request-rounds:20}") int requestRounds,
+            @Value("${library.warm-up.timeout-ms:60000}") long timeoutMs) {
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.statisticsService = statisticsService;
+        this.readModel = readModel;
+        this.jwtUtil = jwtUtil;
+        this.dataSource = dataSource;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        // The statistics only rank the top library.stats.top-size entries
+        this.hotBooks = Math.min(hotBooks, statsTopSize);
+        this.bookIds = bookIds;
+        this.authorIds = authorIds;
+        this.poolConnections = poolConnections;
+        this.requestRounds = requestRounds;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Outcome and duration of each warm-up step.
+     */
+    public Map<String, Object> getReport() {
+        return report;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(STARTUP_ORDER + 1)
+    public void warmUp(ApplicationReadyEvent event) {
+        if (!enabled) {
+            report = Map.of("status", "disabled");
+            return;
+        }
+        long started = System.currentTimeMillis();
+        long deadline = started + timeoutMs;
+        logger.info("Warm-up: Starting, the node reports ready when it is done");
+        Map<String, Object> steps = new LinkedHashMap<>();
+        step(steps, "connectionPool", deadline, this::openConnections);
+        step(steps, "entityCache", deadline, this::loadHotEntities);
+        String[] token = new String[1];
+        step(steps, "jwt", deadline, () -> {
+            token[0] = primeJwt(deadline);
+            return "signed and parsed";
+        });
+        step(steps, "readModel", deadline, () -> awaitReadModel(deadline));
+        if (event.getApplicationContext() instanceof WebServerApplicationContext web && token[0] != null) {
+            int port = web.getWebServer().getPort();
+            step(steps, "requests", deadline, () -> sendRequests(port, token[0], deadline));
+        }
+
+        long millis = System.currentTimeMillis() - started;
+        Map<String, Object> finished = new LinkedHashMap<>();
+        finished.put("status", System.currentTimeMillis() > deadline ? "timed out" : "done");
+        finished.put("millis", millis);
+        finished.put("steps", steps);
+        report = finished;
+        logger.info("Warm-up: Finished in {} ms: {}", millis, steps);
+    }
+
+    private static void step(Map<String, Object> steps, String name, long deadline, Supplier<Object> action) {
+        if (System.currentTimeMillis() > deadline) {
+            steps.put(name, "skipped (timeout)");
+            return;
+        }
+        long started = System.currentTimeMillis();
+        try {
+            Object result = action.get();
+            steps.put(name, result + " in " + (System.currentTimeMillis() - started) + " ms");
+        } catch (Exception e) {
+            logger.warn("Warm-up: Step {} failed", name, e);
+            steps.put(name, "failed: " + e.getMessage());
+        }
+    }
+
+    // Hikari fills the pool in the background; holding the connections at once creates them now
+    private Object openConnections() {
+        int size = poolConnections;
+        List<Connection> held = new ArrayList<>();
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                size = Math.min(size, dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize());
+            }
+            for (int i = 0; i < size; i++) {
+                Connection connection = dataSource.getConnection();
+                held.add(connection);
+                connection.isValid(1);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not open connection " + (held.size() + 1), e);
+        } finally {
+            held.forEach(WarmUpService::closeQuietly);
+        }
+        return held.size() + " connections";
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.debug("Warm-up: Failed to close connection", e);
+        }
+    }
+
+    // The configured ids first, then the most borrowed books and authors and the authors of those books
+    private Object loadHotEntities() {
+        Set<Integer> books = new LinkedHashSet<>(bookIds);
+        Set<Integer> authors = new LinkedHashSet<>(authorIds);
+        if (hotBooks > 0) {
+            books.addAll(rankedIds(statisticsService.getTop(StatDimension.BOOK, hotBooks)));
+            authors.addAll(rankedIds(statisticsService.getTop(StatDimension.AUTHOR, hotBooks)));
+        }
+        int[] loaded = new int[2];
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Book> found = books.isEmpty() ? List.of() : bookRepository.findAllById(books);
+            for (Book book : found) {
+                // Fills the book's author collection cache entry as well
+                book.getAuthors().forEach(author -> authors.add(author.getId()));
+            }
+            List<Author> foundAuthors = authors.isEmpty() ? List.of() : authorRepository.findAllById(authors);
+            loaded[0] = found.size();
+            loaded[1] = foundAuthors.size();
+            found.stream().limit(SAMPLE_BOOKS).forEach(book -> sampleBookIds.add(book.getId()));
+        });
+        return loaded[0] + " books, " + loaded[1] + " authors";
+    }
+
+    private static List<Integer> rankedIds(Collection<StatEntry> ranking) {
+        List<Integer> ids = new ArrayList<>();
+        for (StatEntry entry : ranking) {
+            try {
+                ids.add(Integer.valueOf(entry.getKey()));
+            } catch (NumberFormatException e) {
+                // Not an id
+            }
+        }
+        return ids;
+    }
+
+    // A short-lived token that only the warm-up requests to this node use
+    private String primeJwt(long deadline) {
+        long lifetime = Math.max(1000, deadline - System.currentTimeMillis());
+        String token = jwtUtil.generateToken(WARM_UP_USER, WARM_UP_USER + "@localhost", "ROLE_ADMIN", lifetime);
+        if (!jwtUtil.validateToken(token) || !WARM_UP_USER.equals(jwtUtil.getUserIdFromToken(token))) {
+            throw new IllegalStateException("Generated token does not validate");
+        }
+        return token;
+    }
+
+    private Object awaitReadModel(long deadline) {
+        if (!readModel.isEnabled()) {
+            return "disabled";
+        }
+        while (readModel.current().isEmpty()) {
+            if (System.currentTimeMillis() > deadline) {
+                return "not ready";
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return "interrupted";
+            }
+        }
+        return "ready";
+    }
+
+    private Object sendRequests(int port, String token, long deadline) {
+        List<String> paths = new ArrayList<>(List.of(
+                "/api/books?size=20",
+                "/api/books?size=20&sortBy=title&available=true",
+                "/api/books/facets",
+                "/api/books/suggest?prefix=a",
+                "/api/authors?size=20",
+                "/api/loans?size=20"));
+        sampleBookIds.forEach(id -> paths.add("/api/books/" + id));
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        int sent = 0;
+        int ok = 0;
+        for (int round = 0; round < requestRounds && System.currentTimeMillis() < deadline; round++) {
+            for (String path : paths) {
+                HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                        .header("Authorization", "Bearer " + token)
+                        .timeout(Duration.ofSeconds(10))
+                        .GET()
+                        .build();
+                try {
+                    int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    sent++;
+                    if (status < 400) {
+                        ok++;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return sent + " requests (" + ok + " ok), interrupted";
+                } catch (Exception e) {
+                    throw new IllegalStateException("Request to " + path + " failed", e);
+                }
+            }
+        }
+        return sent + " requests (" + ok + " ok)";
+    }
+}
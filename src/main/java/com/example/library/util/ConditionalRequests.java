@@ -0,0 +1,61 @@
+package com.example.library.util;
+
+import com.example.library.dto.ResourceVersion;
+import com.example.library.service.ResourceVersionService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Optional;
+
+/**
+ * Helpers for ETag / Last-Modified handling in controllers.
+ */
+public final class ConditionalRequests {
+
+    private ConditionalRequests() {
+    }
+
+    /**
+     * Evaluates {@code If-None-Match} / {@code If-Modified-Since}. When this returns true the
+     * response status is already 304 and the handler should return {@code null}.
+     */
+    public static boolean checkNotModified(WebRequest request, ResourceVersion version) {
+        if (version.getLastModified() == null) {
+            return request.checkNotModified(version.getEtag());
+        }
+        return request.checkNotModified(version.getEtag(), version.getLastModified().toEpochMilli());
+    }
+
+    /**
+     * 200 response builder carrying the validators of the given version, if any.
+     */
+    public static ResponseEntity.BodyBuilder ok(Optional<ResourceVersion> version) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        version.ifPresent(current -> {
+            builder.eTag(current.getEtag());
+            if (current.getLastModified() != null) {
+                builder.lastModified(current.getLastModified());
+            }
+        });
+        return builder;
+    }
+
+    /**
+     * Checks an {@code If-Match} precondition against the current version.
+     *
+     * @return the entity version the update must apply to, or null when there is no precondition
+     *         (or nothing to compare against, in which case the update reports not found)
+     * @throws ResponseStatusException 412 when the resource has changed since the client read it
+     */
+    public static Long expectedVersion(String ifMatch, Optional<ResourceVersion> current) {
+        if (ifMatch == null || current.isEmpty()) {
+            return null;
+        }
+        if (!ResourceVersionService.matches(ifMatch, current.get().getEtag())) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Resource has been modified");
+        }
+        return current.get().getVersion();
+    }
+}
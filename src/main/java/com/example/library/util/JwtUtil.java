@@ -26,9 +26,13 @@ public class JwtUtil {
     }
 
     public String generateToken(String userId, String email, String role) {
+        return generateToken(userId, email, role, expirationTime);
+    }
+
+    public String generateToken(String userId, String email, String role, long lifetimeMs) {
         logger.debug("JWT: Generating token for user: {} with role: {}", email, role);
         Date now = new Date();
-        Date expiryDate = new Date(now.getTime() + expirationTime);
+        Date expiryDate = new Date(now.getTime() + lifetimeMs);
 
         String token = Jwts.builder()
                 .subject(userId)
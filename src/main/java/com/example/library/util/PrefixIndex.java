@@ -0,0 +1,210 @@
+package com.example.library.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable prefix index for typeahead. All keys are kept in one sorted array, which works as a
+ * flattened trie: the keys starting with a prefix form a contiguous range found by binary search.
+ * Short prefixes match huge ranges, so their best items are precomputed at build time; longer
+ * prefixes scan their (small) range with a bounded heap.
+ *
+ * @param <T> indexed item; ranked by the comparator given to {@link #build}, best first
+ */
+public final class PrefixIndex<T> {
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int PRECOMPUTED_PREFIX_LENGTH = 2;
+    private static final int PRECOMPUTED_SIZE = 50;
+
+    private final Object[] items;
+    private final String[] keys;
+    private final int[] refs;
+    private final Comparator<T> rank;
+    private final Map<String, int[]> precomputed;
+
+    private PrefixIndex(Object[] items, String[] keys, int[] refs, Comparator<T> rank) {
+        this.items = items;
+        this.keys = keys;
+        this.refs = refs;
+        this.rank = rank;
+        this.precomputed = precompute();
+    }
+
+    /**
+     * @param keysOf normalized keys an item is found by (see {@link #normalize} and {@link #wordKeys})
+     */
+    public static <T> PrefixIndex<T> build(List<T> items, Function<T, List<String>> keysOf, Comparator<T> rank) {
+        List<String> keyList = new ArrayList<>();
+        List<Integer> refList = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            for (String key : keysOf.apply(items.get(i))) {
+                keyList.add(key);
+                refList.add(i);
+            }
+        }
+        Integer[] order = new Integer[keyList.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(keyList::get));
+
+        String[] keys = new String[order.length];
+        int[] refs = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            keys[i] = keyList.get(order[i]);
+            refs[i] = refList.get(order[i]);
+        }
+        return new PrefixIndex<>(items.toArray(), keys, refs, rank);
+    }
+
+    public static <T> PrefixIndex<T> empty(Comparator<T> rank) {
+        return build(List.of(), item -> List.of(), rank);
+    }
+
+    /**
+     * Lower-cased, accents stripped and punctuation collapsed to single spaces, so "Čapek, K." matches "capek k".
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String stripped = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Keys for the whole text and for each later word, so "The Hobbit" is found by "the h" and by "hob".
+     */
+    public static List<String> wordKeys(String text, int maxWords) {
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        List<String> keys = new ArrayList<>();
+        keys.add(normalized);
+        int from = 0;
+        while (keys.size() < maxWords && (from = normalized.indexOf(' ', from) + 1) > 0) {
+            keys.add(normalized.substring(from));
+        }
+        return keys;
+    }
+
+    /**
+     * Best {@code limit} distinct items having a key that starts with the normalized prefix.
+     *
+     * @param accept items failing it are skipped (e.g. entries replaced since the build)
+     */
+    public List<T> top(String prefix, int limit, Predicate<T> accept) {
+        if (prefix.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        int[] best = precomputed.get(prefix);
+        if (best != null) {
+            List<T> result = new ArrayList<>(limit);
+            for (int ref : best) {
+                T item = item(ref);
+                if (accept.test(item)) {
+                    result.add(item);
+                    if (result.size() == limit) {
+                        return result;
+                    }
+                }
+            }
+            if (best.length < PRECOMPUTED_SIZE) {
+                return result;
+            }
+            // Too many precomputed items were rejected, fall back to a scan
+        }
+        int from = lowerBound(prefix);
+        int to = lowerBound(prefix + Character.MAX_VALUE);
+        return scan(from, to, limit, accept);
+    }
+
+    public int size() {
+        return items.length;
+    }
+
+    private List<T> scan(int from, int to, int limit, Predicate<T> accept) {
+        int[] best = scanRefs(from, to, limit, accept, new BitSet());
+        List<T> result = new ArrayList<>(best.length);
+        for (int ref : best) {
+            result.add(item(ref));
+        }
+        return result;
+    }
+
+    // seen dedupes items with several keys in the range; it is left cleared for reuse
+    private int[] scanRefs(int from, int to, int limit, Predicate<T> accept, BitSet seen) {
+        Comparator<Integer> byRank = (a, b) -> rank.compare(item(a), item(b));
+        PriorityQueue<Integer> worstFirst = new PriorityQueue<>(limit + 1, byRank.reversed());
+        for (int i = from; i < to; i++) {
+            int ref = refs[i];
+            if (seen.get(ref)) {
+                continue;
+            }
+            seen.set(ref);
+            if (!accept.test(item(ref))) {
+                continue;
+            }
+            worstFirst.add(ref);
+            if (worstFirst.size() > limit) {
+                worstFirst.poll();
+            }
+        }
+        for (int i = from; i < to; i++) {
+            seen.clear(refs[i]);
+        }
+        return worstFirst.stream().sorted(byRank).mapToInt(Integer::intValue).toArray();
+    }
+
+    private Map<String, int[]> precompute() {
+        Map<String, int[]> best = new HashMap<>();
+        BitSet seen = new BitSet(items.length);
+        for (int length = 1; length <= PRECOMPUTED_PREFIX_LENGTH; length++) {
+            int i = 0;
+            while (i < keys.length) {
+                if (keys[i].length() < length) {
+                    i++;
+                    continue;
+                }
+                String prefix = keys[i].substring(0, length);
+                int to = lowerBound(prefix + Character.MAX_VALUE);
+                best.put(prefix, scanRefs(i, to, PRECOMPUTED_SIZE, item -> true, seen));
+                i = to;
+            }
+        }
+        return Collections.unmodifiableMap(best);
+    }
+
+    private int lowerBound(String key) {
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T item(int ref) {
+        return (T) items[ref];
+    }
+}
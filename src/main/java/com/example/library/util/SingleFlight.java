@@ -0,0 +1,76 @@
+package com.example.library.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller runs the loader, callers arriving
+ * while it is in flight wait for and share its result (or exception).
+ * Waiting is bounded by a timeout, after which a caller loads on its own; when more than
+ * {@code maxInFlight} keys are loading, new keys bypass coalescing instead of growing the map.
+ */
+public final class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final int maxInFlight;
+    private final long timeoutMillis;
+
+    public SingleFlight(int maxInFlight, long timeoutMillis) {
+        this.maxInFlight = maxInFlight;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> pending = inFlight.get(key);
+        if (pending == null) {
+            if (inFlight.size() >= maxInFlight) {
+                return loader.get();
+            }
+            CompletableFuture<V> created = new CompletableFuture<>();
+            pending = inFlight.putIfAbsent(key, created);
+            if (pending == null) {
+                return lead(key, created, loader);
+            }
+        }
+        return follow(pending, loader);
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    private V lead(K key, CompletableFuture<V> future, Supplier<V> loader) {
+        try {
+            V value = loader.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private V follow(CompletableFuture<V> future, Supplier<V> loader) {
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return loader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an in-flight load", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
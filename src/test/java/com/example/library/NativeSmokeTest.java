@@ -0,0 +1,166 @@
+package com.example.library;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Smoke test of the native executable ({@code mvn -Pnative verify}): starts it on an embedded H2
+ * database and goes through the paths that depend on the native hints (JWT issue and validation,
+ * entity persistence and JSON binding, springdoc), since a missing hint only fails at run time.
+ */
+@Tag("native-smoke")
+class NativeSmokeTest {
+    private static final Logger logger = LoggerFactory.getLogger(NativeSmokeTest.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+    private static Process process;
+    private static Path log;
+    private static String baseUrl;
+    private static String token;
+
+    @BeforeAll
+    static void start() throws Exception {
+        String executable = System.getProperty("native.smoke.executable");
+        assumeTrue(executable != null && Files.isExecutable(Path.of(executable)), "Native executable is not built");
+        Path workDir = Path.of(System.getProperty("native.smoke.work-dir", "target/native-smoke"));
+        long startTimeoutMs = Long.getLong("native.smoke.start-timeout-ms", 60_000);
+        Files.createDirectories(workDir);
+        log = workDir.resolve("native.log");
+        int port = freePort();
+        baseUrl = "http://localhost:" + port;
+
+        long started = System.nanoTime();
+        process = new ProcessBuilder(List.of(Path.of(executable).toAbsolutePath().toString(),
+                "--server.port=" + port,
+                "--spring.datasource.url=jdbc:h2:mem:native",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--library.read-model.snapshot-file.path=",
+                "--logging.file.name="))
+                .directory(workDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        while (status("/api/health/readiness") != 200) {
+            if (!process.isAlive()) {
+                fail("Native executable exited with " + process.exitValue() + ", see " + log);
+            }
+            if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) > startTimeoutMs) {
+                fail("Native executable was not ready within " + startTimeoutMs + " ms, see " + log);
+            }
+            Thread.sleep(50);
+        }
+        logger.info("Native executable ready in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        JsonNode registered = send("POST", "/api/users/register", Map.of(
+                "name", "Native", "surname", "Smoke", "email", "native-smoke@example.com",
+                "address", "Street 123", "city", "Prague", "password", "secret123", "role", "ROLE_ADMIN"), 201);
+        token = registered.path("token").asText();
+        assertTrue(!token.isEmpty(), "Registration returned no token");
+    }
+
+    @AfterAll
+    static void stop() throws InterruptedException {
+        if (process != null) {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    @Test
+    void createsAndReadsBooks() throws Exception {
+        JsonNode created = send("POST", "/api/books", Map.of(
+                "title", "Native Image", "author", "Smoke Test", "publicationYear", 2024,
+                "isbn", "978-0-00-000000-2", "totalCopies", 2), 201);
+        int id = created.path("id").asInt();
+
+        JsonNode book = send("GET", "/api/books/" + id, null, 200);
+        assertEquals("Native Image", book.path("title").asText());
+        assertEquals(2, book.path("totalCopies").asInt());
+
+        JsonNode page = send("GET", "/api/books?size=5", null, 200);
+        assertTrue(page.path("content").size() > 0, "Book list is empty");
+        send("GET", "/api/books/facets", null, 200);
+    }
+
+    @Test
+    void servesApiDocs() throws Exception {
+        JsonNode spec = send("GET", "/v3/api-docs", null, 200);
+        assertTrue(spec.path("paths").has("/api/books"), "Spec is missing the book endpoints");
+        assertEquals(200, status("/swagger-ui/index.html"));
+    }
+
+    @Test
+    void rejectsInvalidToken() throws Exception {
+        // The last character of the signature carries padding bits, so the one before it is changed
+        int at = token.length() - 2;
+        String tampered = token.substring(0, at) + (token.charAt(at) == 'A' ? 'B' : 'A') + token.substring(at + 1);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/loans"))
+                .header("Authorization", "Bearer " + tampered)
+                .GET()
+                .build();
+        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        assertTrue(status == 401 || status == 403, "Tampered token was accepted: " + status);
+    }
+
+    private static JsonNode send(String method, String path, Object body, int expectedStatus) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/json");
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        request.method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)));
+        HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(expectedStatus, response.statusCode(), method + " " + path + ": " + response.body() + ", see " + log);
+        return objectMapper.readTree(response.body());
+    }
+
+    // -1 while the server does not accept connections
+    private static int status(String path) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(5)).GET().build();
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
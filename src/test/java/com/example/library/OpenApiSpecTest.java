@@ -0,0 +1,62 @@
+package com.example.library;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Build step of the startup profile: writes the OpenAPI spec to {@code openapi.spec.output}, which
+ * the profile points into the jar's static resources, so the running application does not scan the
+ * controllers for it.
+ */
+@Tag("openapi-spec")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:openapi",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "library.warm-up.enabled=false",
+        "library.read-model.enabled=false",
+        "library.read-model.snapshot-file.path=",
+        "logging.file.name=" })
+@AutoConfigureMockMvc
+class OpenApiSpecTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void writeSpec() throws Exception {
+        String output = System.getProperty("openapi.spec.output");
+        assumeTrue(output != null, "openapi.spec.output is not set");
+
+        String body = mockMvc.perform(get("/v3/api-docs"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        ObjectNode spec = (ObjectNode) objectMapper.readTree(body);
+        assertTrue(spec.path("paths").has("/api/books"), "Spec is missing the book endpoints");
+        // The generated server is the test's http://localhost; without it clients use the serving host
+        spec.remove("servers");
+
+        Path file = Path.of(output);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(spec));
+    }
+}
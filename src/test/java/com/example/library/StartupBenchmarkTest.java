@@ -0,0 +1,148 @@
+package com.example.library;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Startup benchmark of the startup profile ({@code mvn -Pstartup verify}): starts the plain jar and
+ * the AOT + AppCDS build a few times each on the same database and reports the median time until the
+ * first HTTP response and until {@code /api/health/readiness} returns 200. Set
+ * {@code startup.benchmark.max-ready-ms} to fail the build when the optimised build is slower.
+ */
+@Tag("startup-benchmark")
+class StartupBenchmarkTest {
+    private static final Logger logger = LoggerFactory.getLogger(StartupBenchmarkTest.class);
+    private static final long START_TIMEOUT_MS = 180_000;
+
+    @Test
+    void benchmarkStartup() throws Exception {
+        String plainJar = System.getProperty("startup.benchmark.plain-jar");
+        String jar = System.getProperty("startup.benchmark.jar");
+        String archive = System.getProperty("startup.benchmark.cds-archive");
+        assumeTrue(plainJar != null && jar != null && archive != null, "Startup build is not configured");
+        Path workDir = Path.of(System.getProperty("startup.benchmark.work-dir", "target/startup-benchmark"));
+        int runs = Integer.getInteger("startup.benchmark.runs", 3);
+        Files.createDirectories(workDir);
+
+        // The plain jar runs first: it creates the schema, which the startup profile does not touch
+        long[][] plain = new long[runs][];
+        long[][] optimised = new long[runs][];
+        for (int i = 0; i < runs; i++) {
+            plain[i] = start(workDir, "plain-" + i, List.of("-jar", plainJar), List.of());
+            optimised[i] = start(workDir, "optimised-" + i,
+                    List.of("-XX:SharedArchiveFile=" + archive, "-Dspring.aot.enabled=true", "-jar", jar),
+                    List.of("--spring.profiles.active=startup"));
+        }
+
+        String report = String.format("""
+                Startup benchmark, median of %d runs
+                                   first response    ready
+                plain jar          %8d ms     %6d ms
+                AOT + AppCDS       %8d ms     %6d ms
+                """, runs, median(plain, 0), median(plain, 1), median(optimised, 0), median(optimised, 1));
+        Files.writeString(workDir.resolve("report.txt"), report);
+        logger.info("{}", report);
+
+        Long budget = Long.getLong("startup.benchmark.max-ready-ms");
+        if (budget != null) {
+            assertTrue(median(optimised, 1) <= budget,
+                    "Optimised build took " + median(optimised, 1) + " ms to become ready, budget is " + budget + " ms");
+        }
+    }
+
+    // Milliseconds until the first HTTP response and until the node reports ready
+    private static long[] start(Path workDir, String name, List<String> jvmArgs, List<String> appArgs) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.addAll(appArgs);
+        command.addAll(List.of(
+                "--server.port=" + port,
+                "--spring.datasource.url=jdbc:h2:file:" + workDir.toAbsolutePath().resolve("library"),
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--library.read-model.snapshot-file.path=",
+                "--logging.file.name="));
+        Path log = workDir.resolve(name + ".log");
+
+        long started = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(workDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        try {
+            long firstResponse = -1;
+            while (elapsedMs(started) < START_TIMEOUT_MS) {
+                if (!process.isAlive()) {
+                    fail(name + " exited with " + process.exitValue() + ", see " + log);
+                }
+                int status = readinessStatus(port);
+                if (status > 0 && firstResponse < 0) {
+                    firstResponse = elapsedMs(started);
+                }
+                if (status == 200) {
+                    return new long[] { firstResponse, elapsedMs(started) };
+                }
+                Thread.sleep(20);
+            }
+            return fail(name + " was not ready within " + START_TIMEOUT_MS + " ms, see " + log);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    // -1 while the server does not accept connections
+    private static int readinessStatus(int port) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) URI.create(
+                    "http://localhost:" + port + "/api/health/readiness").toURL().openConnection();
+            connection.setConnectTimeout(1000);
+            connection.setReadTimeout(5000);
+            try {
+                return connection.getResponseCode();
+            } finally {
+                connection.disconnect();
+            }
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static long elapsedMs(long startedNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+    }
+
+    private static long median(long[][] runs, int column) {
+        long[] values = Arrays.stream(runs).mapToLong(run -> run[column]).sorted().toArray();
+        return values[values.length / 2];
+    }
+}
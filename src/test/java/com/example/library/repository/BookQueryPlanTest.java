@@ -0,0 +1,149 @@
+package com.example.library.repository;
+
+import com.example.library.config.CacheConfig;
+import com.example.library.dto.BookFilter;
+import com.example.library.model.Author;
+import com.example.library.model.Book;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.ParameterMetaData;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs EXPLAIN on the SQL generated for each supported book filter and fails if any table is
+ * read with a full scan instead of an index.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.example.library.repository.BookQueryPlanTest$CapturedSql")
+@Import(CacheConfig.class)
+class BookQueryPlanTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private int authorId;
+
+    @BeforeEach
+    void seed() {
+        Author author = new Author();
+        author.setFirstName("Karel");
+        author.setLastName("Capek");
+        author.setNationality("Czech");
+        authorId = authorRepository.save(author).getId();
+        for (int i = 0; i < 500; i++) {
+            Book book = new Book();
+            book.setTitle("Book " + i);
+            book.setAuthor("Author " + i);
+            book.setIsbn(String.format("978-%010d", i));
+            book.setPublicationYear(1500 + i);
+            book.setAvailable(i % 3 != 0);
+            if (i % 50 == 0) {
+                book.getAuthors().add(author);
+            }
+            bookRepository.save(book);
+        }
+        bookRepository.flush();
+        new JdbcTemplate(dataSource).execute("ANALYZE");
+    }
+
+    @Test
+    void supportedFiltersUseIndexes() {
+        Map<String, BookFilter> filters = Map.of(
+                "available", new BookFilter(true, null, null, null, null),
+                "year range", new BookFilter(null, 1600, 1650, null, null),
+                "available + year range", new BookFilter(false, 1600, 1650, null, null),
+                "author", new BookFilter(null, null, null, authorId, null),
+                "isbn prefix", new BookFilter(null, null, null, null, "978-00000001"));
+
+        filters.forEach((name, filter) -> {
+            CapturedSql.statements.clear();
+            bookRepository.findAll(BookSpecifications.matching(filter),
+                    PageRequest.of(0, 5, BookSpecifications.sort("id", Sort.Direction.ASC)));
+            assertFalse(CapturedSql.statements.isEmpty(), name + ": no SQL captured");
+            for (String sql : CapturedSql.statements) {
+                String plan = explain(sql);
+                assertFalse(plan.contains("tableScan"), name + " falls back to a full scan:\n" + plan);
+            }
+        });
+    }
+
+    @Test
+    void authorBooksAreKeysetPagedThroughJoinTableIndex() {
+        CapturedSql.statements.clear();
+        List<Book> first = bookRepository.findByAuthorAfter(authorId, 0, Limit.of(4));
+        for (String sql : CapturedSql.statements) {
+            String plan = explain(sql);
+            assertFalse(plan.contains("tableScan"), "author books fall back to a full scan:\n" + plan);
+        }
+
+        List<Book> all = new ArrayList<>(first);
+        int after = first.get(first.size() - 1).getId();
+        List<Book> next;
+        while (!(next = bookRepository.findByAuthorAfter(authorId, after, Limit.of(4))).isEmpty()) {
+            all.addAll(next);
+            after = next.get(next.size() - 1).getId();
+        }
+        assertEquals(10, all.size());
+        assertEquals(all.stream().map(Book::getId).sorted().toList(), all.stream().map(Book::getId).toList());
+    }
+
+    @Test
+    void unindexedSortKeysAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> BookSpecifications.sort("content", Sort.Direction.ASC));
+        assertThrows(IllegalArgumentException.class, () -> BookSpecifications.sort("author", Sort.Direction.DESC));
+        assertTrue(BookSpecifications.sort("publicationYear", Sort.Direction.ASC).getOrderFor("id") != null);
+    }
+
+    private String explain(String sql) {
+        return String.join("\n", new JdbcTemplate(dataSource).query("EXPLAIN " + sql,
+                ps -> {
+                    // Plans are chosen for bound values, a NULL would fold some predicates to FALSE
+                    ParameterMetaData params = ps.getParameterMetaData();
+                    for (int i = 1; i <= params.getParameterCount(); i++) {
+                        switch (params.getParameterType(i)) {
+                            case Types.BOOLEAN -> ps.setBoolean(i, true);
+                            case Types.VARCHAR, Types.CHAR -> ps.setString(i, "978-0%");
+                            default -> ps.setInt(i, 1);
+                        }
+                    }
+                },
+                (rs, row) -> rs.getString(1)));
+    }
+
+    public static class CapturedSql implements StatementInspector {
+        static final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            if (sql.startsWith("select")) {
+                statements.add(sql);
+            }
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.library.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Runs registrations through the whole filter chain: registering an e-mail twice fails with 409,
+ * so a replayed key that answers 201 proves the request did not run again.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:idempotency",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "library.warm-up.enabled=false",
+        "library.read-model.enabled=false",
+        "library.read-model.snapshot-file.path=",
+        "logging.file.name=" })
+@AutoConfigureMockMvc
+class IdempotencyFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void replaysStoredResponseForRepeatedKey() throws Exception {
+        MockHttpServletResponse first = register("replay-1", "replay@example.com");
+        assertEquals(201, first.getStatus());
+        assertNull(first.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+
+        MockHttpServletResponse retry = register("replay-1", "replay@example.com");
+        assertEquals(201, retry.getStatus());
+        assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(first.getContentAsString(), retry.getContentAsString());
+
+        // A new key runs the registration again, which finds the e-mail taken
+        assertEquals(409, register("replay-2", "replay@example.com").getStatus());
+    }
+
+    @Test
+    void rejectsKeyReusedWithDifferentBody() throws Exception {
+        assertEquals(201, register("reuse-1", "reuse-a@example.com").getStatus());
+
+        MockHttpServletResponse reused = register("reuse-1", "reuse-b@example.com");
+        assertEquals(422, reused.getStatus());
+        assertNull(reused.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void rejectsOverlongKey() throws Exception {
+        assertEquals(400, register("k".repeat(256), "long-key@example.com").getStatus());
+    }
+
+    private MockHttpServletResponse register(String key, String email) throws Exception {
+        String body = """
+                {"name":"Idem","surname":"Potent","email":"%s","address":"Street 123","city":"Prague",
+                 "password":"secret123","role":"ROLE_USER"}
+                """.formatted(email);
+        return mockMvc.perform(post("/api/users/register")
+                        .header(IdempotencyFilter.HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andReturn().getResponse();
+    }
+}
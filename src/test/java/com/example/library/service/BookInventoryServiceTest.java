@@ -0,0 +1,67 @@
+package com.example.library.service;
+
+import com.example.library.config.CacheConfig;
+import com.example.library.model.Book;
+import com.example.library.repository.BookRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import({ CacheConfig.class, BookInventoryService.class })
+class BookInventoryServiceTest {
+
+    @Autowired
+    private BookInventoryService inventoryService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Test
+    void takesCopiesUntilNoneIsLeft() {
+        Book book = save(2);
+        long version = book.getVersion();
+
+        assertTrue(inventoryService.takeCopy(book));
+        assertEquals(1, book.getAvailableCopies());
+        assertTrue(book.isAvailable());
+        assertTrue(inventoryService.takeCopy(book));
+        assertEquals(0, book.getAvailableCopies());
+        assertFalse(book.isAvailable());
+        assertEquals(version + 2, book.getVersion());
+
+        assertFalse(inventoryService.takeCopy(book));
+        assertEquals(0, book.getAvailableCopies());
+        assertEquals(version + 2, book.getVersion());
+    }
+
+    @Test
+    void returnsCopiesUpToTheTotal() {
+        Book book = save(2);
+        assertTrue(inventoryService.takeCopy(book));
+
+        assertTrue(inventoryService.returnCopy(book));
+        assertEquals(2, book.getAvailableCopies());
+        assertTrue(book.isAvailable());
+
+        long version = book.getVersion();
+        assertFalse(inventoryService.returnCopy(book));
+        assertEquals(2, book.getAvailableCopies());
+        assertEquals(version, book.getVersion());
+    }
+
+    private Book save(int copies) {
+        Book book = new Book();
+        book.setTitle("Inventory");
+        book.setAuthor("Some Author");
+        book.setPublicationYear(2001);
+        book.setIsbn("978-0-00-000000-0");
+        book.setTotalCopies(copies);
+        return bookRepository.saveAndFlush(book);
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.library.service;
+
+import com.example.library.model.Author;
+import com.example.library.model.Book;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogSnapshotFileTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void readsBackWhatWasWritten() throws IOException {
+        Author austen = author(1, "Jane", "Austen", "English novelist", "English");
+        Author anonymous = author(2, null, null, null, null);
+        anonymous.setUpdatedAt(null);
+        Book linked = book(10, "Emma", "978-0-14-143958-7", 2, 1, austen, anonymous);
+        Book bare = book(11, null, null, null, null);
+        bare.setAvailable(false);
+        bare.setUpdatedAt(null);
+        CatalogSnapshot source = CatalogSnapshot.build(0, 1, List.of(linked, bare), List.of(austen, anonymous));
+        Path file = directory.resolve("catalog.bin");
+
+        CatalogSnapshotFile.write(file, source, 42);
+        CatalogSnapshotFile read = CatalogSnapshotFile.open(file);
+        CatalogSnapshot loaded = read.toSnapshot(7);
+
+        assertEquals(42, read.getWatermark());
+        assertEquals(42, loaded.getPosition());
+        assertEquals(source.getAuthors().size(), loaded.getAuthors().size());
+        for (Author author : source.getAuthors()) {
+            assertSameAuthor(author, loaded.findAuthor(author.getId()).orElseThrow());
+        }
+        assertEquals(source.getBooks().size(), loaded.getBooks().size());
+        for (Book book : source.getBooks()) {
+            assertSameBook(book, loaded.findBook(book.getId()).orElseThrow());
+        }
+        Book loadedBare = loaded.findBook(11).orElseThrow();
+        assertNull(loadedBare.getTitle());
+        assertNull(loadedBare.getTotalCopies());
+        assertNull(loadedBare.getAvailableCopies());
+        assertTrue(loadedBare.getAuthors().isEmpty());
+        // Books share the loaded author objects
+        assertSame(loaded.findAuthor(1).orElseThrow(), loaded.findBook(10).orElseThrow().getAuthors().iterator().next());
+    }
+
+    @Test
+    void rejectsFlippedPayloadByte() throws IOException {
+        Path file = written();
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+
+        IOException e = assertThrows(IOException.class, () -> CatalogSnapshotFile.open(file));
+        assertTrue(e.getMessage().contains("checksum"), e.getMessage());
+    }
+
+    @Test
+    void rejectsTruncatedFile() throws IOException {
+        Path file = written();
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 10));
+
+        IOException e = assertThrows(IOException.class, () -> CatalogSnapshotFile.open(file));
+        assertTrue(e.getMessage().contains("truncated"), e.getMessage());
+    }
+
+    @Test
+    void rejectsOtherFormatVersion() throws IOException {
+        Path file = written();
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(8, 2);
+        Files.write(file, bytes);
+
+        IOException e = assertThrows(IOException.class, () -> CatalogSnapshotFile.open(file));
+        assertTrue(e.getMessage().contains("format"), e.getMessage());
+    }
+
+    private Path written() throws IOException {
+        Author author = author(1, "Jane", "Austen", null, "English");
+        Book book = book(10, "Emma", "978-0-14-143958-7", 1, 1, author);
+        Path file = directory.resolve("catalog.bin");
+        CatalogSnapshotFile.write(file, CatalogSnapshot.build(0, 1, List.of(book), List.of(author)), 5);
+        return file;
+    }
+
+    private static void assertSameAuthor(Author expected, Author actual) {
+        assertEquals(expected, actual);
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertEquals(expected.getUpdatedAt(), actual.getUpdatedAt());
+    }
+
+    private static void assertSameBook(Book expected, Book actual) {
+        assertEquals(expected, actual);
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertEquals(expected.getUpdatedAt(), actual.getUpdatedAt());
+        assertEquals(authorIds(expected), authorIds(actual));
+    }
+
+    private static List<Integer> authorIds(Book book) {
+        return book.getAuthors().stream().map(Author::getId).sorted(Comparator.naturalOrder()).toList();
+    }
+
+    private static Author author(int id, String firstName, String lastName, String biography, String nationality) {
+        Author author = new Author();
+        author.setId(id);
+        author.setFirstName(firstName);
+        author.setLastName(lastName);
+        author.setBiography(biography);
+        author.setNationality(nationality);
+        author.setVersion(3);
+        author.setUpdatedAt(Instant.parse("2024-05-01T10:15:30.123456789Z"));
+        return author;
+    }
+
+    private static Book book(int id, String title, String isbn, Integer totalCopies, Integer availableCopies,
+            Author... authors) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(title != null ? "Jane Austen" : null);
+        book.setPublicationYear(1815);
+        book.setIsbn(isbn);
+        book.setTotalCopies(totalCopies);
+        book.setAvailableCopies(availableCopies);
+        book.setVersion(4);
+        book.setUpdatedAt(Instant.parse("2024-06-01T08:00:00Z"));
+        book.setAuthors(CatalogReadModel.authorSet(List.of(authors)));
+        return book;
+    }
+}
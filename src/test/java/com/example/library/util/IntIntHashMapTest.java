@@ -0,0 +1,88 @@
+package com.example.library.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntIntHashMapTest {
+
+    @Test
+    void keepsEntriesAcrossResizes() {
+        IntIntHashMap map = new IntIntHashMap();
+        for (int key = 1; key <= 10_000; key++) {
+            map.put(key, key * 2);
+        }
+        assertEquals(10_000, map.size());
+        for (int key = 1; key <= 10_000; key++) {
+            assertEquals(key * 2, map.get(key));
+        }
+        assertFalse(map.containsKey(10_001));
+        assertEquals(0, map.get(10_001));
+    }
+
+    @Test
+    void addToInsertsAndAccumulates() {
+        IntIntHashMap map = new IntIntHashMap();
+        assertEquals(3, map.addTo(7, 3));
+        assertEquals(5, map.addTo(7, 2));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void removesAndKeepsCollidingKeysReachable() {
+        IntIntHashMap map = new IntIntHashMap(16);
+        for (int key = 1; key <= 12; key++) {
+            map.put(key, key);
+        }
+        assertEquals(5, map.remove(5));
+        assertEquals(0, map.remove(5));
+        assertFalse(map.containsKey(5));
+        assertEquals(11, map.size());
+        for (int key = 1; key <= 12; key++) {
+            if (key != 5) {
+                assertEquals(key, map.get(key), "key " + key);
+            }
+        }
+        map.put(5, 50);
+        assertEquals(50, map.get(5));
+        assertEquals(12, map.size());
+    }
+
+    @Test
+    void matchesHashMapUnderRandomPutsAndRemoves() {
+        IntIntHashMap map = new IntIntHashMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // A small key range makes long probe runs and frequent removals of their members
+            int key = 1 + random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.getOrDefault(key, 0), map.remove(key));
+                expected.remove(key);
+            } else {
+                map.put(key, i);
+                expected.put(key, i);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (int key = 1; key <= 2_000; key++) {
+            assertEquals(expected.containsKey(key), map.containsKey(key), "key " + key);
+            assertEquals(expected.getOrDefault(key, 0), map.get(key), "key " + key);
+        }
+        assertEquals(expected.size(), map.keys().length);
+    }
+
+    @Test
+    void rejectsZeroKey() {
+        IntIntHashMap map = new IntIntHashMap();
+        assertThrows(IllegalArgumentException.class, () -> map.put(0, 1));
+        assertTrue(map.isEmpty());
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.library.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+    private static final int CALLERS = 16;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    void shutDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void loadsOncePerKeyUnderContention() throws Exception {
+        SingleFlight<Integer, String> flight = new SingleFlight<>(100, 10_000);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = callConcurrently(() -> flight.load(1, () -> {
+            loads.incrementAndGet();
+            await(release);
+            return "book-1";
+        }));
+        awaitInFlight(flight);
+        // Gives every caller time to reach the in-flight load before it completes
+        Thread.sleep(200);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("book-1", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    void loadsDifferentKeysIndependently() {
+        SingleFlight<Integer, String> flight = new SingleFlight<>(100, 10_000);
+        assertEquals("1", flight.load(1, () -> "1"));
+        assertEquals("2", flight.load(2, () -> "2"));
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    void propagatesLoaderExceptionToEveryCaller() throws Exception {
+        SingleFlight<Integer, String> flight = new SingleFlight<>(100, 10_000);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("database down");
+
+        List<Future<String>> results = callConcurrently(() -> flight.load(1, () -> {
+            loads.incrementAndGet();
+            await(release);
+            throw failure;
+        }));
+        awaitInFlight(flight);
+        Thread.sleep(200);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            ExecutionException thrown = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertSame(failure, thrown.getCause());
+        }
+        assertEquals(1, loads.get());
+        // A failed load is not cached: the next caller loads again
+        assertEquals("retried", flight.load(1, () -> "retried"));
+    }
+
+    @Test
+    void loadsOnItsOwnAfterTimeout() throws Exception {
+        SingleFlight<Integer, String> flight = new SingleFlight<>(100, 50);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> slow = executor.submit(() -> flight.load(1, () -> {
+            await(release);
+            return "slow";
+        }));
+        awaitInFlight(flight);
+
+        assertEquals("own", flight.load(1, () -> "own"));
+        release.countDown();
+        assertEquals("slow", slow.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void bypassesCoalescingWhenFull() throws Exception {
+        SingleFlight<Integer, String> flight = new SingleFlight<>(1, 10_000);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> slow = executor.submit(() -> flight.load(1, () -> {
+            await(release);
+            return "slow";
+        }));
+        awaitInFlight(flight);
+
+        assertEquals("2", flight.load(2, () -> "2"));
+        assertEquals(1, flight.inFlight());
+        release.countDown();
+        assertEquals("slow", slow.get(5, TimeUnit.SECONDS));
+    }
+
+    private List<Future<String>> callConcurrently(Callable<String> call) throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(CALLERS);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> {
+                ready.countDown();
+                return call.call();
+            }));
+        }
+        assertTrue(ready.await(5, TimeUnit.SECONDS));
+        return results;
+    }
+
+    private static void awaitInFlight(SingleFlight<?, ?> flight) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (flight.inFlight() == 0) {
+            assertTrue(System.nanoTime() < deadline, "No load started");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}